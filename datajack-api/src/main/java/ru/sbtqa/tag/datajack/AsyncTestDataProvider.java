@@ -0,0 +1,80 @@
+package ru.sbtqa.tag.datajack;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking view of a {@link TestDataProvider}, see
+ * {@link TestDataProvider#async(java.util.concurrent.Executor)}. Every lookup
+ * runs on the executor of the view and returns immediately, so independent
+ * lookups are performed concurrently and dependent ones can be chained with
+ * {@link CompletableFuture#thenCompose}. Navigation results share the
+ * executor.
+ * <p>
+ * Futures are completed exceptionally with the
+ * {@link ru.sbtqa.tag.datajack.exceptions.DataException} the blocking call
+ * would throw, e.g. {@link CompletableFuture#join()} throws it wrapped into
+ * {@link java.util.concurrent.CompletionException}
+ */
+public interface AsyncTestDataProvider {
+
+    /**
+     * Switch current collection
+     *
+     * @param collectionName name of data collection
+     * @return future of provider of the collection
+     */
+    CompletableFuture<AsyncTestDataProvider> fromCollection(String collectionName);
+
+    /**
+     * Get sub-object from test data object by key
+     *
+     * @param key key to get
+     * @return future of provider of the sub-object
+     */
+    CompletableFuture<AsyncTestDataProvider> get(String key);
+
+    /**
+     * Get sub-object from test data object by path
+     *
+     * @param key path to get like $Collection{path.to.smth} or ${path.to.smth} relative to current collection
+     * @return future of provider of the sub-object
+     */
+    CompletableFuture<AsyncTestDataProvider> getByPath(String key);
+
+    /**
+     * Get value of current test data object
+     *
+     * @return future of value
+     */
+    CompletableFuture<String> getValue();
+
+    /**
+     * Get values by several paths at once, see
+     * {@link TestDataProvider#getValues(Collection)}
+     *
+     * @param paths paths like $Collection{path.to.smth} or ${path.to.smth} relative to current collection
+     * @return future of values by path in order of the given paths
+     */
+    CompletableFuture<Map<String, String>> getValues(Collection<String> paths);
+
+    /**
+     * Check value is reference
+     *
+     * @return future of true if it is reference, false otherwise
+     */
+    CompletableFuture<Boolean> isReference();
+
+    /**
+     * Get reference from value
+     *
+     * @return future of referenced object
+     */
+    CompletableFuture<AsyncTestDataProvider> getReference();
+
+    /**
+     * @return blocking provider this view runs lookups on
+     */
+    TestDataProvider getProvider();
+}
@@ -0,0 +1,89 @@
+package ru.sbtqa.tag.datajack;
+
+import ru.sbtqa.tag.datajack.exceptions.DataException;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Query over records of a data array, see {@link TestDataProvider#query(String)}.
+ * Conditions are combined with logical AND and evaluated in one pass over the
+ * array, or over the records found by a declared index.
+ * <p>
+ * Fields are dotted keys relative to a record. Numbers are compared by value,
+ * any other values by their string form, so a numeric condition never matches
+ * a string value. References in fields are followed, generators are not
+ * applied to compared values
+ */
+public interface Query {
+
+    /**
+     * Keep records whose field equals the value
+     *
+     * @param field dotted key relative to record
+     * @param value value to compare with
+     * @return this query
+     */
+    Query where(String field, Object value);
+
+    /**
+     * Keep records whose field is within inclusive bounds
+     *
+     * @param field dotted key relative to record
+     * @param from lower bound or null for no lower bound
+     * @param to upper bound or null for no upper bound
+     * @return this query
+     */
+    Query between(String field, Object from, Object to);
+
+    /**
+     * Stop after the given number of matched records
+     *
+     * @param limit maximum number of records
+     * @return this query
+     */
+    Query limit(int limit);
+
+    /**
+     * Use hash index on field for equality conditions. The index is built
+     * once per array and field and is shared by all later queries over the
+     * same array. Fields read through a reference are not indexed and are
+     * evaluated in a pass over the array
+     *
+     * @param field dotted key relative to record
+     * @return this query
+     */
+    Query index(String field);
+
+    /**
+     * Use sorted index on field for equality and range conditions. The index
+     * is built once per array and field and is shared by all later queries
+     * over the same array. Fields read through a reference are not indexed
+     * and are evaluated in a pass over the array
+     *
+     * @param field dotted key relative to record
+     * @return this query
+     */
+    Query sortedIndex(String field);
+
+    /**
+     * @return matched records in array order
+     * @throws DataException if some field could not be resolved
+     */
+    List<TestDataProvider> find() throws DataException;
+
+    /**
+     * Project matched records to values of the given fields
+     *
+     * @param fields dotted keys relative to record
+     * @return field values of matched records in array order
+     * @throws DataException if some field could not be resolved
+     */
+    List<Map<String, String>> select(String... fields) throws DataException;
+
+    /**
+     * @return number of matched records
+     * @throws DataException if some field could not be resolved
+     */
+    int count() throws DataException;
+}
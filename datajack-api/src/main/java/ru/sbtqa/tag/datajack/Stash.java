@@ -1,42 +1,28 @@
 package ru.sbtqa.tag.datajack;
 
-import java.util.HashMap;
 import java.util.Map;
-import ru.sbtqa.tag.datajack.exceptions.StashKeyNotFoundException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Temporary data storage. Put data to this storage as key-value pair to use it
- * in workflow of your tests
+ * in workflow of your tests. Values are kept in {@link StashContext#current()},
+ * use {@link StashContext} to see them in other threads, or {@link #global()}
+ * and {@link #group(String)} scopes to share them between parallel workers.
+ * Memory of the stash is bounded by {@link StashLimits}
  */
 public class Stash {
 
-    private static final ThreadLocal<Map<String, Object>> THREAD_VAULT = new ThreadLocal<>();
-
     private Stash() {
         throw new IllegalAccessError("Utility class");
     }
 
-    /**
-     * Thread-safety stash
-     *
-     * @return stash of current thread as a {@link java.util.Map} object
-     */
-    private static Map<String, Object> getThreadVault() {
-        Map<String, Object> vault = THREAD_VAULT.get();
-        if (vault == null) {
-            vault = new HashMap<>();
-            THREAD_VAULT.set(vault);
-        }
-        return vault;
-    }
-
     /**
      * Gets stash as map
      *
      * @return stash as a {@link java.util.Map} object
      */
     public static Map<String, Object> asMap() {
-        return getThreadVault();
+        return StashContext.current().asMap();
     }
 
     /**
@@ -46,7 +32,19 @@ public class Stash {
      * @param value Any object
      */
     public static void put(String key, Object value) {
-        getThreadVault().put(key, value);
+        StashContext.current().put(key, value);
+    }
+
+    /**
+     * Puts value in stash for a time
+     *
+     * @param key the key as a {@link java.lang.String} object
+     * @param value Any object
+     * @param ttl time to live, 0 for no expiration
+     * @param unit unit of ttl
+     */
+    public static void put(String key, Object value, long ttl, TimeUnit unit) {
+        StashContext.current().put(key, value, ttl, unit);
     }
 
     /**
@@ -57,11 +55,7 @@ public class Stash {
      * @return an object found by specified key
      */
     public static <T> T getValue(String key) {
-        Map vault = getThreadVault();
-        if (!vault.containsKey(key)) {
-            throw new StashKeyNotFoundException(String.format("Key '%s' not found in stash", key));
-        }
-        return (T) getThreadVault().get(key);
+        return StashContext.current().getValue(key);
     }
 
     /**
@@ -72,13 +66,42 @@ public class Stash {
      * @return an object removed by specified key
      */
     public static <T> T remove(String key) {
-        return (T) getThreadVault().remove(key);
+        return StashContext.current().remove(key);
     }
 
     /**
      * Clear stash
      */
     public static void clear() {
-        getThreadVault().clear();
+        StashContext.current().clear();
+    }
+
+    /**
+     * Gets scope shared by all threads
+     *
+     * @return global scope
+     */
+    public static StashScope global() {
+        return StashScope.global();
+    }
+
+    /**
+     * Gets scope shared by threads of a group, e.g. workers of one feature
+     *
+     * @param name group name
+     * @return scope of group, created on first use
+     */
+    public static StashScope group(String name) {
+        return StashScope.group(name);
+    }
+
+    /**
+     * Removes scope of a group with its values
+     *
+     * @param name group name
+     * @return removed scope or null
+     */
+    public static StashScope removeGroup(String name) {
+        return StashScope.removeGroup(name);
     }
 }
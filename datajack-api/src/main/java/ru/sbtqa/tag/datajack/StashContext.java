@@ -0,0 +1,646 @@
+package ru.sbtqa.tag.datajack;
+
+import ru.sbtqa.tag.datajack.exceptions.StashKeyNotFoundException;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stash storage that can be passed between threads. Each thread has a current
+ * context, the one {@link Stash} works with. A context is captured with
+ * {@link #current()} and made current in another thread by
+ * {@link #run(Runnable)}, {@link #call(Callable)}, the {@code wrap} methods or
+ * executors of {@link #propagating(Executor)}, e.g.
+ * <pre>{@code
+ * CompletableFuture.supplyAsync(() -> Stash.getValue("login"), StashContext.propagating(pool));
+ * }</pre>
+ * Threads running the same context share its values. Operations are
+ * synchronized on the context, and iterators of {@link #asMap()} walk a copy
+ * of keys taken when iteration starts, so the context may be read and changed
+ * while iterating. Map is created on first write, so contexts of threads that
+ * never use the stash stay empty objects.
+ * <p>
+ * A context may be bounded by {@link StashLimits}, {@link StashLimits#getDefault()}
+ * unless set by {@link #setLimits(StashLimits)}, and entries may be put with
+ * their own time to live in any context. Bounded contexts keep entries in least
+ * recently used order and evict the eldest ones over the limits
+ */
+public final class StashContext {
+
+    private static final ThreadLocal<StashContext> CURRENT = new ThreadLocal<>();
+    private static final int INITIAL_CAPACITY = 4;
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private Map<String, Object> values;
+    private Map<String, Object> view;
+    private StashLimits limits;
+    private boolean bounded;
+    private Map<String, Long> deadlines;
+    private Map<String, Long> sizes;
+    private long bytes;
+    private long lastSweep;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    /**
+     * Create empty context with default limits, not bound to any thread
+     */
+    public StashContext() {
+        this(StashLimits.getDefault());
+    }
+
+    /**
+     * Create empty context, not bound to any thread
+     *
+     * @param limits limits
+     */
+    public StashContext(StashLimits limits) {
+        this.limits = limits;
+        this.bounded = limits.isBounded();
+    }
+
+    /**
+     * @return context of current thread, created on first use
+     */
+    public static StashContext current() {
+        StashContext context = CURRENT.get();
+        if (context == null) {
+            context = new StashContext();
+            CURRENT.set(context);
+        }
+        return context;
+    }
+
+    /**
+     * Make context current for current thread until {@link #detach()}, e.g.
+     * in a thread started by other tools
+     *
+     * @param context context
+     */
+    public static void attach(StashContext context) {
+        CURRENT.set(context);
+    }
+
+    /**
+     * Forget context of current thread, next {@link #current()} creates new one
+     */
+    public static void detach() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Wrap executor to run tasks with the context current at submission
+     *
+     * @param executor executor
+     * @return propagating executor
+     */
+    public static Executor propagating(Executor executor) {
+        return task -> executor.execute(wrap(task));
+    }
+
+    /**
+     * Wrap executor service to run tasks with the context current at
+     * submission. Shutdown is delegated
+     *
+     * @param executor executor service
+     * @return propagating executor service
+     */
+    public static ExecutorService propagating(ExecutorService executor) {
+        return new PropagatingExecutorService(executor);
+    }
+
+    /**
+     * @param task task
+     * @return task running with the context current now
+     */
+    public static Runnable wrap(Runnable task) {
+        StashContext context = current();
+        return () -> context.run(task);
+    }
+
+    /**
+     * @param task task
+     * @param <T> result type
+     * @return task running with the context current now
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        StashContext context = current();
+        return () -> context.call(task);
+    }
+
+    /**
+     * Run task with this context as current, previous one is restored after
+     *
+     * @param task task
+     */
+    public void run(Runnable task) {
+        StashContext previous = enter();
+        try {
+            task.run();
+        } finally {
+            exit(previous);
+        }
+    }
+
+    /**
+     * Call task with this context as current, previous one is restored after
+     *
+     * @param task task
+     * @param <T> result type
+     * @return result of task
+     * @throws Exception thrown by task
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        StashContext previous = enter();
+        try {
+            return task.call();
+        } finally {
+            exit(previous);
+        }
+    }
+
+    /**
+     * @return new context with same limits and copy of values, changes of
+     * either are not seen by another
+     */
+    public synchronized StashContext copy() {
+        StashContext copy = new StashContext(limits);
+        if (values != null && !values.isEmpty()) {
+            copy.bounded = bounded;
+            copy.values = bounded ? newBoundedMap(values.size()) : new HashMap<>(values.size());
+            copy.values.putAll(values);
+            copy.deadlines = deadlines == null ? null : new HashMap<>(deadlines);
+            copy.sizes = sizes == null ? null : new HashMap<>(sizes);
+            copy.bytes = bytes;
+        }
+        return copy;
+    }
+
+    /**
+     * Set limits, evicting entries over them
+     *
+     * @param limits limits
+     */
+    public synchronized void setLimits(StashLimits limits) {
+        this.limits = limits;
+        sizes = null;
+        bytes = 0;
+        bounded = limits.isBounded();
+        if (!bounded || values == null) {
+            return;
+        }
+        if (!(values instanceof LinkedHashMap)) {
+            Map<String, Object> ordered = newBoundedMap(values.size());
+            ordered.putAll(values);
+            values = ordered;
+        }
+        if (limits.getMaxBytes() > 0) {
+            sizes = new HashMap<>();
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                long size = limits.getEstimator().applyAsLong(entry.getValue());
+                sizes.put(entry.getKey(), size);
+                bytes += size;
+            }
+        }
+        evict();
+    }
+
+    /**
+     * @return limits
+     */
+    public synchronized StashLimits getLimits() {
+        return limits;
+    }
+
+    /**
+     * @return values of context as a live {@link java.util.Map}. Writes
+     * through the map are limited the same way as writes to the context, and
+     * expired values are not seen
+     */
+    public synchronized Map<String, Object> asMap() {
+        if (view == null) {
+            view = new View();
+        }
+        return view;
+    }
+
+    /**
+     * Puts value in context
+     *
+     * @param key the key as a {@link java.lang.String} object
+     * @param value Any object
+     */
+    public synchronized void put(String key, Object value) {
+        if (bounded || deadlines != null) {
+            putBounded(key, value, limits.getTtlNanos());
+        } else {
+            getValues().put(key, value);
+        }
+    }
+
+    /**
+     * Puts value in context for a time
+     *
+     * @param key the key as a {@link java.lang.String} object
+     * @param value Any object
+     * @param ttl time to live, 0 for no expiration
+     * @param unit unit of ttl
+     */
+    public synchronized void put(String key, Object value, long ttl, TimeUnit unit) {
+        if (ttl < 0) {
+            throw new IllegalArgumentException("ttl must not be negative: " + ttl);
+        }
+        putBounded(key, value, unit.toNanos(ttl));
+    }
+
+    /**
+     * Gets a value by key
+     *
+     * @param <T> the type to return
+     * @param key the key as a {@link java.lang.String} object
+     * @return an object found by specified key
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T getValue(String key) {
+        if (!containsKey(key)) {
+            misses++;
+            throw new StashKeyNotFoundException(String.format("Key '%s' not found in stash", key));
+        }
+        hits++;
+        return (T) values.get(key);
+    }
+
+    /**
+     * @param key the key as a {@link java.lang.String} object
+     * @return true if context has value of key
+     */
+    public synchronized boolean containsKey(String key) {
+        if (values == null) {
+            return false;
+        }
+        if (deadlines != null) {
+            Long deadline = deadlines.get(key);
+            if (deadline != null && deadline - System.nanoTime() <= 0) {
+                expirations++;
+                evict(key, StashLimits.Cause.EXPIRED);
+                return false;
+            }
+        }
+        return values.containsKey(key);
+    }
+
+    /**
+     * Removes value from context
+     *
+     * @param <T> the type to return
+     * @param key the key as a {@link java.lang.String} object
+     * @return an object removed by specified key
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T remove(String key) {
+        if (values == null) {
+            return null;
+        }
+        untrack(key);
+        return (T) values.remove(key);
+    }
+
+    /**
+     * Clear context
+     */
+    public synchronized void clear() {
+        if (values != null) {
+            values.clear();
+        }
+        if (deadlines != null) {
+            deadlines.clear();
+        }
+        if (sizes != null) {
+            sizes.clear();
+        }
+        bytes = 0;
+    }
+
+    /**
+     * @return number of values, expired ones included until they are swept
+     */
+    public synchronized int size() {
+        return values == null ? 0 : values.size();
+    }
+
+    /**
+     * @return estimated bytes of values, 0 unless maximum bytes are limited
+     */
+    public synchronized long getEstimatedBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return number of values found by {@link #getValue(String)}
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of keys not found by {@link #getValue(String)}
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return number of values evicted over maximum entries or bytes
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return number of expired values dropped
+     */
+    public synchronized long getExpirations() {
+        return expirations;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("StashContext: %d values, %d bytes, %d hits, %d misses, %d evictions, %d expirations",
+                size(), bytes, hits, misses, evictions, expirations);
+    }
+
+    private Map<String, Object> getValues() {
+        if (values == null) {
+            values = bounded ? newBoundedMap(INITIAL_CAPACITY) : new HashMap<>(INITIAL_CAPACITY);
+        }
+        return values;
+    }
+
+    private static Map<String, Object> newBoundedMap(int capacity) {
+        return new LinkedHashMap<>(Math.max(INITIAL_CAPACITY, capacity * 4 / 3 + 1), 0.75f, true);
+    }
+
+    private void putBounded(String key, Object value, long ttlNanos) {
+        long now = deadlines != null || ttlNanos > 0 ? System.nanoTime() : 0;
+        sweep(now);
+        untrack(key);
+        getValues().put(key, value);
+        if (ttlNanos > 0) {
+            if (deadlines == null) {
+                deadlines = new HashMap<>();
+                lastSweep = now;
+            }
+            deadlines.put(key, now + ttlNanos);
+        }
+        if (limits.getMaxBytes() > 0) {
+            if (sizes == null) {
+                sizes = new HashMap<>();
+            }
+            long size = limits.getEstimator().applyAsLong(value);
+            sizes.put(key, size);
+            bytes += size;
+        }
+        evict();
+    }
+
+    private void untrack(String key) {
+        if (deadlines != null) {
+            deadlines.remove(key);
+        }
+        if (sizes != null) {
+            Long size = sizes.remove(key);
+            if (size != null) {
+                bytes -= size;
+            }
+        }
+    }
+
+    /**
+     * Drop expired values, at most once a second
+     */
+    private void sweep(long now) {
+        if (deadlines == null || deadlines.isEmpty() || now - lastSweep < SWEEP_INTERVAL_NANOS) {
+            return;
+        }
+        dropExpired(now);
+    }
+
+    private void dropExpired(long now) {
+        if (deadlines == null || deadlines.isEmpty()) {
+            return;
+        }
+        lastSweep = now;
+        List<String> expired = new ArrayList<>();
+        for (Map.Entry<String, Long> deadline : deadlines.entrySet()) {
+            if (deadline.getValue() - now <= 0) {
+                expired.add(deadline.getKey());
+            }
+        }
+        for (String key : expired) {
+            expirations++;
+            evict(key, StashLimits.Cause.EXPIRED);
+        }
+    }
+
+    private void evict() {
+        int maxEntries = limits.getMaxEntries();
+        long maxBytes = limits.getMaxBytes();
+        while (maxEntries > 0 && values.size() > maxEntries) {
+            evictions++;
+            evict(values.keySet().iterator().next(), StashLimits.Cause.SIZE);
+        }
+        while (maxBytes > 0 && bytes > maxBytes && !values.isEmpty()) {
+            evictions++;
+            evict(values.keySet().iterator().next(), StashLimits.Cause.BYTES);
+        }
+    }
+
+    private void evict(String key, StashLimits.Cause cause) {
+        untrack(key);
+        Object value = values.remove(key);
+        StashLimits.EvictionListener listener = limits.getListener();
+        if (listener != null) {
+            listener.onEviction(key, value, cause);
+        }
+    }
+
+    private StashContext enter() {
+        StashContext previous = CURRENT.get();
+        CURRENT.set(this);
+        return previous;
+    }
+
+    private static void exit(StashContext previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Live map of context values, writing through the context
+     */
+    private final class View extends AbstractMap<String, Object> {
+
+        private final Set<Map.Entry<String, Object>> entries = new Entries();
+
+        @Override
+        public int size() {
+            synchronized (StashContext.this) {
+                dropExpired(System.nanoTime());
+                return StashContext.this.size();
+            }
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && StashContext.this.containsKey((String) key);
+        }
+
+        @Override
+        public Object get(Object key) {
+            synchronized (StashContext.this) {
+                return containsKey(key) ? values.get(key) : null;
+            }
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            synchronized (StashContext.this) {
+                Object previous = get(key);
+                StashContext.this.put(key, value);
+                return previous;
+            }
+        }
+
+        @Override
+        public Object remove(Object key) {
+            return key instanceof String ? StashContext.this.remove((String) key) : null;
+        }
+
+        @Override
+        public void clear() {
+            StashContext.this.clear();
+        }
+
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            return entries;
+        }
+    }
+
+    private final class Entries extends AbstractSet<Map.Entry<String, Object>> {
+
+        @Override
+        public int size() {
+            return asMap().size();
+        }
+
+        /**
+         * Reads of a bounded context reorder its values and reads of an
+         * expired value drop it, so keys are copied instead of iterating the
+         * values directly. Keys removed or expired since are skipped
+         */
+        @Override
+        public Iterator<Map.Entry<String, Object>> iterator() {
+            synchronized (StashContext.this) {
+                dropExpired(System.nanoTime());
+                Iterator<String> keys = new ArrayList<>(getValues().keySet()).iterator();
+                return new Iterator<Map.Entry<String, Object>>() {
+
+                    private Map.Entry<String, Object> next;
+                    private String current;
+
+                    @Override
+                    public boolean hasNext() {
+                        synchronized (StashContext.this) {
+                            while (next == null && keys.hasNext()) {
+                                String key = keys.next();
+                                if (containsKey(key)) {
+                                    // Values are replaced through the context to keep their sizes
+                                    next = new AbstractMap.SimpleImmutableEntry<>(key, values.get(key));
+                                }
+                            }
+                            return next != null;
+                        }
+                    }
+
+                    @Override
+                    public Map.Entry<String, Object> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Map.Entry<String, Object> entry = next;
+                        next = null;
+                        current = entry.getKey();
+                        return entry;
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (current == null) {
+                            throw new IllegalStateException();
+                        }
+                        StashContext.this.remove(current);
+                        current = null;
+                    }
+                };
+            }
+        }
+    }
+
+    private static final class PropagatingExecutorService extends AbstractExecutorService {
+
+        private final ExecutorService executor;
+
+        private PropagatingExecutorService(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            executor.execute(wrap(task));
+        }
+
+        @Override
+        public void shutdown() {
+            executor.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return executor.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return executor.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return executor.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return executor.awaitTermination(timeout, unit);
+        }
+    }
+}
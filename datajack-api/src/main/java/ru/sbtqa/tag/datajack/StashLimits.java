@@ -0,0 +1,325 @@
+package ru.sbtqa.tag.datajack;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Limits of a {@link StashContext}: maximum number of entries, maximum
+ * estimated bytes and time to live of entries. Least recently used entries
+ * are evicted when a limit is exceeded, expired entries are dropped on access
+ * and by a sweep on writes. Contexts get {@link #getDefault()} limits, set by
+ * system properties, e.g. {@code -Ddatajack.stash.maxEntries=1000
+ * -Ddatajack.stash.maxBytes=64MB -Ddatajack.stash.ttl=600000}
+ */
+public final class StashLimits {
+
+    /**
+     * System property to set default maximum number of entries
+     */
+    public static final String MAX_ENTRIES_PROPERTY = "datajack.stash.maxEntries";
+    /**
+     * System property to set default maximum estimated bytes, like
+     * {@code 1048576}, {@code 512KB}, {@code 64MB}
+     */
+    public static final String MAX_BYTES_PROPERTY = "datajack.stash.maxBytes";
+    /**
+     * System property to set default time to live of entries in milliseconds
+     */
+    public static final String TTL_PROPERTY = "datajack.stash.ttl";
+
+    /**
+     * No limits
+     */
+    public static final StashLimits NONE = builder().build();
+
+    private static final int OBJECT_SIZE = 64;
+    private static final int MAX_DEPTH = 16;
+
+    private static volatile StashLimits defaultLimits;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlNanos;
+    private final ToLongFunction<Object> estimator;
+    private final EvictionListener listener;
+
+    private StashLimits(Builder builder) {
+        this.maxEntries = builder.maxEntries;
+        this.maxBytes = builder.maxBytes;
+        this.ttlNanos = builder.ttlNanos;
+        this.estimator = builder.estimator;
+        this.listener = builder.listener;
+    }
+
+    /**
+     * @return builder of limits, none set
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return limits of new contexts, read from system properties on first use
+     * unless set
+     */
+    public static StashLimits getDefault() {
+        StashLimits limits = defaultLimits;
+        if (limits == null) {
+            limits = fromSystemProperties();
+            defaultLimits = limits;
+        }
+        return limits;
+    }
+
+    /**
+     * @param limits limits of contexts created from now on
+     */
+    public static void setDefault(StashLimits limits) {
+        defaultLimits = limits;
+    }
+
+    private static StashLimits fromSystemProperties() {
+        Builder builder = builder();
+        String maxEntries = System.getProperty(MAX_ENTRIES_PROPERTY);
+        if (maxEntries != null) {
+            builder.maxEntries(Integer.parseInt(maxEntries.trim()));
+        }
+        String maxBytes = System.getProperty(MAX_BYTES_PROPERTY);
+        if (maxBytes != null) {
+            builder.maxBytes(parseBytes(maxBytes));
+        }
+        String ttl = System.getProperty(TTL_PROPERTY);
+        if (ttl != null) {
+            builder.ttl(Long.parseLong(ttl.trim()), TimeUnit.MILLISECONDS);
+        }
+        return builder.build();
+    }
+
+    private static long parseBytes(String size) {
+        String value = size.trim().toUpperCase(Locale.ROOT);
+        long unit = 1;
+        if (value.endsWith("KB")) {
+            unit = 1L << 10;
+        } else if (value.endsWith("MB")) {
+            unit = 1L << 20;
+        } else if (value.endsWith("GB")) {
+            unit = 1L << 30;
+        }
+        if (unit != 1) {
+            value = value.substring(0, value.length() - 2).trim();
+        }
+        return Long.parseLong(value) * unit;
+    }
+
+    /**
+     * Rough size of value: strings, arrays, maps and collections are
+     * estimated with their content, other objects as 64 bytes
+     *
+     * @param value value
+     * @return estimated bytes
+     */
+    public static long estimate(Object value) {
+        return estimate(value, 0);
+    }
+
+    private static long estimate(Object value, int depth) {
+        if (value == null) {
+            return 0;
+        }
+        if (depth == MAX_DEPTH) {
+            return OBJECT_SIZE;
+        }
+        if (value instanceof CharSequence) {
+            return 40 + 2L * ((CharSequence) value).length();
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+            return 16;
+        }
+        if (value instanceof byte[]) {
+            return 16 + ((byte[]) value).length;
+        }
+        if (value instanceof Map) {
+            long size = 48;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += 32 + estimate(entry.getKey(), depth + 1) + estimate(entry.getValue(), depth + 1);
+            }
+            return size;
+        }
+        if (value instanceof Collection) {
+            long size = 40;
+            for (Object element : (Collection<?>) value) {
+                size += 8 + estimate(element, depth + 1);
+            }
+            return size;
+        }
+        if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            long size = 16;
+            if (value.getClass().getComponentType().isPrimitive()) {
+                return size + 8L * length;
+            }
+            for (int i = 0; i < length; i++) {
+                size += 8 + estimate(Array.get(value, i), depth + 1);
+            }
+            return size;
+        }
+        return OBJECT_SIZE;
+    }
+
+    /**
+     * @return maximum number of entries, 0 for no limit
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @return maximum estimated bytes, 0 for no limit
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return time to live of entries put without one in nanoseconds, 0 for
+     * no expiration
+     */
+    public long getTtlNanos() {
+        return ttlNanos;
+    }
+
+    /**
+     * @return true if any limit is set
+     */
+    public boolean isBounded() {
+        return maxEntries > 0 || maxBytes > 0 || ttlNanos > 0;
+    }
+
+    ToLongFunction<Object> getEstimator() {
+        return estimator;
+    }
+
+    EvictionListener getListener() {
+        return listener;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StashLimits{maxEntries=%d, maxBytes=%d, ttl=%dms}", maxEntries, maxBytes,
+                TimeUnit.NANOSECONDS.toMillis(ttlNanos));
+    }
+
+    /**
+     * Cause of eviction
+     */
+    public enum Cause {
+        /**
+         * Least recently used entry over maximum number of entries
+         */
+        SIZE,
+        /**
+         * Least recently used entry over maximum estimated bytes
+         */
+        BYTES,
+        /**
+         * Entry outlived its time to live
+         */
+        EXPIRED
+    }
+
+    /**
+     * Notified of evicted entries by the thread that caused eviction, while it
+     * holds the context
+     */
+    @FunctionalInterface
+    public interface EvictionListener {
+
+        /**
+         * @param key evicted key
+         * @param value evicted value
+         * @param cause cause of eviction
+         */
+        void onEviction(String key, Object value, Cause cause);
+    }
+
+    /**
+     * Builder of limits
+     */
+    public static final class Builder {
+
+        private int maxEntries;
+        private long maxBytes;
+        private long ttlNanos;
+        private ToLongFunction<Object> estimator = StashLimits::estimate;
+        private EvictionListener listener;
+
+        private Builder() {
+        }
+
+        /**
+         * @param maxEntries maximum number of entries, 0 for no limit
+         * @return this builder
+         */
+        public Builder maxEntries(int maxEntries) {
+            if (maxEntries < 0) {
+                throw new IllegalArgumentException("maxEntries must not be negative: " + maxEntries);
+            }
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * @param maxBytes maximum estimated bytes, 0 for no limit
+         * @return this builder
+         */
+        public Builder maxBytes(long maxBytes) {
+            if (maxBytes < 0) {
+                throw new IllegalArgumentException("maxBytes must not be negative: " + maxBytes);
+            }
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * @param ttl time to live of entries put without one, 0 for no expiration
+         * @param unit unit of ttl
+         * @return this builder
+         */
+        public Builder ttl(long ttl, TimeUnit unit) {
+            if (ttl < 0) {
+                throw new IllegalArgumentException("ttl must not be negative: " + ttl);
+            }
+            this.ttlNanos = unit.toNanos(ttl);
+            return this;
+        }
+
+        /**
+         * @param estimator estimates bytes of a value, {@link StashLimits#estimate(Object)} by default
+         * @return this builder
+         */
+        public Builder estimator(ToLongFunction<Object> estimator) {
+            this.estimator = estimator;
+            return this;
+        }
+
+        /**
+         * @param listener notified of evicted entries
+         * @return this builder
+         */
+        public Builder listener(EvictionListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * @return limits
+         */
+        public StashLimits build() {
+            return new StashLimits(this);
+        }
+    }
+}
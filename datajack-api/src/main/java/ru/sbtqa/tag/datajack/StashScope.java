@@ -0,0 +1,303 @@
+package ru.sbtqa.tag.datajack;
+
+import ru.sbtqa.tag.datajack.exceptions.StashKeyNotFoundException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Stash shared by all threads, see {@link Stash#global()} and
+ * {@link Stash#group(String)}. Values are kept in a
+ * {@link ConcurrentHashMap}, so reads never block. Writes lock one of the
+ * stripes the keys are spread over, so workers writing different keys rarely
+ * wait for each other, and compound operations like
+ * {@link #computeIfAbsent(String, Function)} are atomic per key. As with
+ * {@link ConcurrentHashMap#computeIfAbsent(Object, Function)}, functions run
+ * under the lock: they may read any scope, but writing one from a function
+ * throws {@link IllegalStateException}, since two such functions could wait
+ * for each other's stripes
+ */
+public final class StashScope {
+
+    /**
+     * System property to set number of lock stripes of a scope, rounded up to
+     * a power of two
+     */
+    public static final String STRIPES_PROPERTY = "datajack.stash.stripes";
+
+    private static final StashScope GLOBAL = new StashScope("global");
+    private static final ConcurrentMap<String, StashScope> GROUPS = new ConcurrentHashMap<>();
+    private static final Object NULL = new Object();
+    private static final ThreadLocal<Boolean> IN_FUNCTION = new ThreadLocal<>();
+
+    private final String name;
+    private final ConcurrentHashMap<String, Object> values = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder contentions = new LongAdder();
+
+    private StashScope(String name) {
+        this.name = name;
+        int count = Integer.highestOneBit(Math.max(1,
+                Integer.getInteger(STRIPES_PROPERTY, Runtime.getRuntime().availableProcessors() * 4) - 1) << 1);
+        stripes = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * @return scope shared by all threads
+     */
+    static StashScope global() {
+        return GLOBAL;
+    }
+
+    /**
+     * @param name group name
+     * @return scope of group, created on first use
+     */
+    static StashScope group(String name) {
+        return GROUPS.computeIfAbsent(name, StashScope::new);
+    }
+
+    /**
+     * @param name group name
+     * @return removed scope of group or null
+     */
+    static StashScope removeGroup(String name) {
+        return GROUPS.remove(name);
+    }
+
+    /**
+     * @return scope name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Puts value in scope
+     *
+     * @param key the key as a {@link java.lang.String} object
+     * @param value Any object
+     */
+    public void put(String key, Object value) {
+        ReentrantLock lock = lock(key);
+        try {
+            values.put(key, mask(value));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets a value by key
+     *
+     * @param <T> the type to return
+     * @param key the key as a {@link java.lang.String} object
+     * @return an object found by specified key
+     */
+    public <T> T getValue(String key) {
+        Object value = values.get(key);
+        if (value == null) {
+            throw new StashKeyNotFoundException(String.format("Key '%s' not found in stash scope %s", key, name));
+        }
+        return unmask(value);
+    }
+
+    /**
+     * @param key the key as a {@link java.lang.String} object
+     * @return true if scope has value of key
+     */
+    public boolean containsKey(String key) {
+        return values.containsKey(key);
+    }
+
+    /**
+     * Removes value from scope
+     *
+     * @param <T> the type to return
+     * @param key the key as a {@link java.lang.String} object
+     * @return an object removed by specified key
+     */
+    public <T> T remove(String key) {
+        ReentrantLock lock = lock(key);
+        try {
+            return unmask(values.remove(key));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Puts value if scope has no value of key
+     *
+     * @param <T> the type to return
+     * @param key the key as a {@link java.lang.String} object
+     * @param value Any object
+     * @return previous value, or null if value was put
+     */
+    public <T> T putIfAbsent(String key, Object value) {
+        ReentrantLock lock = lock(key);
+        try {
+            return unmask(values.putIfAbsent(key, mask(value)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets value of key, computing and putting it once if scope has none,
+     * e.g. a token shared by all workers
+     *
+     * @param <T> the type to return
+     * @param key the key as a {@link java.lang.String} object
+     * @param function computes value from key
+     * @return current or computed value
+     */
+    public <T> T computeIfAbsent(String key, Function<String, ? extends T> function) {
+        Object value = values.get(key);
+        if (value != null) {
+            return unmask(value);
+        }
+        ReentrantLock lock = lock(key);
+        try {
+            value = values.get(key);
+            if (value != null) {
+                return unmask(value);
+            }
+            T computed = apply(() -> function.apply(key));
+            values.put(key, mask(computed));
+            return computed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces value of key by result of function, atomically for the key,
+     * e.g. to add an id to a shared list
+     *
+     * @param <T> the type to return
+     * @param key the key as a {@link java.lang.String} object
+     * @param function computes value from key and current value, null if scope
+     * has none
+     * @return computed value
+     */
+    public <T> T compute(String key, BiFunction<String, ? super T, ? extends T> function) {
+        ReentrantLock lock = lock(key);
+        try {
+            T computed = apply(() -> function.apply(key, unmask(values.get(key))));
+            values.put(key, mask(computed));
+            return computed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return copy of values of scope
+     */
+    public Map<String, Object> asMap() {
+        Map<String, Object> copy = new HashMap<>();
+        values.forEach((key, value) -> copy.put(key, unmask(value)));
+        return copy;
+    }
+
+    /**
+     * @return number of values
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Clear scope, waiting for writes in progress
+     */
+    public void clear() {
+        checkNotInFunction();
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+        try {
+            values.clear();
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                stripes[i].unlock();
+            }
+        }
+    }
+
+    /**
+     * @return number of writes since creation or {@link #resetCounters()}
+     */
+    public long getWrites() {
+        return writes.sum();
+    }
+
+    /**
+     * @return number of writes that waited for another thread holding their
+     * stripe
+     */
+    public long getContentions() {
+        return contentions.sum();
+    }
+
+    /**
+     * Reset writes and contentions
+     */
+    public void resetCounters() {
+        writes.reset();
+        contentions.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StashScope %s: %d values, %d writes, %d contended", name, size(), getWrites(),
+                getContentions());
+    }
+
+    private static <T> T apply(Supplier<T> function) {
+        IN_FUNCTION.set(Boolean.TRUE);
+        try {
+            return function.get();
+        } finally {
+            IN_FUNCTION.remove();
+        }
+    }
+
+    private static void checkNotInFunction() {
+        if (IN_FUNCTION.get() != null) {
+            throw new IllegalStateException("Stash scope functions must not write to stash scopes");
+        }
+    }
+
+    private ReentrantLock lock(String key) {
+        checkNotInFunction();
+        int hash = key.hashCode();
+        ReentrantLock lock = stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+        writes.increment();
+        if (!lock.tryLock()) {
+            contentions.increment();
+            lock.lock();
+        }
+        return lock;
+    }
+
+    private static Object mask(Object value) {
+        return value == null ? NULL : value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T unmask(Object value) {
+        return value == NULL ? null : (T) value;
+    }
+}
@@ -2,12 +2,25 @@ package ru.sbtqa.tag.datajack;
 
 import ru.sbtqa.tag.datajack.callback.GeneratorCallback;
 import ru.sbtqa.tag.datajack.exceptions.DataException;
+import ru.sbtqa.tag.datajack.exceptions.DataParseException;
+import ru.sbtqa.tag.datajack.providers.AsyncDataProvider;
 
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+import static java.lang.String.format;
+
+/**
+ * Access to test data collections. Navigation methods never change the
+ * provider they are called on and return new providers instead, so a loaded
+ * and configured provider can be shared between threads
+ */
 public interface TestDataProvider {
 
     /**
@@ -45,6 +58,105 @@ public interface TestDataProvider {
      */
     String getValue() throws DataException;
 
+    /**
+     * Get value of current test data object as int. Numeric values are
+     * returned as is, string values are parsed. The default implementation
+     * parses {@link #getValue()}
+     *
+     * @return int value
+     * @throws DataException if there is no value or it is not an int
+     */
+    default int getInt() throws DataException {
+        String value = getValue();
+        try {
+            return Integer.parseInt(String.valueOf(value).trim());
+        } catch (NumberFormatException e) {
+            throw new DataParseException(format("Value \"%s\" is not an int", value), e);
+        }
+    }
+
+    /**
+     * Get value of current test data object as long. Numeric values are
+     * returned as is, string values are parsed. The default implementation
+     * parses {@link #getValue()}
+     *
+     * @return long value
+     * @throws DataException if there is no value or it is not a long
+     */
+    default long getLong() throws DataException {
+        String value = getValue();
+        try {
+            return Long.parseLong(String.valueOf(value).trim());
+        } catch (NumberFormatException e) {
+            throw new DataParseException(format("Value \"%s\" is not a long", value), e);
+        }
+    }
+
+    /**
+     * Get value of current test data object as double. Numeric values are
+     * returned as is, string values are parsed. The default implementation
+     * parses {@link #getValue()}
+     *
+     * @return double value
+     * @throws DataException if there is no value or it is not a number
+     */
+    default double getDouble() throws DataException {
+        String value = getValue();
+        try {
+            return Double.parseDouble(String.valueOf(value).trim());
+        } catch (NumberFormatException e) {
+            throw new DataParseException(format("Value \"%s\" is not a number", value), e);
+        }
+    }
+
+    /**
+     * Get value of current test data object as boolean. Boolean values are
+     * returned as is, "true" and "false" strings are parsed ignoring case.
+     * The default implementation parses {@link #getValue()}
+     *
+     * @return boolean value
+     * @throws DataException if there is no value or it is not a boolean
+     */
+    default boolean getBoolean() throws DataException {
+        String value = String.valueOf(getValue()).trim();
+        if ("true".equalsIgnoreCase(value)) {
+            return true;
+        } else if ("false".equalsIgnoreCase(value)) {
+            return false;
+        }
+        throw new DataParseException(format("Value \"%s\" is not a boolean", value));
+    }
+
+    /**
+     * Get array value of current test data object. Not supported by default
+     *
+     * @return unmodifiable list of array elements
+     * @throws DataException if there is no value or it is not an array
+     */
+    default List<Object> getList() throws DataException {
+        throw new DataException(format("Arrays are not supported by %s", getClass().getName()));
+    }
+
+    /**
+     * Get values by several paths at once. Each collection is loaded once,
+     * common path prefixes are walked once and each referenced target is
+     * resolved once per call. The default implementation resolves paths one
+     * by one with {@link #getByPath(String)}
+     *
+     * @param paths paths like $Collection{path.to.smth} or ${path.to.smth} relative to current collection
+     * @return values by path in order of the given paths
+     * @throws DataException if some value could not be resolved
+     */
+    default Map<String, String> getValues(Collection<String> paths) throws DataException {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String path : paths) {
+            if (!values.containsKey(path)) {
+                values.put(path, getByPath(path).getValue());
+            }
+        }
+        return values;
+    }
+
     /**
      * Check value is reference
      *
@@ -62,12 +174,38 @@ public interface TestDataProvider {
     TestDataProvider getReference() throws DataException;
 
     /**
-     * Apply generator callback
+     * Apply generator callback. Providers created from this one inherit the
+     * callback, so apply it before sharing provider between threads. The class
+     * is instantiated once, on first generated value, and the instance is
+     * shared by all providers created from this one
      *
      * @param callback Generator callback class
      */
     void applyGenerator(Class<? extends GeneratorCallback> callback);
 
+    /**
+     * Apply generator callback instance. The instance is shared by all
+     * providers created from this one, see {@link GeneratorCallback} for
+     * thread safety requirements
+     *
+     * @param callback Generator callback instance
+     */
+    default void applyGeneratorInstance(GeneratorCallback callback) {
+        applyGeneratorSupplier(() -> callback);
+    }
+
+    /**
+     * Apply generator callback supplier. Supplier is called once, on first
+     * generated value, and the instance is shared by all providers created
+     * from this one. Not supported by default
+     *
+     * @param callback Generator callback supplier
+     * @throws UnsupportedOperationException if the provider only accepts callback classes
+     */
+    default void applyGeneratorSupplier(Supplier<? extends GeneratorCallback> callback) {
+        throw new UnsupportedOperationException(format("Generator suppliers are not supported by %s", getClass().getName()));
+    }
+
     /**
      * Get map representation of TestDataProvider
      *
@@ -77,13 +215,72 @@ public interface TestDataProvider {
     Map toMap() throws DataException;
 
     /**
-     * Get set of keys from TestDataProvider
+     * Get set of keys from TestDataProvider. The set is a read-only view,
+     * keys are not copied
      *
      * @return set of keys
      * @throws DataException if not initialized yet
      */
     Set<String> getKeySet() throws DataException;
 
+    /**
+     * Lazily enumerate keys of all values under the given pattern, e.g.
+     * {@code users.*.address} or {@code users[*].address}. {@code *} matches
+     * any field and {@code [*]} any array element. Matched objects are
+     * expanded to the keys of their values, references are reported as values.
+     * Returned keys are relative to this TestDataProvider and can be passed to
+     * {@link #get(String)}. Not supported by default
+     *
+     * @param pattern dotted pattern, empty to enumerate all keys
+     * @return keys in document order, nothing if pattern matches nothing
+     * @throws DataException if not initialized yet
+     */
+    default Iterable<String> scanPaths(String pattern) throws DataException {
+        throw new DataException(format("Path scan is not supported by %s", getClass().getName()));
+    }
+
+    /**
+     * Start query over records of an array, e.g.
+     * {@code query("users").where("status", "ACTIVE").find()}. Not supported
+     * by default
+     *
+     * @param arrayKey key of array
+     * @return query matching all records of the array
+     * @throws DataException if there is no such key or it is not an array
+     */
+    default Query query(String arrayKey) throws DataException {
+        throw new DataException(format("Queries are not supported by %s", getClass().getName()));
+    }
+
+    /**
+     * Lazily stream elements of an array. Elements are read from the array
+     * itself, without copying it, and a TestDataProvider is created per
+     * element only when the element is consumed. The stream is sequential,
+     * call {@link Stream#parallel()} to split it between threads. Errors
+     * while resolving elements are thrown as
+     * {@link ru.sbtqa.tag.datajack.exceptions.UncheckedDataException}. Not
+     * supported by default
+     *
+     * @param arrayKey key of array
+     * @return stream of array elements in array order
+     * @throws DataException if there is no such key or it is not an array
+     */
+    default Stream<TestDataProvider> stream(String arrayKey) throws DataException {
+        throw new DataException(format("Streams are not supported by %s", getClass().getName()));
+    }
+
+    /**
+     * Get non-blocking view of this TestDataProvider. Lookups of the view run
+     * on the given executor, so lookups that wait on I/O can be issued
+     * concurrently
+     *
+     * @param executor runs lookups, e.g. a fixed thread pool
+     * @return asynchronous provider
+     */
+    default AsyncTestDataProvider async(Executor executor) {
+        return new AsyncDataProvider(this, executor);
+    }
+
     /**
      * Get list of values as Objects from TestDataProvider
      *
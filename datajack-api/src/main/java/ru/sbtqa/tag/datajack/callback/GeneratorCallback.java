@@ -1,5 +1,11 @@
 package ru.sbtqa.tag.datajack.callback;
 
+/**
+ * Generator of test data values. One callback instance serves a whole tree of
+ * providers created from the one it was applied to, and providers may be shared
+ * between threads, so implementations must be thread-safe: keep no mutable
+ * state in fields, or guard it
+ */
 public interface GeneratorCallback extends Callback<CallbackData, Object> {
 
     /**
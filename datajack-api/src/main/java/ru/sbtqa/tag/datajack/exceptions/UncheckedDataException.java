@@ -0,0 +1,17 @@
+package ru.sbtqa.tag.datajack.exceptions;
+
+/**
+ * Wraps {@link DataException} thrown where checked exceptions are not
+ * allowed, e.g. inside of streams
+ */
+public class UncheckedDataException extends RuntimeException {
+
+    public UncheckedDataException(DataException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized DataException getCause() {
+        return (DataException) super.getCause();
+    }
+}
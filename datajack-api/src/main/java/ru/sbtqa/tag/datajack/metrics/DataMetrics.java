@@ -0,0 +1,18 @@
+package ru.sbtqa.tag.datajack.metrics;
+
+/**
+ * Receiver of operation timings, see {@link Metrics}. Operations are recorded
+ * concurrently from all threads that use providers, so implementations must be
+ * thread-safe
+ */
+public interface DataMetrics {
+
+    /**
+     * Record one finished operation. Failed operations are recorded as well
+     *
+     * @param operation timed operation
+     * @param collectionName collection the operation was performed on
+     * @param nanos duration in nanoseconds
+     */
+    void record(Operation operation, String collectionName, long nanos);
+}
@@ -0,0 +1,176 @@
+package ru.sbtqa.tag.datajack.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link DataMetrics} keeping count and latency histogram of every operation
+ * per collection in memory. Histograms have power of two buckets, so
+ * percentiles are reported as upper bounds within a factor of two
+ */
+public final class InMemoryMetrics implements DataMetrics {
+
+    private static final String REPORT_FORMAT = "%-14s %-30s %10s %12s %12s %12s %12s %12s%n";
+
+    private final ConcurrentMap<Key, Histogram> histograms = new ConcurrentHashMap<>();
+
+    @Override
+    public void record(Operation operation, String collectionName, long nanos) {
+        histograms.computeIfAbsent(new Key(operation, collectionName), key -> new Histogram()).record(nanos);
+    }
+
+    /**
+     * @param operation timed operation
+     * @param collectionName collection name
+     * @return number of recorded operations
+     */
+    public long getCount(Operation operation, String collectionName) {
+        Histogram histogram = histograms.get(new Key(operation, collectionName));
+        return histogram == null ? 0 : histogram.count.sum();
+    }
+
+    /**
+     * @param operation timed operation
+     * @return number of recorded operations over all collections
+     */
+    public long getCount(Operation operation) {
+        return histograms.entrySet().stream()
+                .filter(entry -> entry.getKey().operation == operation)
+                .mapToLong(entry -> entry.getValue().count.sum())
+                .sum();
+    }
+
+    /**
+     * @param operation timed operation
+     * @param collectionName collection name
+     * @param percentile percentile from 0 to 100
+     * @return upper bound of percentile latency in nanoseconds, zero if nothing is recorded
+     */
+    public long getPercentile(Operation operation, String collectionName, double percentile) {
+        Histogram histogram = histograms.get(new Key(operation, collectionName));
+        return histogram == null ? 0 : histogram.percentile(percentile);
+    }
+
+    /**
+     * Drop all recorded operations
+     */
+    public void reset() {
+        histograms.clear();
+    }
+
+    /**
+     * @return table of operations by collection with count, total, mean,
+     * median, 99th percentile and maximum latency in microseconds
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder(String.format(REPORT_FORMAT,
+                "operation", "collection", "count", "total us", "mean us", "p50 us", "p99 us", "max us"));
+        histograms.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(Comparator
+                        .comparing((Key key) -> key.operation)
+                        .thenComparing(key -> String.valueOf(key.collectionName))))
+                .forEach(entry -> {
+                    Histogram histogram = entry.getValue();
+                    long count = histogram.count.sum();
+                    long total = histogram.total.sum();
+                    report.append(String.format(REPORT_FORMAT,
+                            entry.getKey().operation, entry.getKey().collectionName, count,
+                            micros(total), micros(count == 0 ? 0 : total / count),
+                            micros(histogram.percentile(50)), micros(histogram.percentile(99)),
+                            micros(histogram.max.get())));
+                });
+        return report.toString();
+    }
+
+    /**
+     * Write {@link #report()} to the file when JVM exits
+     *
+     * @param file report file
+     */
+    public void reportOnExit(Path file) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                Files.write(file, report().getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, "datajack-metrics-report"));
+    }
+
+    @Override
+    public String toString() {
+        return report();
+    }
+
+    private static String micros(long nanos) {
+        return String.format("%.1f", nanos / 1000.0);
+    }
+
+    private static final class Histogram {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+        // Bucket i holds latencies below 2^i nanoseconds
+        private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+
+        private void record(long nanos) {
+            long value = Math.max(nanos, 0);
+            count.increment();
+            total.add(value);
+            max.accumulate(value);
+            buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(value));
+        }
+
+        private long percentile(double percentile) {
+            long rank = (long) Math.ceil(count.sum() * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank && seen > 0) {
+                    return Math.min(i == 0 ? 0 : (1L << i) - 1, max.get());
+                }
+            }
+            return max.get();
+        }
+    }
+
+    private static final class Key {
+
+        private final Operation operation;
+        private final String collectionName;
+
+        private Key(Operation operation, String collectionName) {
+            this.operation = operation;
+            this.collectionName = collectionName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return operation == key.operation && Objects.equals(collectionName, key.collectionName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(operation, collectionName);
+        }
+    }
+}
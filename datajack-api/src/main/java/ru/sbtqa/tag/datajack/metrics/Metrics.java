@@ -0,0 +1,86 @@
+package ru.sbtqa.tag.datajack.metrics;
+
+import java.util.Iterator;
+import java.util.ServiceLoader;
+
+/**
+ * Process-wide {@link DataMetrics} used by providers. Nothing is recorded by
+ * default, and operations are not even timed then. Metrics are installed with
+ * {@link #install(DataMetrics)}, by class name in {@link #METRICS_PROPERTY}
+ * system property or as a {@link ServiceLoader} service, in this order.
+ * <p>
+ * Callers time operations as
+ * <pre>{@code
+ * long start = Metrics.start();
+ * try {
+ *     ...
+ * } finally {
+ *     Metrics.stop(Operation.GET, collectionName, start);
+ * }
+ * }</pre>
+ */
+public final class Metrics {
+
+    /**
+     * System property with class name of {@link DataMetrics} implementation
+     * to install on startup. The class must have a public no-arg constructor
+     */
+    public static final String METRICS_PROPERTY = "datajack.metrics";
+
+    private static final long DISABLED = Long.MIN_VALUE;
+
+    private static volatile DataMetrics metrics = load();
+
+    private Metrics() {
+    }
+
+    /**
+     * Replace process-wide metrics
+     *
+     * @param metrics metrics to record to, null to stop recording
+     */
+    public static void install(DataMetrics metrics) {
+        Metrics.metrics = metrics;
+    }
+
+    /**
+     * @return installed metrics or null if nothing is recorded
+     */
+    public static DataMetrics get() {
+        return metrics;
+    }
+
+    /**
+     * @return start time to pass to {@link #stop(Operation, String, long)}
+     */
+    public static long start() {
+        return metrics == null ? DISABLED : System.nanoTime();
+    }
+
+    /**
+     * Record operation started with {@link #start()}
+     *
+     * @param operation timed operation
+     * @param collectionName collection the operation was performed on
+     * @param start start time
+     */
+    public static void stop(Operation operation, String collectionName, long start) {
+        DataMetrics current = metrics;
+        if (start != DISABLED && current != null) {
+            current.record(operation, collectionName, System.nanoTime() - start);
+        }
+    }
+
+    private static DataMetrics load() {
+        String className = System.getProperty(METRICS_PROPERTY);
+        if (className != null && !className.isEmpty()) {
+            try {
+                return Class.forName(className).asSubclass(DataMetrics.class).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                throw new IllegalStateException("Could not create metrics " + className, e);
+            }
+        }
+        Iterator<DataMetrics> services = ServiceLoader.load(DataMetrics.class).iterator();
+        return services.hasNext() ? services.next() : null;
+    }
+}
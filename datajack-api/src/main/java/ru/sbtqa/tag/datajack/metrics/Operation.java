@@ -0,0 +1,37 @@
+package ru.sbtqa.tag.datajack.metrics;
+
+/**
+ * Timed datajack operation
+ */
+public enum Operation {
+
+    /**
+     * Reading collection from file or database
+     */
+    READ,
+
+    /**
+     * Parsing read collection into objects
+     */
+    PARSE,
+
+    /**
+     * Getting sub-object by key
+     */
+    GET,
+
+    /**
+     * Following a reference
+     */
+    GET_REFERENCE,
+
+    /**
+     * Resolving references and generated values of a whole object
+     */
+    RESOLVE,
+
+    /**
+     * Applying generator callback to a value
+     */
+    GENERATE
+}
@@ -3,25 +3,33 @@ package ru.sbtqa.tag.datajack.providers;
 import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
-import com.mongodb.util.JSON;
 import org.bson.BasicBSONObject;
+import ru.sbtqa.tag.datajack.AsyncTestDataProvider;
+import ru.sbtqa.tag.datajack.Query;
 import ru.sbtqa.tag.datajack.TestDataProvider;
 import ru.sbtqa.tag.datajack.callback.CallbackData;
 import ru.sbtqa.tag.datajack.callback.GeneratorCallback;
 import ru.sbtqa.tag.datajack.exceptions.CyclicReferencesException;
 import ru.sbtqa.tag.datajack.exceptions.DataException;
-import ru.sbtqa.tag.datajack.exceptions.FieldNotFoundException;
+import ru.sbtqa.tag.datajack.exceptions.DataParseException;
 import ru.sbtqa.tag.datajack.exceptions.GeneratorException;
 import ru.sbtqa.tag.datajack.exceptions.ReferenceException;
+import ru.sbtqa.tag.datajack.exceptions.ValueNotFoundException;
+import ru.sbtqa.tag.datajack.metrics.Metrics;
+import ru.sbtqa.tag.datajack.metrics.Operation;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static java.lang.String.format;
 
@@ -30,22 +38,30 @@ public abstract class AbstractDataProvider implements TestDataProvider {
     protected static final String VALUE_TPL = "value";
     protected static final String COLLECTION_TPL = "collection";
 
-    private static final String ARRAY_MATCHER_REGEX = "(.+\\[\\d+\\])";
     private static final String NOT_INITIALIZED_EXCEPTION = "BasicDBObject is not initialized yet. Try to get some path first.";
+    private static final String WRONG_TYPE_EXCEPTION = "Value \"%s\" on path \"%s\" is not %s";
     public static final String COLLECTION_PARSE_REGEX = "\\$([^\\{]+)";
     public static final String PATH_PARSE_REGEX = "(?:\\$([^\\{]+)?(\\{([^\\}]+)\\}))";
+    /**
+     * System property to override maximum length of a reference chain
+     */
+    public static final String REFERENCE_DEPTH_PROPERTY = "datajack.reference.depth";
 
     protected BasicDBObject basicObject;
     protected String collectionName;
     protected String way;
     protected String path;
-    protected Class<? extends GeneratorCallback> callback;
+    /**
+     * Class of applied generator callback, if it is known before the callback is created
+     */
+    protected volatile Class<? extends GeneratorCallback> callback;
+    private volatile CallbackSource generator;
+    /**
+     * @deprecated cycles are detected by the chain of resolved references, root object is not used anymore
+     */
+    @Deprecated
     protected BasicDBObject rootObject;
 
-    private static boolean isArray(String key) {
-        return key.matches(ARRAY_MATCHER_REGEX);
-    }
-
     /**
      * Internal use only for provider overriding purposes
      *
@@ -87,9 +103,19 @@ public abstract class AbstractDataProvider implements TestDataProvider {
         if (key.isEmpty()) {
             return this;
         }
-        this.way = key;
-        return key.contains(".") ? getComplex(key) : getSimple(key);
+        return get(CompiledPath.compile(key));
+    }
 
+    private TestDataProvider get(CompiledPath compiledPath) throws DataException {
+        long start = Metrics.start();
+        NavigationCursor cursor = NavigationCursor.acquire(this);
+        try {
+            cursor.get(compiledPath);
+            return cursor.materialize();
+        } finally {
+            cursor.release();
+            Metrics.stop(Operation.GET, collectionName, start);
+        }
     }
 
     /**
@@ -103,6 +129,59 @@ public abstract class AbstractDataProvider implements TestDataProvider {
         return parseTestDataProvider(path);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, String> getValues(Collection<String> paths) throws DataException {
+        Map<String, String> values = new LinkedHashMap<>();
+        BatchContext batch = new BatchContext();
+
+        for (String path : paths) {
+            if (values.containsKey(path)) {
+                continue;
+            }
+            if (path == null) {
+                throw new DataException("The path is null. Check your configuration");
+            }
+            CompiledPath compiledPath = CompiledPath.compileExpression(path);
+            if (compiledPath == null) {
+                throw new DataException(format("Could not parse path %s", path));
+            }
+
+            AbstractDataProvider provider;
+            if (compiledPath.getCollection() != null) {
+                provider = batch.getCollection(this, compiledPath.getCollection());
+            } else if (this.collectionName == null) {
+                throw new DataException("Trying to parse object with uninitialized collection.");
+            } else {
+                provider = this;
+            }
+            values.put(path, compiledPath.isCollectionOnly() ? provider.getValue() : provider.getValue(compiledPath, batch));
+        }
+        return values;
+    }
+
+    private String getValue(CompiledPath compiledPath, BatchContext batch) throws DataException {
+        BasicDBObject object;
+        String objectWay;
+        String objectPath;
+        NavigationCursor cursor = NavigationCursor.acquire(this);
+        try {
+            cursor.setBatch(batch);
+            cursor.get(compiledPath);
+            while (cursor.isReference()) {
+                cursor.followReference();
+            }
+            object = cursor.getObject();
+            objectWay = cursor.getWay();
+            objectPath = cursor.getPath();
+        } finally {
+            cursor.release();
+        }
+        return getValue(object, objectWay, objectPath);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -119,19 +198,210 @@ public abstract class AbstractDataProvider implements TestDataProvider {
      */
     @Override
     public Set<String> getKeySet() throws DataException {
+        BasicDBObject object = getKeyedObject();
+        return object == null ? Collections.emptySet() : Collections.unmodifiableSet(object.keySet());
+    }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<String> scanPaths(String pattern) throws DataException {
+        BasicDBObject object = getKeyedObject();
+        if (object == null) {
+            return Collections.emptyList();
+        }
+        return () -> new PathScanner(object, pattern, this::isReference);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Query query(String arrayKey) throws DataException {
+        return new ArrayQuery(getArrayProvider(arrayKey));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<TestDataProvider> stream(String arrayKey) throws DataException {
+        return StreamSupport.stream(new ArraySpliterator(getArrayProvider(arrayKey)), false);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncTestDataProvider async(Executor executor) {
+        return new AsyncDataProvider(this, executor);
+    }
+
+    private AbstractDataProvider getArrayProvider(String arrayKey) throws DataException {
+        AbstractDataProvider array = (AbstractDataProvider) get(arrayKey);
+        if (array.isReference()) {
+            array = (AbstractDataProvider) array.getReference();
+        }
+        if (array.getArray() == null) {
+            throw new DataException(format("%s.%s is not an array!", collectionName, arrayKey));
+        }
+        return array;
+    }
+
+    /**
+     * @return array current node points to or null if it is not an array
+     */
+    BasicDBList getArray() {
+        String name = getArrayName();
+        Object list = name == null ? null : basicObject.get(name);
+        return list instanceof BasicDBList ? (BasicDBList) list : null;
+    }
+
+    /**
+     * @return name of field current node is stored in
+     */
+    String getArrayName() {
+        return NavigationCursor.tail(way);
+    }
+
+    /**
+     * Get element of array current node points to, the same way
+     * {@code get("name[index]")} does, without parsing the key
+     *
+     * @param index element index
+     * @param element element value
+     * @return element provider
+     * @throws DataException if element is a reference that could not be resolved
+     */
+    TestDataProvider getElement(int index, Object element) throws DataException {
+        NavigationCursor cursor = NavigationCursor.acquire(this);
+        try {
+            cursor.getElement(getArrayName(), index, element);
+            return cursor.materialize();
+        } finally {
+            cursor.release();
+        }
+    }
+
+    /**
+     * Get object whose keys belong to current node: the node itself or the
+     * object its reference points to
+     *
+     * @return keyed object or null if current node is a value
+     * @throws DataException if not initialized or reference could not be resolved
+     */
+    private BasicDBObject getKeyedObject() throws DataException {
         if (basicObject == null) {
             throw new DataException(NOT_INITIALIZED_EXCEPTION);
-        } else if (way != null && basicObject.toMap().containsKey(getWayTail()) &&
+        } else if (way != null && basicObject.containsField(NavigationCursor.tail(way)) &&
                 !(basicObject.get(way) instanceof BasicDBObject)) {
-            return new HashSet<>();
+            return null;
         }
         if (isReference()) {
-            rootObject = null;
-            return getReference().toMap().keySet();
-        } else {
-            return basicObject.keySet();
+            NavigationCursor cursor = NavigationCursor.acquire(this);
+            try {
+                cursor.followReference();
+                return cursor.getObject();
+            } finally {
+                cursor.release();
+            }
+        }
+        return basicObject;
+    }
+
+    /**
+     * Build flattened index of current collection, so dotted keys are looked
+     * up with a single hash probe instead of walking the tree. The index is
+     * kept in {@link PathIndexCache} until the collection is reloaded
+     *
+     * @param parallel whether to build the index in parallel
+     * @return index of current collection
+     * @throws DataException if collection could not be loaded
+     */
+    public PathIndex indexPaths(boolean parallel) throws DataException {
+        if (basicObject == null) {
+            throw new DataException(NOT_INITIALIZED_EXCEPTION);
+        }
+        BasicDBObject root = way == null ? basicObject : getCollectionObject(collectionName);
+        return PathIndexCache.getInstance().index(collectionName, root, this::isReference, parallel);
+    }
+
+    /**
+     * Copy current object replacing every reference with a copy of the node
+     * it points to. Generators are not applied
+     *
+     * @return reference-free copy of current object
+     * @throws DataException if some reference is broken or cyclic
+     */
+    public BasicDBObject toResolvedObject() throws DataException {
+        if (basicObject == null) {
+            throw new DataException(NOT_INITIALIZED_EXCEPTION);
+        }
+        Object resolved = resolveReferences(basicObject, collectionName,
+                Collections.newSetFromMap(new IdentityHashMap<>()));
+        if (!(resolved instanceof BasicDBObject)) {
+            resolved = new BasicDBObject(VALUE_TPL, resolved);
+        }
+        return (BasicDBObject) resolved;
+    }
+
+    private Object resolveReferences(Object node, String collection, Set<Object> inProgress) throws DataException {
+        if (node instanceof BasicDBList) {
+            BasicDBList copy = new BasicDBList();
+            for (Object element : (BasicDBList) node) {
+                copy.add(resolveReferences(element, collection, inProgress));
+            }
+            return copy;
+        } else if (!(node instanceof BasicDBObject)) {
+            return node;
+        }
+
+        BasicDBObject object = (BasicDBObject) node;
+        Object target = object;
+        String targetCollection = collection;
+        if (isReference(object)) {
+            NavigationCursor cursor = NavigationCursor.acquire(this);
+            try {
+                cursor.reset(object, null, collection);
+                do {
+                    cursor.followReference();
+                } while (cursor.isReference());
+                target = getReferencedNode(cursor.getObject(), cursor.getWay());
+                targetCollection = cursor.getCollection();
+            } finally {
+                cursor.release();
+            }
+            if (!(target instanceof BasicDBObject)) {
+                return resolveReferences(target, targetCollection, inProgress);
+            }
         }
+
+        if (!inProgress.add(target)) {
+            throw new CyclicReferencesException("Cyclic references in database:\n" + object.toJson());
+        }
+        try {
+            BasicDBObject source = (BasicDBObject) target;
+            BasicDBObject copy = new BasicDBObject();
+            for (String key : source.keySet()) {
+                copy.put(key, resolveReferences(source.get(key), targetCollection, inProgress));
+            }
+            return copy;
+        } finally {
+            inProgress.remove(target);
+        }
+    }
+
+    /**
+     * Get node cursor points to: leaf value if cursor stopped at its parent,
+     * the object itself otherwise
+     */
+    private static Object getReferencedNode(BasicDBObject object, String way) {
+        String tail = NavigationCursor.tail(way);
+        if (tail != null && object.containsField(tail) && !(object.get(tail) instanceof BasicDBObject)) {
+            return object.get(tail);
+        }
+        return object;
     }
 
     /**
@@ -158,9 +428,7 @@ public abstract class AbstractDataProvider implements TestDataProvider {
         for (Object value : values) {
             if (value instanceof String
                     || value instanceof Character
-                    || value instanceof Integer
-                    || value instanceof Float
-                    || value instanceof Double
+                    || value instanceof Number
                     || value instanceof Boolean) {
                 strings.add(value.toString());
             } else if (value == null) {
@@ -174,173 +442,243 @@ public abstract class AbstractDataProvider implements TestDataProvider {
         return strings;
     }
 
-    private TestDataProvider getSimple(String key) throws DataException {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return this.basicObject == null ? "" : this.basicObject.toString();
+    }
 
-        AbstractDataProvider dataProvider = createInstance(parseSimpleResult(key), this.collectionName, this.way);
-        dataProvider.applyGenerator(this.callback);
+    /**
+     * Set path of the object, used as generator cache key
+     *
+     * @param rootObject kept for compatibility, not used for cycle detection
+     * @param path path of the object
+     */
+    public void setRootObject(BasicDBObject rootObject, String path) {
+        this.rootObject = rootObject;
+        this.path = path;
+    }
 
-        String rootObjValue;
-        if (this.path != null) {
-            rootObjValue = this.path + "." + key;
-        } else {
-            rootObjValue = this.collectionName + "." + key;
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getValue() throws DataException {
+        if (!this.isReference()) {
+            return getValue(this.basicObject, this.way, this.path);
         }
-        dataProvider.setRootObject(this.rootObject, rootObjValue);
-        if (dataProvider.isReference()) {
-            return dataProvider.getReference();
+
+        BasicDBObject object;
+        String objectWay;
+        String objectPath;
+        NavigationCursor cursor = NavigationCursor.acquire(this);
+        try {
+            do {
+                cursor.followReference();
+            } while (cursor.isReference());
+            object = cursor.getObject();
+            objectWay = cursor.getWay();
+            objectPath = cursor.getPath();
+        } finally {
+            cursor.release();
         }
-        return dataProvider;
+        return getValue(object, objectWay, objectPath);
     }
 
-    private BasicDBObject parseSimpleResult(String key) throws DataException {
-        Object result;
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getInt() throws DataException {
+        long value = getLong();
+        if (value != (int) value) {
+            throw new DataParseException(format(WRONG_TYPE_EXCEPTION, value, this.path, "an int"));
+        }
+        return (int) value;
+    }
 
-        if (isArray(key)) {
-            result = parseArray(basicObject, key);
-        } else {
-            if (!basicObject.containsField(key)) {
-                throw new FieldNotFoundException(format("Collection \"%s\" doesn't contain \"%s\" field in path \"%s\"",
-                        this.collectionName, key, this.path));
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLong() throws DataException {
+        Object value = getPrimitiveValue();
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Number) {
+            double number = ((Number) value).doubleValue();
+            if (number != Math.rint(number) || Math.abs(number) >= 0x1p63) {
+                throw new DataParseException(format(WRONG_TYPE_EXCEPTION, value, this.path, "a long"));
             }
-            result = this.basicObject.get(key);
+            return (long) number;
         }
-        if (!(result instanceof BasicDBObject)) {
-            result = new BasicDBObject(key, result);
+        try {
+            return Long.parseLong(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new DataParseException(format(WRONG_TYPE_EXCEPTION, value, this.path, "a long"), e);
         }
-        return (BasicDBObject) result;
     }
 
-    private TestDataProvider getComplex(String key) throws DataException {
-
-        AbstractDataProvider dataProvider = createInstance(parseComplexDBObject(key), this.collectionName, this.way);
-        dataProvider.applyGenerator(this.callback);
-        dataProvider.setRootObject(this.rootObject, this.collectionName + "." + key);
-
-        return dataProvider;
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getDouble() throws DataException {
+        Object value = getPrimitiveValue();
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        try {
+            return Double.parseDouble(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new DataParseException(format(WRONG_TYPE_EXCEPTION, value, this.path, "a number"), e);
+        }
     }
 
-    private Object parseArray(BasicDBObject basicO, String key) throws DataException {
-        if (!isArray(key)) {
-            throw new DataException(String.format("%s.%s is not an array!", this.collectionName, key));
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean getBoolean() throws DataException {
+        Object value = getPrimitiveValue();
+        if (value instanceof Boolean) {
+            return (Boolean) value;
         }
-
-        String arrayKey = key.split("\\[")[0];
-        String arrayIndex = key.split("\\[")[1].split("\\]")[0];
-
-        // If object passed by key is a reference to array, extract reference and replace current context by it
-        if (basicO.get(arrayKey) instanceof BasicDBObject && isReference((BasicDBObject) basicO.get(arrayKey))) {
-            basicO = ((AbstractDataProvider) get(arrayKey)).basicObject;
-            arrayKey = basicO.keySet().iterator().next();
-            way = key;
-        } else {
-            way += "." + key;
+        String string = value.toString().trim();
+        if ("true".equalsIgnoreCase(string)) {
+            return true;
+        } else if ("false".equalsIgnoreCase(string)) {
+            return false;
         }
+        throw new DataParseException(format(WRONG_TYPE_EXCEPTION, value, this.path, "a boolean"));
+    }
 
-        Object listCandidate = basicO.get(arrayKey);
-
-        if (!(listCandidate instanceof BasicDBList)) {
-            throw new DataException(String.format("%s.%s is not an array!", this.collectionName, key));
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Object> getList() throws DataException {
+        Object value = getRawValue();
+        if (!(value instanceof BasicDBList)) {
+            throw new DataParseException(format(WRONG_TYPE_EXCEPTION, value, this.path, "an array"));
         }
-
-        return ((BasicDBList) listCandidate).get(arrayIndex);
+        return Collections.unmodifiableList((BasicDBList) value);
     }
 
-    private BasicDBObject parseComplexDBObject(String key) throws DataException {
-        String[] keys = key.split("[.]");
-        StringBuilder partialBuiltPath = new StringBuilder();
-        BasicDBObject currentBasicObject = this.basicObject;
-
-        for (int i = 0; i < keys.length; i++) {
-            String partialKey = keys[i];
-
-            partialBuiltPath.append(partialKey);
-
-            if (isArray(partialKey)) {
-                Object basicObject = parseArray(currentBasicObject, partialKey);
-                currentBasicObject = !(basicObject instanceof BasicDBObject)
-                        ? new BasicDBObject(partialKey, basicObject)
-                        : (BasicDBObject) basicObject;
-                partialBuiltPath.append(".");
-                continue;
-            }
-
-            if (isReference(currentBasicObject)) {
-                AbstractDataProvider dataProvider = (AbstractDataProvider) createInstance(currentBasicObject, collectionName);
-                currentBasicObject = ((AbstractDataProvider) dataProvider.getReference()).basicObject;
-            }
-
-            Object currentValue = currentBasicObject.get(partialKey);
-            this.way += "." + partialKey;
-            if (!(currentValue instanceof BasicDBObject)) {
-                if (null == currentValue || i < keys.length - 1) {
-                    String lastKey = keys[keys.length - 1];
-                    String wrongField = currentBasicObject.get(partialKey) == null ? partialKey : lastKey;
-
-                    throw new FieldNotFoundException(format("Collection \"%s\" doesn't contain \"%s\" field on path \"%s\"",
-                            this.collectionName, wrongField, partialBuiltPath.toString()));
-                }
-                return currentBasicObject;
-            }
-            currentBasicObject = (BasicDBObject) currentBasicObject.get(partialKey);
-            partialBuiltPath.append(".");
+    /**
+     * Get value without converting it to string. String values are passed to
+     * generator callback, others are returned as stored
+     *
+     * @return value
+     * @throws DataException if there is no value or it is an array
+     */
+    private Object getPrimitiveValue() throws DataException {
+        Object value = getRawValue();
+        if (value instanceof BasicDBList) {
+            throw new DataParseException(format(WRONG_TYPE_EXCEPTION, value, this.path, "a primitive value"));
         }
-        return currentBasicObject;
+        return value instanceof String ? applyCallBackData((String) value, this.path) : value;
     }
 
     /**
-     * {@inheritDoc}
+     * Get stored value of current object, following references. Generators
+     * are not applied
+     *
+     * @return value or array
+     * @throws DataException if there is no value or it is an object
      */
-    @Override
-    public String toString() {
-        return this.basicObject == null ? "" : this.basicObject.toString();
-    }
+    Object getRawValue() throws DataException {
+        if (basicObject == null) {
+            throw new DataException(NOT_INITIALIZED_EXCEPTION);
+        }
+        BasicDBObject object = this.basicObject;
+        String objectWay = this.way;
+        if (isReference()) {
+            NavigationCursor cursor = NavigationCursor.acquire(this);
+            try {
+                do {
+                    cursor.followReference();
+                } while (cursor.isReference());
+                object = cursor.getObject();
+                objectWay = cursor.getWay();
+            } finally {
+                cursor.release();
+            }
+        }
 
-    public void setRootObject(BasicDBObject rootObject, String path) {
-        this.rootObject = rootObject;
-        this.path = path;
+        Object value = object.get(VALUE_TPL);
+        if (value == null) {
+            value = object.get(NavigationCursor.tail(objectWay));
+        }
+        if (value == null || value instanceof BasicDBObject) {
+            throw new ValueNotFoundException(format("There is no value on path \"%s\"", this.path));
+        }
+        return value;
     }
 
     /**
-     * {@inheritDoc}
+     * Get value of not referencing object
+     *
+     * @param object object to get value of
+     * @param way way to object, its tail is a key of the value in object
+     * @param path path to pass to generator callback
+     * @return value
+     * @throws DataException if value could not be resolved
      */
-    @Override
-    public String getValue() throws DataException {
-        if (this.isReference()) {
-            return this.getReference().getValue();
+    private String getValue(BasicDBObject object, String way, String path) throws DataException {
+        Object resolved = resolveValue(object, way, path);
+        if (resolved instanceof BasicDBObject) {
+            return applyCallBackData(resolved.toString(), path);
         }
+        return (String) resolved;
+    }
 
-        String result = this.basicObject.getString(VALUE_TPL);
+    /**
+     * Resolve value of not referencing object. Objects without value are
+     * resolved into a new object and are not serialized
+     *
+     * @param object object to get value of
+     * @param way way to object, its tail is a key of the value in object
+     * @param path path to pass to generator callback
+     * @return generated string value or resolved {@link BasicDBObject}
+     * @throws DataException if value could not be resolved
+     */
+    private Object resolveValue(BasicDBObject object, String way, String path) throws DataException {
+        String result = object.getString(VALUE_TPL);
 
         if (result == null) {
-            way = getWayTail();
+            String tail = NavigationCursor.tail(way);
 
-            if (!(basicObject.get(way) instanceof BasicDBObject)) {
-                result = basicObject.getString(way);
+            if (!(object.get(tail) instanceof BasicDBObject)) {
+                result = object.getString(tail);
             }
 
             if (result == null) {
-                result = resolveDbObject().toString();
+                return resolveDbObject(object, tail);
             }
         }
-        return applyCallBackData(result);
+        return applyCallBackData(result, path);
     }
 
-    private String applyCallBackData(String result) throws GeneratorException {
-        if (this.callback != null) {
-            CallbackData generatorParams = new CallbackData(this.path, result);
-
+    private String applyCallBackData(String result, String path) throws GeneratorException {
+        CallbackSource source = this.generator;
+        if (source != null) {
+            long start = Metrics.start();
+            Object callbackResult;
             try {
-                Object callbackResult = callback.newInstance().call(generatorParams);
-
-                if (callbackResult instanceof Exception) {
-                    throw (GeneratorException) callbackResult;
-                } else {
-                    result = (String) callbackResult;
-                }
-            } catch (InstantiationException | IllegalAccessException ex) {
-                throw new GeneratorException("Could not initialize callback", ex);
+                callbackResult = source.get().call(new CallbackData(path, result));
+            } finally {
+                Metrics.stop(Operation.GENERATE, collectionName, start);
             }
 
+            if (callbackResult instanceof Exception) {
+                throw (GeneratorException) callbackResult;
+            } else {
+                result = (String) callbackResult;
+            }
         }
         return result;
     }
@@ -350,27 +688,63 @@ public abstract class AbstractDataProvider implements TestDataProvider {
      */
     @Override
     public TestDataProvider getReference() throws DataException {
-        if (null != this.basicObject.get(VALUE_TPL) && !(this.basicObject.get(VALUE_TPL) instanceof String)
-                && ((BasicDBObject) this.basicObject.get(VALUE_TPL)).containsField(COLLECTION_TPL)
-                && ((BasicDBObject) this.basicObject.get(VALUE_TPL)).containsField("path")) {
-            if (this.rootObject == null) {
-                this.rootObject = this.basicObject;
-            } else {
-                String rootJson = this.rootObject.toJson();
-                String baseJson = this.basicObject.toJson();
-                if (rootJson.equals(baseJson)) {
-                    throw new CyclicReferencesException("Cyclic references in database:\n" + rootJson);
-                }
-            }
-            String referencedCollection = ((BasicBSONObject) this.basicObject.get(VALUE_TPL)).getString(COLLECTION_TPL);
-            this.path = ((BasicBSONObject) this.basicObject.get(VALUE_TPL)).getString("path");
-            AbstractDataProvider reference = (AbstractDataProvider) this.fromCollection(((BasicBSONObject) this.basicObject.get(VALUE_TPL)).getString(COLLECTION_TPL));
-            reference.setRootObject(this.rootObject, referencedCollection + "." + this.path);
-            return reference.get(this.path);
-        } else {
+        if (!isReference()) {
             throw new ReferenceException(String.format("There is no reference in \"%s\". Collection \"%s\"",
                     this.path, this.collectionName));
         }
+        long start = Metrics.start();
+        NavigationCursor cursor = NavigationCursor.acquire(this);
+        try {
+            cursor.followReference();
+            return cursor.materialize();
+        } finally {
+            cursor.release();
+            Metrics.stop(Operation.GET_REFERENCE, collectionName, start);
+        }
+    }
+
+    /**
+     * Get root object of collection to resolve references to it. Override to
+     * load collection without creating provider instance
+     *
+     * @param collectionName name of collection
+     * @return root object of collection
+     * @throws DataException if collection could not be loaded
+     */
+    protected BasicDBObject getCollectionObject(String collectionName) throws DataException {
+        return ((AbstractDataProvider) createInstance(collectionName)).basicObject;
+    }
+
+    /**
+     * Whether resolved references may be kept in {@link ReferenceCache}.
+     * Override to return true if {@link #getCollectionObject(String)} returns
+     * the same object until the collection is reloaded
+     *
+     * @return true if references can be cached
+     */
+    protected boolean isReferenceCacheable() {
+        return false;
+    }
+
+    /**
+     * Get name of collection the reference points to
+     *
+     * @param reference reference object
+     * @param collectionName collection the reference belongs to
+     * @return referenced collection name
+     */
+    protected String getReferenceCollection(BasicDBObject reference, String collectionName) {
+        return ((BasicBSONObject) reference.get(VALUE_TPL)).getString(COLLECTION_TPL);
+    }
+
+    /**
+     * Get path the reference points to
+     *
+     * @param reference reference object
+     * @return referenced path inside of referenced collection
+     */
+    protected String getReferencePath(BasicDBObject reference) {
+        return ((BasicBSONObject) reference.get(VALUE_TPL)).getString("path");
     }
 
     /**
@@ -378,7 +752,37 @@ public abstract class AbstractDataProvider implements TestDataProvider {
      */
     @Override
     public void applyGenerator(Class<? extends GeneratorCallback> callback) {
-        this.callback = callback;
+        setGenerator(CallbackSource.of(callback));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void applyGeneratorInstance(GeneratorCallback callback) {
+        setGenerator(CallbackSource.of(callback));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void applyGeneratorSupplier(Supplier<? extends GeneratorCallback> callback) {
+        setGenerator(CallbackSource.of(callback));
+    }
+
+    /**
+     * Apply generator callback of another provider, sharing its callback instance
+     *
+     * @param source provider to take callback from
+     */
+    public void inheritGenerator(AbstractDataProvider source) {
+        setGenerator(source.generator);
+    }
+
+    private void setGenerator(CallbackSource generator) {
+        this.generator = generator;
+        this.callback = generator == null ? null : generator.getType();
     }
 
     /**
@@ -398,26 +802,14 @@ public abstract class AbstractDataProvider implements TestDataProvider {
     }
 
     private TestDataProvider parseTestDataProvider(String path) throws DataException {
-        Pattern collectionPattern = Pattern.compile(COLLECTION_PARSE_REGEX);
-        Matcher collectionMatcher = collectionPattern.matcher(path.trim());
-
-        Pattern pathPattern = Pattern.compile(PATH_PARSE_REGEX);
-        Matcher pathMatcher = pathPattern.matcher(path.trim());
-
-        if (collectionMatcher.matches()) {
-            String collectionToParse = collectionMatcher.group(1);
-
-            return fromCollection(collectionToParse);
-        } else if (pathMatcher.matches()) {
-            String collectionToParse = pathMatcher.group(1);
-            String pathValueToParse = pathMatcher.group(3);
-            TestDataProvider testDataProvider = parseCollection(collectionToParse);
+        CompiledPath compiledPath = CompiledPath.compileExpression(path);
 
-            if (pathValueToParse != null) {
-                return testDataProvider.get(pathValueToParse);
-            }
+        if (compiledPath == null) {
+            throw new DataException(format("Could not parse path %s", path));
+        } else if (compiledPath.isCollectionOnly()) {
+            return fromCollection(compiledPath.getCollection());
         }
-        throw new DataException(format("Could not parse path %s", path));
+        return parseCollection(compiledPath.getCollection()).get(compiledPath.getKey());
     }
 
     private TestDataProvider parseCollection(String collectionToParse) throws DataException {
@@ -432,54 +824,57 @@ public abstract class AbstractDataProvider implements TestDataProvider {
 
 
     /**
-     * Get after last dot string value
-     *
-     * @return tail or null
-     */
-    private String getWayTail() {
-        if (way == null) {
-            return null;
-        } else {
-            String[] wayArray = way.split("[.]");
-            return wayArray[wayArray.length - 1];
-        }
-    }
-
-    /**
-     * Walk into current {@link DBObject} and resolve all generators and references
+     * Walk into {@link DBObject} and resolve all generators and references.
+     * Nested objects are resolved node by node into the new object
      *
+     * @param object object to resolve
+     * @param way way to object
      * @return resolved {@link DBObject}
-     * @throws DataException =
+     * @throws DataException if some value could not be resolved
      */
-    private DBObject resolveDbObject() throws DataException {
+    private BasicDBObject resolveDbObject(BasicDBObject object, String way) throws DataException {
+        long start = Metrics.start();
         BasicDBObject resolvedDbObject = new BasicDBObject();
-
-        for (String key : basicObject.keySet()) {
-            BasicDBObject target = basicObject.get(key) instanceof BasicDBObject ?
-                    (BasicDBObject) basicObject.get(key) :
-                    basicObject;
-            AbstractDataProvider instance = createInstance(target, collectionName, way + "." + key);
-            instance.applyGenerator(callback);
-
-            if (basicObject.get(key) instanceof BasicDBObject) {
-                try {
-                    resolvedDbObject.put(key, JSON.parse(instance.getValue()));
-                } catch (Exception e) {
-                    resolvedDbObject.put(key, instance.getValue());
-                }
-            } else {
-                if (instance.basicObject.keySet().contains(key) && instance
-                        .basicObject.get(key) == null) {
+        try {
+            for (String key : object.keySet()) {
+                Object value = object.get(key);
+                String valueWay = way + "." + key;
+
+                if (value instanceof BasicDBObject) {
+                    resolvedDbObject.put(key, resolveNestedObject((BasicDBObject) value, valueWay));
+                } else if (value == null) {
                     resolvedDbObject.put(key, null);
-                }else if(basicObject.get(key) instanceof BasicDBList){
-                    BasicDBList array = (BasicDBList) basicObject.get(key);
-                    resolvedDbObject.put(key, array);
+                } else if (value instanceof BasicDBList) {
+                    resolvedDbObject.put(key, value);
                 } else {
-                    resolvedDbObject.put(key, instance.getValue());
+                    resolvedDbObject.put(key, getValue(object, valueWay, null));
                 }
             }
-
+        } finally {
+            Metrics.stop(Operation.RESOLVE, collectionName, start);
         }
         return resolvedDbObject;
     }
+
+    private Object resolveNestedObject(BasicDBObject object, String way) throws DataException {
+        if (!isReference(object)) {
+            return resolveValue(object, way, null);
+        }
+        NavigationCursor cursor = NavigationCursor.acquire(this);
+        BasicDBObject resolved;
+        String resolvedWay;
+        String resolvedPath;
+        try {
+            cursor.reset(object, way);
+            do {
+                cursor.followReference();
+            } while (cursor.isReference());
+            resolved = cursor.getObject();
+            resolvedWay = cursor.getWay();
+            resolvedPath = cursor.getPath();
+        } finally {
+            cursor.release();
+        }
+        return resolveValue(resolved, resolvedWay, resolvedPath);
+    }
 }
@@ -0,0 +1,321 @@
+package ru.sbtqa.tag.datajack.providers;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import ru.sbtqa.tag.datajack.Query;
+import ru.sbtqa.tag.datajack.TestDataProvider;
+import ru.sbtqa.tag.datajack.exceptions.DataException;
+import ru.sbtqa.tag.datajack.exceptions.FieldNotFoundException;
+import ru.sbtqa.tag.datajack.exceptions.ValueNotFoundException;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link Query} over records of a {@link BasicDBList}. Declared indexes are
+ * kept per array instance and field, and are dropped once the array is garbage
+ * collected, e.g. after its collection is reloaded. Fields that are read
+ * through a reference in some record are not indexed, since the referenced
+ * collection may be reloaded while the array is not
+ */
+final class ArrayQuery implements Query {
+
+    private static final ConcurrentMap<IndexKey, RecordIndex> INDEXES = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<BasicDBList> COLLECTED = new ReferenceQueue<>();
+    private static final RecordIndex NOT_INDEXABLE = RecordIndex.hash(new Object[0]);
+    private static final Object REFERENCED = new Object();
+
+    private final AbstractDataProvider array;
+    private final BasicDBList list;
+    private final List<Condition> conditions = new ArrayList<>();
+    private final Set<String> hashIndexed = new HashSet<>();
+    private final Set<String> sortedIndexed = new HashSet<>();
+    private int limit = Integer.MAX_VALUE;
+
+    /**
+     * @param array provider positioned at array field
+     */
+    ArrayQuery(AbstractDataProvider array) {
+        this.array = array;
+        this.list = array.getArray();
+    }
+
+    @Override
+    public Query where(String field, Object value) {
+        conditions.add(new Condition(field, RecordIndex.key(value)));
+        return this;
+    }
+
+    @Override
+    public Query between(String field, Object from, Object to) {
+        conditions.add(new Condition(field, RecordIndex.key(from), RecordIndex.key(to)));
+        return this;
+    }
+
+    @Override
+    public Query limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative: " + limit);
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    @Override
+    public Query index(String field) {
+        hashIndexed.add(field);
+        return this;
+    }
+
+    @Override
+    public Query sortedIndex(String field) {
+        sortedIndexed.add(field);
+        return this;
+    }
+
+    @Override
+    public List<TestDataProvider> find() throws DataException {
+        List<TestDataProvider> records = new ArrayList<>();
+        for (int position : execute()) {
+            records.add(getRecord(position));
+        }
+        return records;
+    }
+
+    @Override
+    public List<Map<String, String>> select(String... fields) throws DataException {
+        List<Map<String, String>> rows = new ArrayList<>();
+        for (int position : execute()) {
+            TestDataProvider record = getRecord(position);
+            Map<String, String> row = new LinkedHashMap<>();
+            for (String field : fields) {
+                row.put(field, record.get(field).getValue());
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    @Override
+    public int count() throws DataException {
+        return execute().size();
+    }
+
+    private TestDataProvider getRecord(int position) throws DataException {
+        return array.getElement(position, list.get(position));
+    }
+
+    /**
+     * Evaluate conditions in one pass over the array or over records found
+     * by the first condition that has an index. Candidates are checked
+     * against every condition, the indexed one included
+     *
+     * @return positions of matched records in array order
+     */
+    private List<Integer> execute() throws DataException {
+        int[] candidates = null;
+        for (Condition condition : conditions) {
+            RecordIndex index = getIndex(condition);
+            if (index != null) {
+                candidates = condition.isRange() ? index.range(condition.from, condition.to) : index.equal(condition.from);
+                break;
+            }
+        }
+
+        List<Integer> matched = new ArrayList<>();
+        int size = candidates == null ? list.size() : candidates.length;
+        for (int i = 0; i < size && matched.size() < limit; i++) {
+            int position = candidates == null ? i : candidates[i];
+            if (matches(position)) {
+                matched.add(position);
+            }
+        }
+        return matched;
+    }
+
+    private boolean matches(int position) throws DataException {
+        for (Condition condition : conditions) {
+            if (!condition.test(getKey(position, condition.field))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return shared index of the condition field, null if it is not declared
+     * or the field is read through a reference
+     */
+    private RecordIndex getIndex(Condition condition) {
+        boolean sorted;
+        if (!condition.isRange() && hashIndexed.contains(condition.field)) {
+            sorted = false;
+        } else if (sortedIndexed.contains(condition.field) && (condition.isRange() || condition.from != null)) {
+            sorted = true;
+        } else {
+            return null;
+        }
+
+        expungeCollected();
+        IndexKey key = new IndexKey(list, condition.field, sorted, null);
+        RecordIndex index = INDEXES.get(key);
+        if (index == null) {
+            index = buildIndex(condition.field, sorted);
+            RecordIndex previous = INDEXES.putIfAbsent(new IndexKey(list, condition.field, sorted, COLLECTED), index);
+            if (previous != null) {
+                index = previous;
+            }
+        }
+        return index == NOT_INDEXABLE ? null : index;
+    }
+
+    private RecordIndex buildIndex(String field, boolean sorted) {
+        Object[] values = new Object[list.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = getLocalKey(i, field);
+            if (values[i] == REFERENCED) {
+                return NOT_INDEXABLE;
+            }
+        }
+        return sorted ? RecordIndex.sorted(values) : RecordIndex.hash(values);
+    }
+
+    /**
+     * Get normalized field value of record. Fields are read directly from the
+     * record, and through the provider once a reference is met
+     *
+     * @return normalized value or null if record has no such field
+     */
+    private Object getKey(int position, String field) throws DataException {
+        Object key = getLocalKey(position, field);
+        return key == REFERENCED ? getReferencedKey(position, field) : key;
+    }
+
+    /**
+     * Get normalized field value of record without leaving the array
+     *
+     * @return normalized value, null if record has no such field or
+     * {@link #REFERENCED} if the field is read through a reference
+     */
+    private Object getLocalKey(int position, String field) {
+        CompiledPath path = CompiledPath.compile(field);
+        Object current = list.get(position);
+        for (int i = 0; i < path.size(); i++) {
+            if (!(current instanceof BasicDBObject)) {
+                return null;
+            } else if (array.isReference((BasicDBObject) current)) {
+                return REFERENCED;
+            }
+            current = ((BasicDBObject) current).get(path.getName(i));
+            if (path.isArray(i)) {
+                current = current instanceof BasicDBList && path.getIndex(i) < ((BasicDBList) current).size()
+                        ? ((BasicDBList) current).get(path.getIndex(i))
+                        : null;
+            }
+        }
+        if (current instanceof BasicDBObject && array.isReference((BasicDBObject) current)) {
+            return REFERENCED;
+        }
+        return RecordIndex.key(current);
+    }
+
+    /**
+     * Compare referenced values as stored, like values read directly: string
+     * values are not passed to generator, and numbers stay numbers
+     */
+    private Object getReferencedKey(int position, String field) throws DataException {
+        try {
+            return RecordIndex.key(((AbstractDataProvider) getRecord(position).get(field)).getRawValue());
+        } catch (FieldNotFoundException | ValueNotFoundException ex) {
+            return null;
+        }
+    }
+
+    private static void expungeCollected() {
+        Reference<? extends BasicDBList> collected;
+        while ((collected = COLLECTED.poll()) != null) {
+            INDEXES.remove(collected);
+        }
+    }
+
+    private static final class Condition {
+
+        private final String field;
+        private final Object from;
+        private final Object to;
+        private final boolean range;
+
+        private Condition(String field, Object value) {
+            this.field = field;
+            this.from = value;
+            this.to = value;
+            this.range = false;
+        }
+
+        private Condition(String field, Object from, Object to) {
+            this.field = field;
+            this.from = from;
+            this.to = to;
+            this.range = true;
+        }
+
+        private boolean isRange() {
+            return range;
+        }
+
+        private boolean test(Object key) {
+            if (!range) {
+                return Objects.equals(from, key);
+            } else if (key == null) {
+                return false;
+            }
+            return (from == null || RecordIndex.isSameKind(from, key) && RecordIndex.compare(from, key) <= 0)
+                    && (to == null || RecordIndex.isSameKind(to, key) && RecordIndex.compare(key, to) <= 0);
+        }
+    }
+
+    /**
+     * Array compared by identity, weakly referenced
+     */
+    private static final class IndexKey extends WeakReference<BasicDBList> {
+
+        private final int hash;
+        private final String field;
+        private final boolean sorted;
+
+        private IndexKey(BasicDBList list, String field, boolean sorted, ReferenceQueue<BasicDBList> queue) {
+            super(list, queue);
+            this.hash = 31 * (31 * System.identityHashCode(list) + field.hashCode()) + (sorted ? 1 : 0);
+            this.field = field;
+            this.sorted = sorted;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof IndexKey)) {
+                return false;
+            }
+            IndexKey key = (IndexKey) o;
+            BasicDBList list = get();
+            return list != null && list == key.get() && sorted == key.sorted && field.equals(key.field);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ru.sbtqa.tag.datajack.providers;
+
+import com.mongodb.BasicDBList;
+import ru.sbtqa.tag.datajack.TestDataProvider;
+import ru.sbtqa.tag.datajack.exceptions.DataException;
+import ru.sbtqa.tag.datajack.exceptions.UncheckedDataException;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over elements of an array. Works on a range of the backing list
+ * without copying it, and creates an element provider only when the element is
+ * consumed. Splits halve the range, so parallel streams divide large arrays
+ * evenly
+ */
+final class ArraySpliterator implements Spliterator<TestDataProvider> {
+
+    private final AbstractDataProvider array;
+    private final BasicDBList list;
+    private final int fence;
+    private int index;
+
+    /**
+     * @param array provider positioned at array field
+     */
+    ArraySpliterator(AbstractDataProvider array) {
+        this(array, array.getArray(), 0, array.getArray().size());
+    }
+
+    private ArraySpliterator(AbstractDataProvider array, BasicDBList list, int index, int fence) {
+        this.array = array;
+        this.list = list;
+        this.index = index;
+        this.fence = fence;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super TestDataProvider> action) {
+        if (index >= fence) {
+            return false;
+        }
+        int current = index++;
+        action.accept(getElement(current));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super TestDataProvider> action) {
+        for (; index < fence; index++) {
+            action.accept(getElement(index));
+        }
+    }
+
+    @Override
+    public Spliterator<TestDataProvider> trySplit() {
+        int middle = (index + fence) >>> 1;
+        if (middle <= index) {
+            return null;
+        }
+        ArraySpliterator prefix = new ArraySpliterator(array, list, index, middle);
+        index = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+
+    private TestDataProvider getElement(int position) {
+        try {
+            return array.getElement(position, list.get(position));
+        } catch (DataException ex) {
+            throw new UncheckedDataException(ex);
+        }
+    }
+}
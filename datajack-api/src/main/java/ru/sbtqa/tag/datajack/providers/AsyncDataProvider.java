@@ -0,0 +1,119 @@
+package ru.sbtqa.tag.datajack.providers;
+
+import ru.sbtqa.tag.datajack.AsyncTestDataProvider;
+import ru.sbtqa.tag.datajack.TestDataProvider;
+import ru.sbtqa.tag.datajack.exceptions.DataException;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link AsyncTestDataProvider} running lookups of a blocking provider on an
+ * executor. Lookups that wait on I/O, e.g. of Mongo provider, should use a
+ * dedicated executor rather than the common fork-join pool
+ */
+public final class AsyncDataProvider implements AsyncTestDataProvider {
+
+    private final TestDataProvider provider;
+    private final Executor executor;
+
+    /**
+     * @param provider blocking provider
+     * @param executor runs lookups
+     */
+    public AsyncDataProvider(TestDataProvider provider, Executor executor) {
+        this.provider = provider;
+        this.executor = executor;
+    }
+
+    /**
+     * Create provider on the executor, e.g.
+     * {@code open(() -> new MongoDataProvider(db, "Tests"), executor)}
+     *
+     * @param opener creates blocking provider
+     * @param executor runs opener and all later lookups
+     * @return future of provider
+     */
+    public static CompletableFuture<AsyncTestDataProvider> open(Lookup<? extends TestDataProvider> opener,
+                                                                Executor executor) {
+        return supply(() -> new AsyncDataProvider(opener.call(), executor), executor);
+    }
+
+    @Override
+    public CompletableFuture<AsyncTestDataProvider> fromCollection(String collectionName) {
+        return supply(() -> wrap(provider.fromCollection(collectionName)), executor);
+    }
+
+    @Override
+    public CompletableFuture<AsyncTestDataProvider> get(String key) {
+        return supply(() -> wrap(provider.get(key)), executor);
+    }
+
+    @Override
+    public CompletableFuture<AsyncTestDataProvider> getByPath(String key) {
+        return supply(() -> wrap(provider.getByPath(key)), executor);
+    }
+
+    @Override
+    public CompletableFuture<String> getValue() {
+        return supply(provider::getValue, executor);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, String>> getValues(Collection<String> paths) {
+        return supply(() -> provider.getValues(paths), executor);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isReference() {
+        return supply(provider::isReference, executor);
+    }
+
+    @Override
+    public CompletableFuture<AsyncTestDataProvider> getReference() {
+        return supply(() -> wrap(provider.getReference()), executor);
+    }
+
+    @Override
+    public TestDataProvider getProvider() {
+        return provider;
+    }
+
+    @Override
+    public String toString() {
+        return provider.toString();
+    }
+
+    private AsyncTestDataProvider wrap(TestDataProvider result) {
+        return new AsyncDataProvider(result, executor);
+    }
+
+    private static <T> CompletableFuture<T> supply(Lookup<T> lookup, Executor executor) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(lookup.call());
+                } catch (DataException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Blocking lookup
+     *
+     * @param <T> type of result
+     */
+    @FunctionalInterface
+    public interface Lookup<T> {
+
+        T call() throws DataException;
+    }
+}
@@ -0,0 +1,54 @@
+package ru.sbtqa.tag.datajack.providers;
+
+import com.mongodb.BasicDBObject;
+import ru.sbtqa.tag.datajack.exceptions.DataException;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * State shared by lookups of one batch: collection providers, objects at
+ * already walked path prefixes and resolved references. Collections are
+ * considered unchanged for the duration of a batch. Not thread-safe, a batch
+ * is resolved by a single thread
+ */
+final class BatchContext {
+
+    private final Map<String, AbstractDataProvider> collections = new HashMap<>();
+    private final Map<BasicDBObject, Map<String, BasicDBObject>> prefixes = new IdentityHashMap<>();
+    private final Map<String, ReferenceCache.Target> references = new HashMap<>();
+
+    /**
+     * Get provider of collection, creating it once per batch
+     *
+     * @param source provider to create collection provider from
+     * @param collectionName name of collection
+     * @return collection provider
+     * @throws DataException if collection could not be loaded
+     */
+    AbstractDataProvider getCollection(AbstractDataProvider source, String collectionName) throws DataException {
+        AbstractDataProvider provider = collections.get(collectionName);
+        if (provider == null) {
+            provider = (AbstractDataProvider) source.fromCollection(collectionName);
+            collections.put(collectionName, provider);
+        }
+        return provider;
+    }
+
+    /**
+     * @param start object path walks start from
+     * @return objects at walked prefixes of paths starting from the given object
+     */
+    Map<String, BasicDBObject> getPrefixes(BasicDBObject start) {
+        return prefixes.computeIfAbsent(start, key -> new HashMap<>());
+    }
+
+    ReferenceCache.Target getReference(String collection, String path) {
+        return references.get(collection + ':' + path);
+    }
+
+    void putReference(String collection, String path, ReferenceCache.Target target) {
+        references.put(collection + ':' + path, target);
+    }
+}
@@ -0,0 +1,79 @@
+package ru.sbtqa.tag.datajack.providers;
+
+import ru.sbtqa.tag.datajack.callback.GeneratorCallback;
+import ru.sbtqa.tag.datajack.exceptions.GeneratorException;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.function.Supplier;
+
+/**
+ * Generator callback applied to a provider tree. The callback instance is
+ * created on first use and then shared by all providers derived from the one
+ * it was applied to
+ */
+final class CallbackSource {
+
+    private final Class<? extends GeneratorCallback> type;
+    private final Supplier<? extends GeneratorCallback> supplier;
+    private volatile GeneratorCallback instance;
+
+    private CallbackSource(Class<? extends GeneratorCallback> type, Supplier<? extends GeneratorCallback> supplier,
+                           GeneratorCallback instance) {
+        this.type = type;
+        this.supplier = supplier;
+        this.instance = instance;
+    }
+
+    static CallbackSource of(Class<? extends GeneratorCallback> type) {
+        return type == null ? null : new CallbackSource(type, null, null);
+    }
+
+    static CallbackSource of(GeneratorCallback instance) {
+        return instance == null ? null : new CallbackSource(instance.getClass(), null, instance);
+    }
+
+    static CallbackSource of(Supplier<? extends GeneratorCallback> supplier) {
+        return supplier == null ? null : new CallbackSource(null, supplier, null);
+    }
+
+    /**
+     * @return callback class if it is known before instantiation
+     */
+    Class<? extends GeneratorCallback> getType() {
+        return type;
+    }
+
+    /**
+     * @return callback instance of the provider tree
+     * @throws GeneratorException if callback could not be created
+     */
+    GeneratorCallback get() throws GeneratorException {
+        GeneratorCallback result = instance;
+        if (result == null) {
+            synchronized (this) {
+                result = instance;
+                if (result == null) {
+                    result = create();
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private GeneratorCallback create() throws GeneratorException {
+        if (supplier != null) {
+            GeneratorCallback created = supplier.get();
+            if (created == null) {
+                throw new GeneratorException("Callback supplier returned null");
+            }
+            return created;
+        }
+        try {
+            return type.getDeclaredConstructor().newInstance();
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException
+                | NoSuchMethodException ex) {
+            throw new GeneratorException("Could not initialize callback", ex);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package ru.sbtqa.tag.datajack.providers;
+
+import com.mongodb.BasicDBObject;
+import ru.sbtqa.tag.datajack.exceptions.DataException;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.io.File.separator;
+
+/**
+ * Process-wide cache of parsed file collections. Entries are keyed by test
+ * data folder, collection name, file extension and parse options and are
+ * validated against last modified time and size of the file on every lookup,
+ * so each file is read and parsed once per JVM until it changes. Use
+ * {@link CollectionPreloader} to fill the cache up front.
+ * <p>
+ * Cached objects are shared between all providers of the collection and must
+ * be treated as read-only. References resolved inside of a dropped collection
+ * are dropped from {@link ReferenceCache} and its index from
+ * {@link PathIndexCache} as well
+ */
+public final class CollectionCache {
+
+    /**
+     * System property to override maximum number of cached collections. Zero
+     * disables caching
+     */
+    public static final String CACHE_SIZE_PROPERTY = "datajack.collection.cache.size";
+
+    private static final int DEFAULT_CACHE_SIZE = 256;
+    private static final CollectionCache INSTANCE = new CollectionCache(Integer.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE));
+
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile int maxSize;
+
+    private CollectionCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return shared cache instance
+     */
+    public static CollectionCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get parsed collection, loading it if there is no valid cached copy
+     *
+     * @param testDataFolder path to data folder
+     * @param collectionName collection file name without extension
+     * @param extension file extension
+     * @param loader loads and parses collection file
+     * @return parsed collection
+     * @throws DataException if collection could not be loaded
+     */
+    public BasicDBObject get(String testDataFolder, String collectionName, String extension, Loader loader) throws DataException {
+        return get(testDataFolder, collectionName, extension, null, loader);
+    }
+
+    /**
+     * Get parsed collection, loading it if there is no valid cached copy.
+     * Collections parsed from the same file with different options are cached
+     * separately
+     *
+     * @param testDataFolder path to data folder
+     * @param collectionName collection file name without extension
+     * @param extension file extension
+     * @param options parse options the result depends on, null if none
+     * @param loader loads and parses collection file
+     * @return parsed collection
+     * @throws DataException if collection could not be loaded
+     */
+    public BasicDBObject get(String testDataFolder, String collectionName, String extension, String options,
+                             Loader loader) throws DataException {
+        if (maxSize <= 0) {
+            misses.increment();
+            return loader.load();
+        }
+
+        File file = new File(testDataFolder + separator + collectionName + "." + extension);
+        long lastModified = file.lastModified();
+        long length = file.length();
+        Key key = new Key(testDataFolder, collectionName, extension, options);
+
+        while (true) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.isValid(lastModified, length)) {
+                hits.increment();
+                entry.lastAccess = clock.incrementAndGet();
+                return entry.join();
+            }
+            // Publish a pending entry first and load outside of the map, so
+            // that loading does not lock other keys, and concurrent lookups
+            // of the same collection wait for one load
+            Entry loading = new Entry(lastModified, length, clock.incrementAndGet());
+            boolean published = entry == null
+                    ? entries.putIfAbsent(key, loading) == null
+                    : entries.replace(key, entry, loading);
+            if (!published) {
+                continue;
+            }
+            if (entry != null) {
+                dropDerived(entry);
+            }
+            misses.increment();
+            try {
+                loading.future.complete(loader.load());
+            } catch (DataException | RuntimeException e) {
+                entries.remove(key, loading);
+                loading.future.completeExceptionally(e);
+                throw e;
+            }
+            evictIfNeeded();
+            return loading.join();
+        }
+    }
+
+    /**
+     * Drop cached collection
+     *
+     * @param testDataFolder path to data folder
+     * @param collectionName collection file name without extension
+     * @param extension file extension
+     */
+    public void invalidate(String testDataFolder, String collectionName, String extension) {
+        invalidate(testDataFolder, collectionName, extension, null);
+    }
+
+    /**
+     * Drop cached collection parsed with the given options
+     *
+     * @param testDataFolder path to data folder
+     * @param collectionName collection file name without extension
+     * @param extension file extension
+     * @param options parse options, null if none
+     */
+    public void invalidate(String testDataFolder, String collectionName, String extension, String options) {
+        Entry entry = entries.remove(new Key(testDataFolder, collectionName, extension, options));
+        if (entry != null) {
+            dropDerived(entry);
+        }
+    }
+
+    /**
+     * Drop all cached collections and reset statistics
+     */
+    public void clear() {
+        entries.values().forEach(CollectionCache::dropDerived);
+        entries.clear();
+        hits.reset();
+        misses.reset();
+    }
+
+    /**
+     * Set maximum number of cached collections. Least recently used ones are
+     * evicted on overflow
+     *
+     * @param maxSize maximum number of collections, zero disables caching
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        evictIfNeeded();
+    }
+
+    /**
+     * @return maximum number of cached collections
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return number of cached collections
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return number of lookups served from cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of lookups that loaded collection file
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private void evictIfNeeded() {
+        while (entries.size() > Math.max(maxSize, 0)) {
+            Map.Entry<Key, Entry> eldest = null;
+            for (Map.Entry<Key, Entry> candidate : entries.entrySet()) {
+                if (eldest == null || candidate.getValue().lastAccess < eldest.getValue().lastAccess) {
+                    eldest = candidate;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            if (entries.remove(eldest.getKey(), eldest.getValue())) {
+                dropDerived(eldest.getValue());
+            }
+        }
+    }
+
+    private static void dropDerived(Entry entry) {
+        BasicDBObject object = entry.future.getNow(null);
+        if (object != null) {
+            ReferenceCache.getInstance().invalidate(object);
+            PathIndexCache.getInstance().invalidate(object);
+        }
+    }
+
+    /**
+     * Loads and parses collection on cache miss
+     */
+    @FunctionalInterface
+    public interface Loader {
+
+        /**
+         * @return parsed collection
+         * @throws DataException if collection could not be loaded
+         */
+        BasicDBObject load() throws DataException;
+    }
+
+    private static final class Key {
+
+        private final String testDataFolder;
+        private final String collectionName;
+        private final String extension;
+        private final String options;
+
+        private Key(String testDataFolder, String collectionName, String extension, String options) {
+            this.testDataFolder = testDataFolder;
+            this.collectionName = collectionName;
+            this.extension = extension;
+            this.options = options;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Objects.equals(testDataFolder, key.testDataFolder)
+                    && Objects.equals(collectionName, key.collectionName)
+                    && Objects.equals(extension, key.extension)
+                    && Objects.equals(options, key.options);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(testDataFolder, collectionName, extension, options);
+        }
+    }
+
+    private static final class Entry {
+
+        private final CompletableFuture<BasicDBObject> future = new CompletableFuture<>();
+        private final long lastModified;
+        private final long length;
+        private volatile long lastAccess;
+
+        private Entry(long lastModified, long length, long lastAccess) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.lastAccess = lastAccess;
+        }
+
+        private boolean isValid(long lastModified, long length) {
+            return this.lastModified == lastModified && this.length == length;
+        }
+
+        /**
+         * @return collection, waiting for another thread loading it
+         * @throws DataException if the load failed
+         */
+        private BasicDBObject join() throws DataException {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof DataException) {
+                    throw (DataException) e.getCause();
+                }
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+}
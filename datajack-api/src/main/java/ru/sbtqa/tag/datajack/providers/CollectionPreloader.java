@@ -0,0 +1,164 @@
+package ru.sbtqa.tag.datajack.providers;
+
+import ru.sbtqa.tag.datajack.exceptions.CollectionNotFoundException;
+import ru.sbtqa.tag.datajack.exceptions.DataException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Reads and parses every collection file of a data folder concurrently, so
+ * that {@link CollectionCache} is warm before the first test asks for data.
+ * Collections are named by their path relative to the folder without
+ * extension, the way providers address nested collections.
+ * <p>
+ * Cache should be able to hold the whole folder, see
+ * {@link CollectionCache#CACHE_SIZE_PROPERTY}, otherwise preloaded
+ * collections are evicted again
+ */
+public final class CollectionPreloader {
+
+    private CollectionPreloader() {
+    }
+
+    /**
+     * Preload collections on the common fork-join pool
+     *
+     * @param testDataFolder path to data folder
+     * @param extension collection file extension
+     * @param opener loads one collection into cache
+     * @return per-collection timings and failures
+     * @throws DataException if folder could not be read
+     */
+    public static Report preload(String testDataFolder, String extension, Opener opener) throws DataException {
+        return preload(testDataFolder, extension, ForkJoinPool.commonPool(), opener);
+    }
+
+    /**
+     * Preload collections on the given executor. Any executor fits, e.g. a
+     * fixed pool sized to the number of cores or a virtual thread per task
+     * executor where the JDK has one
+     *
+     * @param testDataFolder path to data folder
+     * @param extension collection file extension
+     * @param executor runs one task per collection file
+     * @param opener loads one collection into cache
+     * @return per-collection timings and failures
+     * @throws DataException if folder could not be read
+     */
+    public static Report preload(String testDataFolder, String extension, Executor executor, Opener opener)
+            throws DataException {
+        long start = System.nanoTime();
+        List<String> collections = discover(testDataFolder, extension);
+        Map<String, Long> timings = new ConcurrentHashMap<>();
+        Map<String, DataException> failures = new ConcurrentHashMap<>();
+
+        CompletableFuture<?>[] tasks = collections.stream()
+                .map(collectionName -> CompletableFuture.runAsync(() -> {
+                    long opened = System.nanoTime();
+                    try {
+                        opener.open(collectionName);
+                    } catch (DataException e) {
+                        failures.put(collectionName, e);
+                    } catch (RuntimeException e) {
+                        failures.put(collectionName, new DataException(
+                                String.format("Could not load collection %s", collectionName), e));
+                    } finally {
+                        timings.put(collectionName, System.nanoTime() - opened);
+                    }
+                }, executor))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(tasks).join();
+
+        return new Report(timings, failures, System.nanoTime() - start);
+    }
+
+    private static List<String> discover(String testDataFolder, String extension) throws DataException {
+        Path root = Paths.get(testDataFolder);
+        if (!Files.isDirectory(root)) {
+            throw new CollectionNotFoundException(String.format("Folder %s not found", testDataFolder));
+        }
+        String suffix = "." + extension;
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile)
+                    .map(file -> root.relativize(file).toString().replace('\\', '/'))
+                    .filter(name -> name.endsWith(suffix) && name.length() > suffix.length())
+                    .map(name -> name.substring(0, name.length() - suffix.length()))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException | RuntimeException e) {
+            throw new DataException(String.format("Could not read folder %s", testDataFolder), e);
+        }
+    }
+
+    /**
+     * Loads one collection, usually by creating a provider for it
+     */
+    @FunctionalInterface
+    public interface Opener {
+
+        void open(String collectionName) throws DataException;
+    }
+
+    /**
+     * Result of preloading a folder
+     */
+    public static final class Report {
+
+        private final Map<String, Long> timings;
+        private final Map<String, DataException> failures;
+        private final long elapsed;
+
+        private Report(Map<String, Long> timings, Map<String, DataException> failures, long elapsed) {
+            this.timings = Collections.unmodifiableMap(new TreeMap<>(timings));
+            this.failures = Collections.unmodifiableMap(new TreeMap<>(failures));
+            this.elapsed = elapsed;
+        }
+
+        /**
+         * @return load time in nanoseconds by collection name, failed ones included
+         */
+        public Map<String, Long> getTimings() {
+            return timings;
+        }
+
+        /**
+         * @return errors by name of collections that could not be loaded
+         */
+        public Map<String, DataException> getFailures() {
+            return failures;
+        }
+
+        /**
+         * @return wall time of the whole preload in nanoseconds
+         */
+        public long getElapsed() {
+            return elapsed;
+        }
+
+        /**
+         * @return true if every collection was loaded
+         */
+        public boolean isSuccessful() {
+            return failures.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Preloaded %d of %d collections in %d ms",
+                    timings.size() - failures.size(), timings.size(), elapsed / 1_000_000);
+        }
+    }
+}
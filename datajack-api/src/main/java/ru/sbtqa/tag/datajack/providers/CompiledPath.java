@@ -0,0 +1,268 @@
+package ru.sbtqa.tag.datajack.providers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static ru.sbtqa.tag.datajack.providers.AbstractDataProvider.COLLECTION_PARSE_REGEX;
+import static ru.sbtqa.tag.datajack.providers.AbstractDataProvider.PATH_PARSE_REGEX;
+
+/**
+ * Pre-parsed form of a data path. Keys like {@code a.b[3].c} are split into
+ * segments with array indices resolved once, and path expressions like
+ * {@code $Collection{a.b[3].c}} additionally carry the collection name.
+ * Compiled paths are immutable and kept in a bounded process-wide cache, so
+ * navigation does not need regular expressions or string splitting on the hot
+ * path
+ */
+public final class CompiledPath {
+
+    /**
+     * Index value of a segment that doesn't address an array element
+     */
+    public static final int NO_INDEX = -1;
+
+    /**
+     * System property to override maximum number of cached paths
+     */
+    public static final String CACHE_SIZE_PROPERTY = "datajack.path.cache.size";
+
+    private static final int DEFAULT_CACHE_SIZE = 4096;
+    private static final int MAX_CACHE_SIZE = Integer.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE);
+    private static final Pattern COLLECTION_PATTERN = Pattern.compile(COLLECTION_PARSE_REGEX);
+    private static final Pattern PATH_PATTERN = Pattern.compile(PATH_PARSE_REGEX);
+    private static final ConcurrentMap<String, CompiledPath> KEYS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, CompiledPath> EXPRESSIONS = new ConcurrentHashMap<>();
+
+    private final String key;
+    private final String collection;
+    private final String[] segments;
+    private final String[] names;
+    private final int[] indices;
+
+    private CompiledPath(String key, String collection, String[] segments, String[] names, int[] indices) {
+        this.key = key;
+        this.collection = collection;
+        this.segments = segments;
+        this.names = names;
+        this.indices = indices;
+    }
+
+    /**
+     * Compile dotted key like {@code a.b[3].c}
+     *
+     * @param key key to compile
+     * @return compiled path, possibly shared with other callers
+     */
+    public static CompiledPath compile(String key) {
+        CompiledPath compiled = KEYS.get(key);
+        if (compiled == null) {
+            compiled = parseKey(key, null);
+            cache(KEYS, key, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * Compile path expression like {@code $Collection{a.b[3].c}},
+     * {@code ${a.b[3].c}} or {@code $Collection}
+     *
+     * @param expression path expression to compile
+     * @return compiled path or null if expression could not be parsed
+     */
+    public static CompiledPath compileExpression(String expression) {
+        CompiledPath compiled = EXPRESSIONS.get(expression);
+        if (compiled == null) {
+            compiled = parseExpression(expression.trim());
+            if (compiled != null) {
+                cache(EXPRESSIONS, expression, compiled);
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * Drop all cached paths
+     */
+    public static void clearCache() {
+        KEYS.clear();
+        EXPRESSIONS.clear();
+    }
+
+    /**
+     * @return number of currently cached paths
+     */
+    public static int cacheSize() {
+        return KEYS.size() + EXPRESSIONS.size();
+    }
+
+    private static void cache(ConcurrentMap<String, CompiledPath> cache, String key, CompiledPath compiled) {
+        if (cache.size() >= MAX_CACHE_SIZE) {
+            // Paths come from test code and data files, so overflow means unusual workload. Start over
+            cache.clear();
+        }
+        cache.putIfAbsent(key, compiled);
+    }
+
+    private static CompiledPath parseExpression(String expression) {
+        Matcher collectionMatcher = COLLECTION_PATTERN.matcher(expression);
+        if (collectionMatcher.matches()) {
+            return new CompiledPath(null, collectionMatcher.group(1), new String[0], new String[0], new int[0]);
+        }
+        Matcher pathMatcher = PATH_PATTERN.matcher(expression);
+        if (pathMatcher.matches()) {
+            return parseKey(pathMatcher.group(3), pathMatcher.group(1));
+        }
+        return null;
+    }
+
+    private static CompiledPath parseKey(String key, String collection) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        int dot;
+        while ((dot = key.indexOf('.', start)) >= 0) {
+            parts.add(key.substring(start, dot));
+            start = dot + 1;
+        }
+        parts.add(key.substring(start));
+        // Keep String.split semantics: trailing empty segments are dropped
+        int size = parts.size();
+        while (size > 0 && parts.get(size - 1).isEmpty()) {
+            size--;
+        }
+
+        String[] segments = new String[size];
+        String[] names = new String[size];
+        int[] indices = new int[size];
+        for (int i = 0; i < size; i++) {
+            String segment = parts.get(i);
+            segments[i] = segment;
+            indices[i] = parseIndex(segment);
+            names[i] = indices[i] == NO_INDEX ? segment : segment.substring(0, segment.lastIndexOf('['));
+        }
+        return new CompiledPath(key, collection, segments, names, indices);
+    }
+
+    /**
+     * Parse array index of segment like {@code name[12]}
+     *
+     * @param segment path segment
+     * @return index or {@link #NO_INDEX} if segment is not an array element
+     */
+    private static int parseIndex(String segment) {
+        int last = segment.length() - 1;
+        if (last < 3 || segment.charAt(last) != ']') {
+            return NO_INDEX;
+        }
+        int open = segment.lastIndexOf('[', last);
+        if (open < 1 || open == last - 1) {
+            return NO_INDEX;
+        }
+        long index = 0;
+        for (int i = open + 1; i < last; i++) {
+            char c = segment.charAt(i);
+            if (c < '0' || c > '9') {
+                return NO_INDEX;
+            }
+            index = Math.min(index * 10 + (c - '0'), Integer.MAX_VALUE);
+        }
+        return (int) index;
+    }
+
+    /**
+     * @return source key or null if expression addresses the whole collection
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return collection name from expression or null if path is relative
+     */
+    public String getCollection() {
+        return collection;
+    }
+
+    /**
+     * @return true if expression addresses the whole collection like {@code $Collection}
+     */
+    public boolean isCollectionOnly() {
+        return key == null;
+    }
+
+    /**
+     * @return true if source key consists of several segments
+     */
+    public boolean isComplex() {
+        return key != null && key.indexOf('.') >= 0;
+    }
+
+    /**
+     * @return number of segments
+     */
+    public int size() {
+        return segments.length;
+    }
+
+    /**
+     * @param i segment number
+     * @return raw segment like {@code b[3]}
+     */
+    public String getSegment(int i) {
+        return segments[i];
+    }
+
+    /**
+     * @param i segment number
+     * @return field name of segment without array index
+     */
+    public String getName(int i) {
+        return names[i];
+    }
+
+    /**
+     * @param i segment number
+     * @return array index of segment or {@link #NO_INDEX}
+     */
+    public int getIndex(int i) {
+        return indices[i];
+    }
+
+    /**
+     * @param i segment number
+     * @return true if segment addresses an array element
+     */
+    public boolean isArray(int i) {
+        return indices[i] != NO_INDEX;
+    }
+
+    /**
+     * @return last segment
+     */
+    public String getLastSegment() {
+        return segments[segments.length - 1];
+    }
+
+    /**
+     * Join segments from the first one to the given one inclusive. Intended for
+     * error messages, so it is built on demand
+     *
+     * @param i last segment number
+     * @return dotted partial path
+     */
+    public String getPrefix(int i) {
+        StringBuilder prefix = new StringBuilder(segments[0]);
+        for (int j = 1; j <= i; j++) {
+            prefix.append('.').append(segments[j]);
+        }
+        return prefix.toString();
+    }
+
+    @Override
+    public String toString() {
+        return key == null ? "$" + collection : key;
+    }
+}
@@ -0,0 +1,421 @@
+package ru.sbtqa.tag.datajack.providers;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import ru.sbtqa.tag.datajack.exceptions.CyclicReferencesException;
+import ru.sbtqa.tag.datajack.exceptions.DataException;
+import ru.sbtqa.tag.datajack.exceptions.FieldNotFoundException;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static java.lang.String.format;
+import static ru.sbtqa.tag.datajack.providers.AbstractDataProvider.REFERENCE_DEPTH_PROPERTY;
+
+/**
+ * Reusable navigation state over a provider tree. The cursor walks objects,
+ * arrays and references of a provider without creating intermediate provider
+ * instances. A {@link ru.sbtqa.tag.datajack.TestDataProvider} is created only
+ * by {@link #materialize()}, when the caller actually keeps the result.
+ * <p>
+ * Cursors are pooled per thread: take one with {@link #acquire(AbstractDataProvider)}
+ * and always return it with {@link #release()}.
+ * <p>
+ * References being resolved are tracked as a chain of (collection, path)
+ * targets. A target met twice in the chain is a cycle, and the chain length is
+ * bounded, so each hop costs the same regardless of document size
+ */
+final class NavigationCursor {
+
+    private static final ThreadLocal<NavigationCursor> CURSORS = ThreadLocal.withInitial(NavigationCursor::new);
+    private static final int DEFAULT_REFERENCE_DEPTH = 64;
+    private static final int MAX_REFERENCE_DEPTH = Integer.getInteger(REFERENCE_DEPTH_PROPERTY, DEFAULT_REFERENCE_DEPTH);
+
+    private boolean inUse;
+    private AbstractDataProvider owner;
+    private String collection;
+    private BasicDBObject object;
+    private String way;
+    private String path;
+    private String[] chainCollections = new String[8];
+    private String[] chainPaths = new String[8];
+    private int chainSize;
+    private int hops;
+    private BatchContext batch;
+
+    private NavigationCursor() {
+    }
+
+    /**
+     * Take cursor of current thread positioned at the given provider. Nested
+     * navigation (e.g. from generator callbacks) gets a fresh cursor
+     *
+     * @param provider provider to start from
+     * @return cursor
+     */
+    static NavigationCursor acquire(AbstractDataProvider provider) {
+        NavigationCursor cursor = CURSORS.get();
+        if (cursor.inUse) {
+            cursor = new NavigationCursor();
+        }
+        cursor.inUse = true;
+        cursor.owner = provider;
+        cursor.collection = provider.collectionName;
+        cursor.object = provider.basicObject;
+        cursor.way = provider.way;
+        cursor.path = provider.path;
+        cursor.chainSize = 0;
+        return cursor;
+    }
+
+    /**
+     * Return cursor to the pool of current thread
+     */
+    void release() {
+        inUse = false;
+        owner = null;
+        collection = null;
+        object = null;
+        way = null;
+        path = null;
+        batch = null;
+        Arrays.fill(chainCollections, 0, chainSize, null);
+        Arrays.fill(chainPaths, 0, chainSize, null);
+        chainSize = 0;
+        hops = 0;
+    }
+
+    /**
+     * Position cursor at the given object of the same collection, starting a new reference chain
+     *
+     * @param object object to position at
+     * @param way way to object
+     */
+    void reset(BasicDBObject object, String way) {
+        this.object = object;
+        this.way = way;
+        this.path = null;
+    }
+
+    /**
+     * Position cursor at the given object of another collection
+     *
+     * @param object object to position at
+     * @param way way to object
+     * @param collection collection of object
+     */
+    void reset(BasicDBObject object, String way, String collection) {
+        reset(object, way);
+        this.collection = collection;
+    }
+
+    /**
+     * Share walked prefixes and resolved references with other lookups of a batch
+     *
+     * @param batch batch state
+     */
+    void setBatch(BatchContext batch) {
+        this.batch = batch;
+    }
+
+    BasicDBObject getObject() {
+        return object;
+    }
+
+    String getWay() {
+        return way;
+    }
+
+    String getPath() {
+        return path;
+    }
+
+    String getCollection() {
+        return collection;
+    }
+
+    boolean isReference() {
+        return owner.isReference(object);
+    }
+
+    /**
+     * Move cursor by key. Single-segment keys resolve a reference they point
+     * to, dotted keys stop at it
+     *
+     * @param compiledPath key to move by
+     * @throws DataException if there is no such key
+     */
+    void get(CompiledPath compiledPath) throws DataException {
+        if (compiledPath.size() == 0) {
+            return;
+        }
+        if (compiledPath.isComplex()) {
+            getComplex(compiledPath);
+        } else {
+            getSimple(compiledPath);
+        }
+    }
+
+    /**
+     * Replace current position with the position the current reference points to
+     *
+     * @throws DataException if reference could not be resolved
+     */
+    void followReference() throws DataException {
+        String targetCollection = owner.getReferenceCollection(object, collection);
+        String targetPath = owner.getReferencePath(object);
+        enterReference(targetCollection, targetPath);
+        int hop = ++hops;
+
+        if (batch != null) {
+            ReferenceCache.Target target = batch.getReference(targetCollection, targetPath);
+            if (target != null) {
+                moveTo(target);
+                return;
+            }
+        }
+
+        BasicDBObject root = owner.getCollectionObject(targetCollection);
+        boolean cacheable = owner.isReferenceCacheable();
+        if (cacheable) {
+            ReferenceCache.Target target = ReferenceCache.getInstance().get(root, targetPath);
+            if (target != null) {
+                moveTo(target);
+                if (batch != null) {
+                    batch.putReference(targetCollection, targetPath, target);
+                }
+                return;
+            }
+        }
+
+        object = root;
+        collection = targetCollection;
+        way = null;
+        path = null;
+        get(CompiledPath.compile(targetPath));
+
+        // A chain is cached hop by hop: the entry of its first hop would be
+        // keyed by the first collection only and outlive reloads of the others
+        boolean singleHop = hops == hop;
+        if ((cacheable && singleHop) || batch != null) {
+            ReferenceCache.Target target = new ReferenceCache.Target(collection, object, way, path);
+            if (cacheable && singleHop) {
+                ReferenceCache.getInstance().put(root, targetPath, target);
+            }
+            if (batch != null) {
+                batch.putReference(targetCollection, targetPath, target);
+            }
+        }
+    }
+
+    private void moveTo(ReferenceCache.Target target) {
+        collection = target.collection;
+        object = target.object;
+        way = target.way;
+        path = target.path;
+    }
+
+    /**
+     * Create provider for current position
+     *
+     * @param <T> provider type
+     * @return provider instance
+     * @throws DataException if provider could not be created
+     */
+    <T extends AbstractDataProvider> T materialize() throws DataException {
+        T dataProvider = owner.createInstance(object, collection, way);
+        dataProvider.inheritGenerator(owner);
+        dataProvider.setRootObject(null, path);
+        return dataProvider;
+    }
+
+    private void enterReference(String targetCollection, String targetPath) throws DataException {
+        for (int i = 0; i < chainSize; i++) {
+            if (targetPath.equals(chainPaths[i]) && targetCollection.equals(chainCollections[i])) {
+                throw new CyclicReferencesException("Cyclic references in database:\n" + object.toJson());
+            }
+        }
+        if (chainSize == MAX_REFERENCE_DEPTH) {
+            throw new CyclicReferencesException(format("Reference chain is longer than %d references, stopped at:\n%s",
+                    MAX_REFERENCE_DEPTH, object.toJson()));
+        }
+        if (chainSize == chainPaths.length) {
+            chainCollections = Arrays.copyOf(chainCollections, chainSize * 2);
+            chainPaths = Arrays.copyOf(chainPaths, chainSize * 2);
+        }
+        chainCollections[chainSize] = targetCollection;
+        chainPaths[chainSize] = targetPath;
+        chainSize++;
+    }
+
+    private void getSimple(CompiledPath compiledPath) throws DataException {
+        String key = compiledPath.getKey();
+        Object result;
+
+        if (compiledPath.isArray(0)) {
+            result = getArrayElement(object, compiledPath, 0);
+        } else {
+            if (!object.containsField(key)) {
+                throw new FieldNotFoundException(format("Collection \"%s\" doesn't contain \"%s\" field in path \"%s\"",
+                        collection, key, path));
+            }
+            result = object.get(key);
+        }
+        moveToValue(key, result);
+    }
+
+    /**
+     * Move cursor to an element of array the cursor is positioned at, as
+     * {@code get("name[index]")} would do without parsing the key
+     *
+     * @param name array field name
+     * @param index element index
+     * @param element element value
+     * @throws DataException if element is a reference that could not be resolved
+     */
+    void getElement(String name, int index, Object element) throws DataException {
+        // The cursor is at the array field, elements are keyed from the object holding it
+        if (path != null && path.endsWith("." + name)) {
+            path = path.substring(0, path.length() - name.length() - 1);
+        }
+        moveToValue(name + "[" + index + "]", element);
+    }
+
+    private void moveToValue(String key, Object result) throws DataException {
+        path = (path != null ? path : collection) + "." + key;
+        way = key;
+        object = result instanceof BasicDBObject ? (BasicDBObject) result : new BasicDBObject(key, result);
+        if (isReference()) {
+            followReference();
+        }
+    }
+
+    private void getComplex(CompiledPath compiledPath) throws DataException {
+        BasicDBObject indexed = PathIndexCache.getInstance().find(owner, collection, object,
+                way == null && path == null, compiledPath.getKey());
+        if (indexed != null) {
+            object = indexed;
+            way = compiledPath.getKey();
+            path = collection + "." + compiledPath.getKey();
+            return;
+        }
+
+        int last = compiledPath.size() - 1;
+        BasicDBObject current = object;
+        int first = 0;
+        Map<String, BasicDBObject> prefixes = null;
+
+        if (batch != null) {
+            prefixes = batch.getPrefixes(object);
+            for (int i = last - 1; i >= 0; i--) {
+                BasicDBObject walked = prefixes.get(compiledPath.getPrefix(i));
+                if (walked != null) {
+                    current = walked;
+                    first = i + 1;
+                    break;
+                }
+            }
+        }
+
+        for (int i = first; i <= last; i++) {
+            String partialKey = compiledPath.getSegment(i);
+
+            if (compiledPath.isArray(i)) {
+                Object element = getArrayElement(current, compiledPath, i);
+                current = element instanceof BasicDBObject
+                        ? (BasicDBObject) element
+                        : new BasicDBObject(partialKey, element);
+                if (prefixes != null && i < last) {
+                    prefixes.put(compiledPath.getPrefix(i), current);
+                }
+                continue;
+            }
+
+            if (owner.isReference(current)) {
+                current = resolveInline(current);
+            }
+
+            Object currentValue = current.get(partialKey);
+            if (!(currentValue instanceof BasicDBObject)) {
+                if (null == currentValue || i < last) {
+                    String wrongField = currentValue == null ? partialKey : compiledPath.getLastSegment();
+
+                    throw new FieldNotFoundException(format("Collection \"%s\" doesn't contain \"%s\" field on path \"%s\"",
+                            collection, wrongField, compiledPath.getPrefix(i)));
+                }
+                break;
+            }
+            current = (BasicDBObject) currentValue;
+            if (prefixes != null && i < last) {
+                prefixes.put(compiledPath.getPrefix(i), current);
+            }
+        }
+
+        object = current;
+        way = compiledPath.getKey();
+        path = collection + "." + compiledPath.getKey();
+    }
+
+    private Object getArrayElement(BasicDBObject current, CompiledPath compiledPath, int segment) throws DataException {
+        String arrayKey = compiledPath.getName(segment);
+        Object listCandidate = current.get(arrayKey);
+
+        // If object passed by key is a reference to array, replace current context by referenced one
+        if (listCandidate instanceof BasicDBObject && owner.isReference((BasicDBObject) listCandidate)) {
+            String savedWay = way;
+            BasicDBObject resolved = resolveInline((BasicDBObject) listCandidate);
+            String tail = tail(way);
+            way = savedWay;
+            listCandidate = resolved.get(tail);
+        }
+
+        if (!(listCandidate instanceof BasicDBList)) {
+            throw new DataException(format("%s.%s is not an array!", collection, compiledPath.getSegment(segment)));
+        }
+
+        BasicDBList list = (BasicDBList) listCandidate;
+        int index = compiledPath.getIndex(segment);
+        return index < list.size() ? list.get(index) : null;
+    }
+
+    /**
+     * Resolve reference met in the middle of a path. References resolved here
+     * are dropped from the chain afterwards, the rest of cursor state is left
+     * untouched
+     *
+     * @param reference reference object
+     * @return referenced object
+     * @throws DataException if reference could not be resolved
+     */
+    private BasicDBObject resolveInline(BasicDBObject reference) throws DataException {
+        String savedCollection = collection;
+        String savedPath = path;
+        int savedChainSize = chainSize;
+
+        object = reference;
+        followReference();
+        BasicDBObject resolved = object;
+
+        collection = savedCollection;
+        path = savedPath;
+        chainSize = savedChainSize;
+        return resolved;
+    }
+
+    /**
+     * Get after last dot string value
+     *
+     * @param way dotted way
+     * @return tail or null
+     */
+    static String tail(String way) {
+        if (way == null) {
+            return null;
+        }
+        int end = way.length();
+        while (end > 0 && way.charAt(end - 1) == '.') {
+            end--;
+        }
+        return way.substring(way.lastIndexOf('.', end - 1) + 1, end);
+    }
+}
@@ -0,0 +1,180 @@
+package ru.sbtqa.tag.datajack.providers;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Flattened index of a collection tree. Every dotted key like {@code a.b[3].c}
+ * reachable from the root without crossing a reference is mapped to the node
+ * navigation stops at for that key, so a deep lookup costs a single hash
+ * probe. Keys that pass through references, missing fields or null values are
+ * not indexed and are navigated as usual, so lookups behave exactly like
+ * without the index.
+ * <p>
+ * The index holds the nodes of the tree it was built from and must be dropped
+ * when the tree changes, see {@link PathIndexCache}
+ */
+public final class PathIndex {
+
+    // Rough sizes with compressed oops: hash map node, string with its char array
+    // header, and a one-field BasicDBObject wrapping a primitive array element
+    private static final int NODE_BYTES = 32;
+    private static final int STRING_BYTES = 40;
+    private static final int WRAPPER_BYTES = 176;
+
+    private final String collectionName;
+    private final Map<String, BasicDBObject> nodes;
+    private final long memoryEstimate;
+
+    private PathIndex(String collectionName, Map<String, BasicDBObject> nodes, long memoryEstimate) {
+        this.collectionName = collectionName;
+        this.nodes = nodes;
+        this.memoryEstimate = memoryEstimate;
+    }
+
+    /**
+     * Index all keys of the tree. Parallel build indexes top-level fields of
+     * the root in the common fork-join pool
+     *
+     * @param collectionName collection of the tree
+     * @param root root object of the tree
+     * @param isReference tells references, which are not walked into
+     * @param parallel whether to build in parallel
+     * @return index of the tree
+     */
+    static PathIndex build(String collectionName, BasicDBObject root, Predicate<BasicDBObject> isReference, boolean parallel) {
+        Builder builder;
+        if (isReference.test(root)) {
+            builder = new Builder(isReference);
+        } else {
+            List<String> keys = new ArrayList<>(root.keySet());
+            builder = (parallel ? keys.parallelStream() : keys.stream()).collect(
+                    () -> new Builder(isReference),
+                    (partial, key) -> partial.indexField(root, null, key),
+                    Builder::merge);
+        }
+        return new PathIndex(collectionName, Collections.unmodifiableMap(builder.nodes), builder.estimateMemory());
+    }
+
+    /**
+     * @return name of indexed collection
+     */
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    /**
+     * @return number of indexed keys
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Estimate heap taken by the index itself, not counting the tree nodes it
+     * points to
+     *
+     * @return approximate size in bytes
+     */
+    public long getMemoryEstimate() {
+        return memoryEstimate;
+    }
+
+    /**
+     * Get node navigation of a dotted key stops at: the object the key points
+     * to, or the parent of a leaf value
+     *
+     * @param key dotted key
+     * @return node or null if key is not indexed
+     */
+    BasicDBObject get(String key) {
+        return nodes.get(key);
+    }
+
+    private static final class Builder {
+
+        private final Predicate<BasicDBObject> isReference;
+        private final Map<String, BasicDBObject> nodes = new HashMap<>();
+        private long keyChars;
+        private int wrappers;
+
+        private Builder(Predicate<BasicDBObject> isReference) {
+            this.isReference = isReference;
+        }
+
+        private void indexObject(BasicDBObject object, String way) {
+            if (isReference.test(object)) {
+                return;
+            }
+            for (String key : object.keySet()) {
+                indexField(object, way, key);
+            }
+        }
+
+        private void indexField(BasicDBObject parent, String parentWay, String key) {
+            Object value = parent.get(key);
+            if (value == null || !isIndexable(key)) {
+                return;
+            }
+            String way = parentWay == null ? key : parentWay + '.' + key;
+            if (value instanceof BasicDBObject) {
+                put(way, (BasicDBObject) value);
+                indexObject((BasicDBObject) value, way);
+            } else {
+                put(way, parent);
+                if (value instanceof BasicDBList) {
+                    indexArray((BasicDBList) value, way, key);
+                }
+            }
+        }
+
+        private void indexArray(BasicDBList list, String way, String key) {
+            for (int i = 0; i < list.size(); i++) {
+                Object element = list.get(i);
+                String segment = key + '[' + i + ']';
+                String elementWay = way + '[' + i + ']';
+                if (element instanceof BasicDBObject) {
+                    put(elementWay, (BasicDBObject) element);
+                    indexObject((BasicDBObject) element, elementWay);
+                } else if (elementWay.indexOf('.') >= 0) {
+                    put(elementWay, new BasicDBObject(segment, element));
+                    wrappers++;
+                }
+            }
+        }
+
+        private void put(String way, BasicDBObject node) {
+            // Single segment keys are looked up directly in the root
+            if (way.indexOf('.') >= 0) {
+                nodes.put(way, node);
+                keyChars += way.length();
+            }
+        }
+
+        /**
+         * Keys that would be split or read as array elements by path parser
+         * can't be addressed by the indexed way
+         */
+        private static boolean isIndexable(String key) {
+            return !key.isEmpty() && key.indexOf('.') < 0 && !key.endsWith("]");
+        }
+
+        private void merge(Builder other) {
+            nodes.putAll(other.nodes);
+            keyChars += other.keyChars;
+            wrappers += other.wrappers;
+        }
+
+        private long estimateMemory() {
+            long table = Integer.highestOneBit(Math.max(1, nodes.size() * 4 / 3)) * 2L * 4;
+            return table + (long) nodes.size() * (NODE_BYTES + STRING_BYTES) + keyChars * 2 + (long) wrappers * WRAPPER_BYTES;
+        }
+    }
+}
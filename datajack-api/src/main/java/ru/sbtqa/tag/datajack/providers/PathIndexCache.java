@@ -0,0 +1,245 @@
+package ru.sbtqa.tag.datajack.providers;
+
+import com.mongodb.BasicDBObject;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Process-wide table of {@link PathIndex path indexes}. Indexes are attached to
+ * root objects of collections and compared by identity, like in
+ * {@link ReferenceCache}: a reloaded collection never matches an old index,
+ * and {@link CollectionCache} drops it with {@link #invalidate(BasicDBObject)}.
+ * <p>
+ * Indexes are built either explicitly by
+ * {@link AbstractDataProvider#indexPaths(boolean)} or on first lookup in
+ * collections enabled with {@link #enable(String)} or
+ * {@link #INDEXED_COLLECTIONS_PROPERTY}. Automatic indexing only applies to
+ * providers whose collections are shared until reloaded
+ */
+public final class PathIndexCache {
+
+    /**
+     * System property with comma separated names of collections to index on
+     * first lookup, {@code *} indexes all collections
+     */
+    public static final String INDEXED_COLLECTIONS_PROPERTY = "datajack.path.index.collections";
+
+    /**
+     * System property to build automatic indexes in parallel
+     */
+    public static final String PARALLEL_PROPERTY = "datajack.path.index.parallel";
+
+    /**
+     * System property to override maximum number of kept indexes. Zero
+     * disables indexing
+     */
+    public static final String CACHE_SIZE_PROPERTY = "datajack.path.index.cache.size";
+
+    private static final String ALL_COLLECTIONS = "*";
+    private static final int DEFAULT_CACHE_SIZE = 64;
+    private static final PathIndexCache INSTANCE = new PathIndexCache(Integer.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE),
+            System.getProperty(INDEXED_COLLECTIONS_PROPERTY, ""), Boolean.getBoolean(PARALLEL_PROPERTY));
+
+    private final ConcurrentMap<Key, PathIndex> indexes = new ConcurrentHashMap<>();
+    private final Set<String> enabled = ConcurrentHashMap.newKeySet();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final boolean parallel;
+    private volatile int maxSize;
+
+    private PathIndexCache(int maxSize, String indexedCollections, boolean parallel) {
+        this.maxSize = maxSize;
+        this.parallel = parallel;
+        for (String collectionName : indexedCollections.split(",")) {
+            if (!collectionName.trim().isEmpty()) {
+                enabled.add(collectionName.trim());
+            }
+        }
+    }
+
+    /**
+     * @return shared cache instance
+     */
+    public static PathIndexCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Index collection on first lookup
+     *
+     * @param collectionName collection name or {@code *} for all collections
+     */
+    public void enable(String collectionName) {
+        enabled.add(collectionName);
+    }
+
+    /**
+     * Stop indexing collection on lookup and drop its indexes
+     *
+     * @param collectionName collection name or {@code *} for all collections
+     */
+    public void disable(String collectionName) {
+        enabled.remove(collectionName);
+        indexes.values().removeIf(index -> ALL_COLLECTIONS.equals(collectionName)
+                || collectionName.equals(index.getCollectionName()));
+    }
+
+    /**
+     * @param collectionName collection name
+     * @return true if collection is indexed on first lookup
+     */
+    public boolean isEnabled(String collectionName) {
+        return enabled.contains(collectionName) || enabled.contains(ALL_COLLECTIONS);
+    }
+
+    /**
+     * Drop index of collection
+     *
+     * @param root root object of collection
+     */
+    public void invalidate(BasicDBObject root) {
+        if (!indexes.isEmpty()) {
+            indexes.remove(new Key(root));
+        }
+    }
+
+    /**
+     * Drop all indexes and reset statistics. Enabled collections stay enabled
+     */
+    public void clear() {
+        indexes.clear();
+        hits.reset();
+        misses.reset();
+    }
+
+    /**
+     * Set maximum number of kept indexes
+     *
+     * @param maxSize maximum number of indexes, zero disables indexing
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        if (indexes.size() > Math.max(maxSize, 0)) {
+            indexes.clear();
+        }
+    }
+
+    /**
+     * @return maximum number of kept indexes
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return number of kept indexes
+     */
+    public int size() {
+        return indexes.size();
+    }
+
+    /**
+     * @return estimated heap taken by all kept indexes in bytes
+     */
+    public long getMemoryEstimate() {
+        return indexes.values().stream().mapToLong(PathIndex::getMemoryEstimate).sum();
+    }
+
+    /**
+     * @return number of lookups served by an index
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of lookups in indexed collections that were navigated
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get index of the tree, building it if there is none
+     *
+     * @param collectionName collection of the tree
+     * @param root root object of the tree
+     * @param isReference tells references, which are not indexed through
+     * @param parallel whether to build in parallel
+     * @return index of the tree
+     */
+    PathIndex index(String collectionName, BasicDBObject root, Predicate<BasicDBObject> isReference, boolean parallel) {
+        Key key = new Key(root);
+        PathIndex index = indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+        index = PathIndex.build(collectionName, root, isReference, parallel);
+        if (maxSize > 0) {
+            if (indexes.size() >= maxSize) {
+                // Indexes are rebuilt from the trees, so overflow just starts over
+                indexes.clear();
+            }
+            PathIndex previous = indexes.putIfAbsent(key, index);
+            if (previous != null) {
+                return previous;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Find node of dotted key in index of the tree
+     *
+     * @param owner provider navigating the tree
+     * @param collectionName collection of the tree
+     * @param root object navigation starts from
+     * @param atRoot whether the object is a collection root, so it may be
+     * indexed automatically
+     * @param key dotted key
+     * @return node navigation stops at or null if there is no index or key is
+     * not indexed
+     */
+    BasicDBObject find(AbstractDataProvider owner, String collectionName, BasicDBObject root, boolean atRoot, String key) {
+        if (indexes.isEmpty() && enabled.isEmpty()) {
+            return null;
+        }
+        PathIndex index = indexes.get(new Key(root));
+        if (index == null) {
+            if (!atRoot || maxSize <= 0 || !isEnabled(collectionName) || !owner.isReferenceCacheable()) {
+                return null;
+            }
+            index = index(collectionName, root, owner::isReference, parallel);
+        }
+        BasicDBObject node = index.get(key);
+        if (node == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return node;
+    }
+
+    private static final class Key {
+
+        private final BasicDBObject root;
+
+        private Key(BasicDBObject root) {
+            this.root = root;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof Key && root == ((Key) o).root;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(root);
+        }
+    }
+}
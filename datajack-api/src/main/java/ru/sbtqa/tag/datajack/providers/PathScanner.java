@@ -0,0 +1,162 @@
+package ru.sbtqa.tag.datajack.providers;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * Lazy depth-first scan of dotted keys under a pattern. Pattern segments are
+ * matched against the tree: {@code *} matches any field, {@code name[*]} any
+ * element of array {@code name} and {@code name[3]} a single element. Every
+ * non-null value under the matched nodes is reported by its key, in document
+ * order. References are reported as values and never walked into, and fields
+ * whose names can't be addressed by a dotted key are skipped.
+ * <p>
+ * The tree itself serves as the prefix index: each pattern segment costs one
+ * field lookup, and only the part of the tree that is actually iterated is
+ * visited
+ */
+final class PathScanner implements Iterator<String> {
+
+    private static final String ANY = "*";
+    private static final String ANY_ELEMENT = "[*]";
+    private static final int NO_INDEX = CompiledPath.NO_INDEX;
+    private static final int ANY_INDEX = -2;
+
+    private final Predicate<BasicDBObject> isReference;
+    private final String[] names;
+    private final int[] indices;
+    private final Deque<Frame> stack = new ArrayDeque<>();
+    private String next;
+
+    /**
+     * @param root object to scan
+     * @param pattern dotted pattern, empty to scan the whole object
+     * @param isReference tells references, which are not walked into
+     */
+    PathScanner(BasicDBObject root, String pattern, Predicate<BasicDBObject> isReference) {
+        this.isReference = isReference;
+        // Segments and indices are split the same way as keys, only [*] is left to the scanner
+        CompiledPath path = CompiledPath.compile(pattern);
+        this.names = new String[path.size()];
+        this.indices = new int[path.size()];
+        for (int i = 0; i < path.size(); i++) {
+            String segment = path.getSegment(i);
+            if (!path.isArray(i) && segment.length() > ANY_ELEMENT.length() && segment.endsWith(ANY_ELEMENT)) {
+                names[i] = segment.substring(0, segment.length() - ANY_ELEMENT.length());
+                indices[i] = ANY_INDEX;
+            } else {
+                names[i] = path.getName(i);
+                indices[i] = path.getIndex(i);
+            }
+        }
+        stack.push(new Frame(root, null, 0));
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && !stack.isEmpty()) {
+            next = advance(stack.pop());
+        }
+        return next != null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String result = next;
+        next = null;
+        return result;
+    }
+
+    /**
+     * Expand frame, pushing its children
+     *
+     * @return key to report or null
+     */
+    private String advance(Frame frame) {
+        Object node = frame.node;
+        // Elements of nested arrays can't be addressed deeper than the element itself
+        boolean expandable = node instanceof BasicDBList && !frame.way.endsWith("]")
+                || node instanceof BasicDBObject && !isReference.test((BasicDBObject) node);
+
+        if (frame.depth == names.length) {
+            if (!expandable) {
+                return frame.way;
+            }
+            pushChildren(node, frame.way, frame.depth, null, NO_INDEX);
+        } else if (node instanceof BasicDBObject && expandable) {
+            pushChildren(node, frame.way, frame.depth + 1, names[frame.depth], indices[frame.depth]);
+        }
+        return null;
+    }
+
+    private void pushChildren(Object node, String way, int depth, String name, int index) {
+        List<Frame> children = new ArrayList<>();
+        if (node instanceof BasicDBList) {
+            addElements(children, (BasicDBList) node, way, ANY_INDEX, depth);
+        } else {
+            BasicDBObject object = (BasicDBObject) node;
+            if (name == null || ANY.equals(name)) {
+                for (String key : object.keySet()) {
+                    addField(children, object.get(key), way, key, index, depth);
+                }
+            } else if (object.containsField(name)) {
+                addField(children, object.get(name), way, name, index, depth);
+            }
+        }
+        for (int i = children.size() - 1; i >= 0; i--) {
+            stack.push(children.get(i));
+        }
+    }
+
+    private void addField(List<Frame> children, Object value, String way, String key, int index, int depth) {
+        if (value == null || key.isEmpty() || key.indexOf('.') >= 0 || key.endsWith("]")) {
+            return;
+        }
+        String fieldWay = way == null ? key : way + "." + key;
+        if (index == NO_INDEX) {
+            children.add(new Frame(value, fieldWay, depth));
+        } else if (value instanceof BasicDBList) {
+            addElements(children, (BasicDBList) value, fieldWay, index, depth);
+        }
+    }
+
+    private static void addElements(List<Frame> children, BasicDBList list, String way, int index, int depth) {
+        if (index == ANY_INDEX) {
+            for (int i = 0; i < list.size(); i++) {
+                addElement(children, list.get(i), way, i, depth);
+            }
+        } else if (index < list.size()) {
+            addElement(children, list.get(index), way, index, depth);
+        }
+    }
+
+    private static void addElement(List<Frame> children, Object element, String way, int i, int depth) {
+        if (element != null) {
+            children.add(new Frame(element, way + "[" + i + "]", depth));
+        }
+    }
+
+    private static final class Frame {
+
+        private final Object node;
+        private final String way;
+        private final int depth;
+
+        private Frame(Object node, String way, int depth) {
+            this.node = node;
+            this.way = way;
+            this.depth = depth;
+        }
+    }
+}
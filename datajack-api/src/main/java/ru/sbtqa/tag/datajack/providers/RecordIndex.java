@@ -0,0 +1,200 @@
+package ru.sbtqa.tag.datajack.providers;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Secondary index over one field of array records. Hash indexes answer
+ * equality lookups, sorted ones equality and range lookups. Positions are
+ * returned in array order.
+ * <p>
+ * Field values are normalized with {@link #key(Object)}: numbers become
+ * {@link BigDecimal} without trailing zeros, anything else its string form.
+ * Numbers sort before strings, and ranges never cross kinds
+ */
+final class RecordIndex {
+
+    private static final int[] NONE = new int[0];
+
+    private final Map<Object, int[]> hash;
+    private final Object[] keys;
+    private final int[][] positions;
+    private final int numbers;
+
+    private RecordIndex(Map<Object, int[]> hash, Object[] keys, int[][] positions, int numbers) {
+        this.hash = hash;
+        this.keys = keys;
+        this.positions = positions;
+        this.numbers = numbers;
+    }
+
+    /**
+     * @param values normalized field value of every record, null if missing
+     * @return hash index
+     */
+    static RecordIndex hash(Object[] values) {
+        Map<Object, List<Integer>> groups = group(values);
+        Map<Object, int[]> hash = new HashMap<>(groups.size() * 4 / 3 + 1);
+        groups.forEach((key, group) -> hash.put(key, toArray(group)));
+        return new RecordIndex(hash, null, null, 0);
+    }
+
+    /**
+     * @param values normalized field value of every record, null if missing
+     * @return sorted index, missing values are not indexed
+     */
+    static RecordIndex sorted(Object[] values) {
+        Map<Object, List<Integer>> groups = group(values);
+        groups.remove(null);
+        Object[] keys = groups.keySet().toArray();
+        Arrays.sort(keys, RecordIndex::compare);
+        int[][] positions = new int[keys.length][];
+        int numbers = 0;
+        for (int i = 0; i < keys.length; i++) {
+            positions[i] = toArray(groups.get(keys[i]));
+            if (keys[i] instanceof BigDecimal) {
+                numbers++;
+            }
+        }
+        return new RecordIndex(null, keys, positions, numbers);
+    }
+
+    /**
+     * @param key normalized value
+     * @return positions of records with the value
+     */
+    int[] equal(Object key) {
+        if (hash != null) {
+            int[] found = hash.get(key);
+            return found == null ? NONE : found;
+        }
+        if (key == null) {
+            throw new IllegalStateException("Sorted index doesn't contain missing values");
+        }
+        int found = Arrays.binarySearch(keys, key, RecordIndex::compare);
+        return found < 0 ? NONE : positions[found];
+    }
+
+    /**
+     * @param from normalized inclusive lower bound or null
+     * @param to normalized inclusive upper bound or null
+     * @return positions of records within bounds
+     */
+    int[] range(Object from, Object to) {
+        if (from != null && to != null && !isSameKind(from, to)) {
+            return NONE;
+        }
+        Object kind = from != null ? from : to;
+        int start = kind == null || kind instanceof BigDecimal ? 0 : numbers;
+        int end = kind == null || !(kind instanceof BigDecimal) ? keys.length : numbers;
+        if (from != null) {
+            start = Math.max(start, lowerBound(from));
+        }
+        if (to != null) {
+            end = Math.min(end, upperBound(to));
+        }
+
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            count += positions[i].length;
+        }
+        int[] result = new int[count];
+        int offset = 0;
+        for (int i = start; i < end; i++) {
+            System.arraycopy(positions[i], 0, result, offset, positions[i].length);
+            offset += positions[i].length;
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private int lowerBound(Object key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(keys[middle], key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int upperBound(Object key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(keys[middle], key) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Normalize value for comparison
+     *
+     * @param value raw value
+     * @return {@link BigDecimal} for numbers, string form otherwise, null for null
+     */
+    static Object key(Object value) {
+        if (value == null) {
+            return null;
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return BigDecimal.valueOf(((Number) value).longValue()).stripTrailingZeros();
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            return Double.isNaN(number) || Double.isInfinite(number)
+                    ? value.toString()
+                    : BigDecimal.valueOf(number).stripTrailingZeros();
+        } else if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).stripTrailingZeros();
+        } else if (value instanceof BigInteger) {
+            return new BigDecimal((BigInteger) value).stripTrailingZeros();
+        }
+        return value.toString();
+    }
+
+    /**
+     * @return true if both normalized values are numbers or both are strings
+     */
+    static boolean isSameKind(Object first, Object second) {
+        return first instanceof BigDecimal == second instanceof BigDecimal;
+    }
+
+    /**
+     * Order normalized values: numbers by value, then strings
+     */
+    static int compare(Object first, Object second) {
+        if (first instanceof BigDecimal) {
+            return second instanceof BigDecimal ? ((BigDecimal) first).compareTo((BigDecimal) second) : -1;
+        }
+        return second instanceof BigDecimal ? 1 : ((String) first).compareTo((String) second);
+    }
+
+    private static Map<Object, List<Integer>> group(Object[] values) {
+        Map<Object, List<Integer>> groups = new HashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            groups.computeIfAbsent(values[i], key -> new ArrayList<>(1)).add(i);
+        }
+        return groups;
+    }
+
+    private static int[] toArray(List<Integer> group) {
+        int[] array = new int[group.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = group.get(i);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,175 @@
+package ru.sbtqa.tag.datajack.providers;
+
+import com.mongodb.BasicDBObject;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide table of resolved references. Entries map a root object of the
+ * referenced collection and a path inside of it to the node the path leads to,
+ * so shared blocks referenced many times are navigated once.
+ * <p>
+ * Root objects are compared by identity: when a collection is reloaded its new
+ * root object never matches old entries, and {@link CollectionCache} drops
+ * them with {@link #invalidate(BasicDBObject)}. Entries are single hops that
+ * do not pass other references, a chain is resolved hop by hop, so each
+ * collection of the chain is checked for reloads
+ */
+public final class ReferenceCache {
+
+    /**
+     * System property to override maximum number of cached references. Zero
+     * disables caching
+     */
+    public static final String CACHE_SIZE_PROPERTY = "datajack.reference.cache.size";
+
+    private static final int DEFAULT_CACHE_SIZE = 4096;
+    private static final ReferenceCache INSTANCE = new ReferenceCache(Integer.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE));
+
+    private final ConcurrentMap<Key, Target> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile int maxSize;
+
+    private ReferenceCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return shared cache instance
+     */
+    public static ReferenceCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Drop references resolved inside of the given collection
+     *
+     * @param root root object of collection
+     */
+    public void invalidate(BasicDBObject root) {
+        entries.keySet().removeIf(key -> key.root == root);
+    }
+
+    /**
+     * Drop all cached references and reset statistics
+     */
+    public void clear() {
+        entries.clear();
+        hits.reset();
+        misses.reset();
+    }
+
+    /**
+     * Set maximum number of cached references
+     *
+     * @param maxSize maximum number of references, zero disables caching
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        if (entries.size() > Math.max(maxSize, 0)) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * @return maximum number of cached references
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return number of cached references
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return number of references served from cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of references that were navigated
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    Target get(BasicDBObject root, String path) {
+        if (maxSize <= 0) {
+            misses.increment();
+            return null;
+        }
+        Target target = entries.get(new Key(root, path));
+        if (target == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return target;
+    }
+
+    void put(BasicDBObject root, String path, Target target) {
+        if (maxSize <= 0) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            // Entries are cheap to rebuild, so overflow just starts over
+            entries.clear();
+        }
+        entries.put(new Key(root, path), target);
+    }
+
+    /**
+     * Navigation state at the referenced node
+     */
+    static final class Target {
+
+        final String collection;
+        final BasicDBObject object;
+        final String way;
+        final String path;
+
+        Target(String collection, BasicDBObject object, String way, String path) {
+            this.collection = collection;
+            this.object = object;
+            this.way = way;
+            this.path = path;
+        }
+    }
+
+    private static final class Key {
+
+        private final BasicDBObject root;
+        private final String path;
+
+        private Key(BasicDBObject root, String path) {
+            this.root = root;
+            this.path = path;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return root == key.root && path.equals(key.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(root) + path.hashCode();
+        }
+    }
+}
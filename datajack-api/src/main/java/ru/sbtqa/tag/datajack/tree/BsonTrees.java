@@ -0,0 +1,87 @@
+package ru.sbtqa.tag.datajack.tree;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import org.bson.BSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Adapter between {@link BasicDBObject} trees produced by providers and
+ * compact trees
+ */
+public final class BsonTrees {
+
+    private BsonTrees() {
+    }
+
+    /**
+     * Copy object tree into compact form. Objects of the same shape share one
+     * {@link KeyTable} within the tree
+     *
+     * @param object object to copy
+     * @return compact object
+     */
+    public static CompactObject toCompact(BSONObject object) {
+        return toCompact(object, new HashMap<>());
+    }
+
+    private static CompactObject toCompact(BSONObject object, Map<KeyTable, KeyTable> tables) {
+        Map<?, ?> map = object.toMap();
+        String[] keys = new String[map.size()];
+        Object[] values = new Object[map.size()];
+        int i = 0;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            keys[i] = (String) entry.getKey();
+            values[i] = toCompactValue(entry.getValue(), tables);
+            i++;
+        }
+        KeyTable table = KeyTable.of(keys);
+        KeyTable shared = tables.putIfAbsent(table, table);
+        return new CompactObject(shared == null ? table : shared, values);
+    }
+
+    /**
+     * Copy compact tree back into {@link BasicDBObject} form
+     *
+     * @param object compact object
+     * @return basic object
+     */
+    public static BasicDBObject toBson(CompactObject object) {
+        BasicDBObject result = new BasicDBObject();
+        for (int i = 0; i < object.size(); i++) {
+            result.put(object.getKey(i), toBsonValue(object.getValue(i)));
+        }
+        return result;
+    }
+
+    private static Object toCompactValue(Object value, Map<KeyTable, KeyTable> tables) {
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            List<Object> elements = new ArrayList<>(list.size());
+            for (Object element : list) {
+                elements.add(toCompactValue(element, tables));
+            }
+            return CompactArray.of(elements);
+        } else if (value instanceof BSONObject) {
+            return toCompact((BSONObject) value, tables);
+        }
+        return value;
+    }
+
+    private static Object toBsonValue(Object value) {
+        if (value instanceof CompactObject) {
+            return toBson((CompactObject) value);
+        } else if (value instanceof CompactArray) {
+            BasicDBList list = new BasicDBList();
+            for (Object element : (CompactArray) value) {
+                list.add(toBsonValue(element));
+            }
+            return list;
+        }
+        return value;
+    }
+}
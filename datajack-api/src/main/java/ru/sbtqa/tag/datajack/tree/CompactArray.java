@@ -0,0 +1,149 @@
+package ru.sbtqa.tag.datajack.tree;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Immutable array node. Arrays of only ints, longs, doubles or booleans are
+ * stored in primitive arrays, any other array is stored as objects
+ */
+public final class CompactArray extends AbstractList<Object> {
+
+    private final int[] ints;
+    private final long[] longs;
+    private final double[] doubles;
+    private final boolean[] booleans;
+    private final Object[] objects;
+    private final int size;
+
+    private CompactArray(int[] ints, long[] longs, double[] doubles, boolean[] booleans, Object[] objects, int size) {
+        this.ints = ints;
+        this.longs = longs;
+        this.doubles = doubles;
+        this.booleans = booleans;
+        this.objects = objects;
+        this.size = size;
+    }
+
+    /**
+     * Create array choosing the most compact storage for the given elements
+     *
+     * @param elements elements, already converted to node values
+     * @return array node
+     */
+    public static CompactArray of(List<?> elements) {
+        int size = elements.size();
+        Class<?> type = commonType(elements);
+        if (type == Integer.class) {
+            int[] values = new int[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = (Integer) elements.get(i);
+            }
+            return new CompactArray(values, null, null, null, null, size);
+        } else if (type == Long.class) {
+            long[] values = new long[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = (Long) elements.get(i);
+            }
+            return new CompactArray(null, values, null, null, null, size);
+        } else if (type == Double.class) {
+            double[] values = new double[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = (Double) elements.get(i);
+            }
+            return new CompactArray(null, null, values, null, null, size);
+        } else if (type == Boolean.class) {
+            boolean[] values = new boolean[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = (Boolean) elements.get(i);
+            }
+            return new CompactArray(null, null, null, values, null, size);
+        }
+        return new CompactArray(null, null, null, null, elements.toArray(), size);
+    }
+
+    private static Class<?> commonType(List<?> elements) {
+        Class<?> type = null;
+        for (Object element : elements) {
+            if (element == null) {
+                return Object.class;
+            } else if (type == null) {
+                type = element.getClass();
+            } else if (type != element.getClass()) {
+                return Object.class;
+            }
+        }
+        return type;
+    }
+
+    /**
+     * @return true if elements are stored in a primitive array
+     */
+    public boolean isPrimitive() {
+        return objects == null;
+    }
+
+    /**
+     * Get element without boxing
+     *
+     * @param i position
+     * @return int element
+     * @throws IllegalStateException if array does not store ints
+     */
+    public int getInt(int i) {
+        if (ints == null) {
+            throw new IllegalStateException("Array does not store ints");
+        }
+        return ints[i];
+    }
+
+    /**
+     * Get element without boxing
+     *
+     * @param i position
+     * @return long element
+     * @throws IllegalStateException if array does not store ints or longs
+     */
+    public long getLong(int i) {
+        if (longs != null) {
+            return longs[i];
+        }
+        return getInt(i);
+    }
+
+    /**
+     * Get element without boxing
+     *
+     * @param i position
+     * @return double element
+     * @throws IllegalStateException if array does not store numbers
+     */
+    public double getDouble(int i) {
+        if (doubles != null) {
+            return doubles[i];
+        }
+        return getLong(i);
+    }
+
+    @Override
+    public Object get(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+        if (ints != null) {
+            return ints[i];
+        } else if (longs != null) {
+            return longs[i];
+        } else if (doubles != null) {
+            return doubles[i];
+        } else if (booleans != null) {
+            return booleans[i];
+        }
+        return objects[i];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,90 @@
+package ru.sbtqa.tag.datajack.tree;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable object node backed by a shared {@link KeyTable} and an array of
+ * values. Values are strings, boxed primitives, null, {@link CompactObject}
+ * or {@link CompactArray}
+ */
+public final class CompactObject {
+
+    private final KeyTable keys;
+    private final Object[] values;
+
+    /**
+     * @param keys keys of the object
+     * @param values values in order of keys, the array is not copied
+     */
+    public CompactObject(KeyTable keys, Object[] values) {
+        if (keys.size() != values.length) {
+            throw new IllegalArgumentException("Got " + values.length + " values for " + keys.size() + " keys");
+        }
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * @param key key to get
+     * @return value or null if there is no such key
+     */
+    public Object get(String key) {
+        int i = keys.indexOf(key);
+        return i < 0 ? null : values[i];
+    }
+
+    /**
+     * @param key key to check
+     * @return true if object contains the key
+     */
+    public boolean containsKey(String key) {
+        return keys.indexOf(key) >= 0;
+    }
+
+    /**
+     * @return number of entries
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @param i position
+     * @return key at position
+     */
+    public String getKey(int i) {
+        return keys.get(i);
+    }
+
+    /**
+     * @param i position
+     * @return value at position
+     */
+    public Object getValue(int i) {
+        return values[i];
+    }
+
+    /**
+     * @return shared key table of the object
+     */
+    public KeyTable getKeys() {
+        return keys;
+    }
+
+    /**
+     * @return shallow map copy of the object
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>(values.length * 2);
+        for (int i = 0; i < values.length; i++) {
+            map.put(keys.get(i), values[i]);
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+}
@@ -0,0 +1,96 @@
+package ru.sbtqa.tag.datajack.tree;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ordered set of object keys. Objects of the same shape in one tree share one
+ * table, see {@link BsonTrees#toCompact(org.bson.BSONObject)}, so a key string
+ * is stored once per shape instead of once per object entry
+ */
+public final class KeyTable {
+
+    private static final int LINEAR_SEARCH_LIMIT = 8;
+
+    private final String[] keys;
+    private final int hash;
+    private final Map<String, Integer> index;
+
+    private KeyTable(String[] keys) {
+        this.keys = keys;
+        this.hash = Arrays.hashCode(keys);
+        if (keys.length > LINEAR_SEARCH_LIMIT) {
+            index = new HashMap<>(keys.length * 2);
+            for (int i = 0; i < keys.length; i++) {
+                index.putIfAbsent(keys[i], i);
+            }
+        } else {
+            index = null;
+        }
+    }
+
+    /**
+     * Create table of the given keys
+     *
+     * @param keys keys in order
+     * @return key table
+     */
+    public static KeyTable of(String... keys) {
+        return new KeyTable(keys.clone());
+    }
+
+    /**
+     * @param key key to find
+     * @return position of key or -1 if there is no such key
+     */
+    public int indexOf(String key) {
+        if (index != null) {
+            Integer position = index.get(key);
+            return position == null ? -1 : position;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param i position
+     * @return key at position
+     */
+    public String get(int i) {
+        return keys[i];
+    }
+
+    /**
+     * @return number of keys
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof KeyTable)) {
+            return false;
+        }
+        KeyTable table = (KeyTable) o;
+        return hash == table.hash && Arrays.equals(keys, table.keys);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(keys);
+    }
+}
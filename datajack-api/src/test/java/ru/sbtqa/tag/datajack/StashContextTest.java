@@ -0,0 +1,61 @@
+package ru.sbtqa.tag.datajack;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import ru.sbtqa.tag.datajack.exceptions.StashKeyNotFoundException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+import static org.junit.rules.ExpectedException.none;
+
+public class StashContextTest {
+
+    @Rule
+    public ExpectedException expectDataExceptions = none();
+
+    @After
+    public void tearDown() {
+        Stash.clear();
+    }
+
+    @Test
+    public void propagationTest() throws Exception {
+        Stash.put("login", "user");
+        StashContext context = StashContext.current();
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            assertFalse("Plain executor sees stash of test thread",
+                    pool.submit(() -> StashContext.current().containsKey("login")).get());
+
+            ExecutorService propagating = StashContext.propagating(pool);
+            assertEquals("user", propagating.submit(() -> Stash.<String>getValue("login")).get());
+            Executor executor = StashContext.propagating((Executor) pool);
+            assertEquals("user", CompletableFuture.supplyAsync(() -> Stash.<String>getValue("login"), executor).get());
+
+            propagating.submit(() -> Stash.put("password", "secret")).get();
+            assertEquals("Shared context is not written", "secret", Stash.getValue("password"));
+            assertFalse("Context leaks into pool thread after task",
+                    pool.submit(() -> StashContext.current().containsKey("login")).get());
+
+            StashContext copy = context.copy();
+            copy.put("login", "other");
+            assertEquals("user", Stash.getValue("login"));
+            assertEquals("other", copy.call(() -> Stash.getValue("login")));
+            assertSame(context, StashContext.current());
+
+            StashContext empty = new StashContext();
+            assertFalse(empty.containsKey("login"));
+            assertNull(empty.remove("login"));
+            expectDataExceptions.expect(StashKeyNotFoundException.class);
+            empty.getValue("login");
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package ru.sbtqa.tag.datajack;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import ru.sbtqa.tag.datajack.exceptions.StashKeyNotFoundException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.junit.rules.ExpectedException.none;
+
+public class StashLimitsTest {
+
+    @Rule
+    public ExpectedException expectDataExceptions = none();
+
+    @After
+    public void tearDown() {
+        Stash.clear();
+    }
+
+    @Test
+    public void setLimitsOnEmptyContextTest() {
+        StashContext entries = new StashContext(StashLimits.NONE);
+        entries.setLimits(StashLimits.builder().maxEntries(2).build());
+        StashContext bytes = new StashContext(StashLimits.NONE);
+        bytes.setLimits(StashLimits.builder().maxBytes(25).estimator(value -> 10).build());
+
+        for (String key : Arrays.asList("a", "b", "c")) {
+            entries.put(key, key);
+            bytes.put(key, key);
+        }
+        assertEquals(new HashSet<>(Arrays.asList("b", "c")), entries.asMap().keySet());
+        assertEquals(2, bytes.size());
+        assertEquals(20, bytes.getEstimatedBytes());
+    }
+
+    @Test
+    public void liveMapTest() throws Exception {
+        Stash.put("token", "value", 1, TimeUnit.MILLISECONDS);
+        Map<String, Object> map = Stash.asMap();
+        map.put("login", "user");
+        assertEquals("user", Stash.getValue("login"));
+        TimeUnit.MILLISECONDS.sleep(5);
+        assertFalse(map.containsKey("token"));
+        assertEquals(Collections.singletonMap("login", "user"), map);
+
+        map.put("token", "other");
+        TimeUnit.MILLISECONDS.sleep(5);
+        assertEquals("Value put through the map kept old time to live", "other", Stash.getValue("token"));
+        assertEquals("user", map.remove("login"));
+        assertFalse(StashContext.current().containsKey("login"));
+
+        StashContext bounded = new StashContext(StashLimits.builder()
+                .maxEntries(2)
+                .maxBytes(100)
+                .estimator(value -> 10)
+                .build());
+        Map<String, Object> boundedMap = bounded.asMap();
+        for (String key : Arrays.asList("a", "b", "c")) {
+            boundedMap.put(key, key);
+        }
+        assertEquals(new HashSet<>(Arrays.asList("b", "c")), boundedMap.keySet());
+        assertEquals(20, bounded.getEstimatedBytes());
+        Iterator<String> keys = boundedMap.keySet().iterator();
+        keys.next();
+        keys.remove();
+        assertEquals(1, bounded.size());
+        assertEquals(10, bounded.getEstimatedBytes());
+    }
+
+    @Test
+    public void readWhileIteratingTest() throws Exception {
+        StashContext context = new StashContext(StashLimits.builder().maxEntries(10).build());
+        context.run(() -> {
+            for (String key : Arrays.asList("a", "b", "c", "d")) {
+                Stash.put(key, key);
+            }
+            Stash.put("token", "value", 50, TimeUnit.MILLISECONDS);
+        });
+        Map<String, Object> map = context.asMap();
+
+        List<String> read = new ArrayList<>();
+        context.run(() -> {
+            Iterator<String> keys = map.keySet().iterator();
+            sleep(100);
+            while (keys.hasNext()) {
+                String key = keys.next();
+                read.add(Stash.getValue(key));
+                assertEquals(key, map.get(key));
+            }
+        });
+        Collections.sort(read);
+        assertEquals(Arrays.asList("a", "b", "c", "d"), read);
+        assertEquals(4, context.size());
+    }
+
+    @Test
+    public void limitsTest() throws Exception {
+        List<String> evicted = new ArrayList<>();
+        StashLimits.EvictionListener listener = (key, value, cause) -> evicted.add(key + ":" + cause);
+
+        StashContext entries = new StashContext(StashLimits.builder().maxEntries(3).listener(listener).build());
+        entries.put("a", 1);
+        entries.put("b", 2);
+        entries.put("c", 3);
+        assertEquals(1, (int) entries.<Integer>getValue("a"));
+        entries.put("d", 4);
+        assertEquals(Arrays.asList("b:SIZE"), evicted);
+        assertEquals(new HashSet<>(Arrays.asList("a", "c", "d")), entries.asMap().keySet());
+        assertEquals(1, entries.getEvictions());
+
+        StashContext bytes = new StashContext(StashLimits.builder()
+                .maxBytes(25)
+                .estimator(value -> 10)
+                .listener(listener)
+                .build());
+        bytes.put("x", "x");
+        bytes.put("y", "y");
+        bytes.put("y", "y");
+        assertEquals(20, bytes.getEstimatedBytes());
+        bytes.put("z", "z");
+        assertEquals(Arrays.asList("b:SIZE", "x:BYTES"), evicted);
+        assertEquals(20, bytes.getEstimatedBytes());
+        assertEquals(2, bytes.size());
+
+        StashContext ttl = new StashContext(StashLimits.builder().listener(listener).build());
+        ttl.put("token", "value", 1, TimeUnit.MILLISECONDS);
+        ttl.put("login", "user");
+        TimeUnit.MILLISECONDS.sleep(5);
+        assertFalse(ttl.containsKey("token"));
+        assertTrue(ttl.containsKey("login"));
+        assertEquals(Arrays.asList("b:SIZE", "x:BYTES", "token:EXPIRED"), evicted);
+        assertEquals(1, ttl.getExpirations());
+        assertEquals("user", ttl.getValue("login"));
+        assertEquals(1, ttl.getHits());
+
+        assertTrue(StashLimits.estimate("abc") < StashLimits.estimate(Collections.singletonMap("key", "abcdef")));
+        expectDataExceptions.expect(StashKeyNotFoundException.class);
+        try {
+            ttl.getValue("token");
+        } finally {
+            assertEquals(1, ttl.getMisses());
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
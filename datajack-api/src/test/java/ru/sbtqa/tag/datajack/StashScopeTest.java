@@ -0,0 +1,139 @@
+package ru.sbtqa.tag.datajack;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import ru.sbtqa.tag.datajack.exceptions.StashKeyNotFoundException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.junit.rules.ExpectedException.none;
+
+public class StashScopeTest {
+
+    @Rule
+    public ExpectedException expectDataExceptions = none();
+
+    @Test
+    public void concurrentWritesTest() throws Exception {
+        StashScope scope = Stash.group("concurrentWritesTest");
+        assertSame(scope, Stash.group("concurrentWritesTest"));
+        assertNotSame(scope, Stash.global());
+
+        int threads = 8;
+        int increments = 1000;
+        AtomicInteger tokens = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < increments; i++) {
+                        scope.<Integer>compute("counter", (key, value) -> value == null ? 1 : value + 1);
+                    }
+                    return scope.computeIfAbsent("token", key -> "token" + tokens.incrementAndGet());
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                assertEquals("token1", result.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(threads * increments, (int) scope.<Integer>getValue("counter"));
+        assertEquals(1, tokens.get());
+        assertTrue(scope.getWrites() > threads * increments);
+        assertTrue(scope.getContentions() <= scope.getWrites());
+
+        scope.put("nothing", null);
+        assertTrue(scope.containsKey("nothing"));
+        assertNull(scope.getValue("nothing"));
+        assertNull(scope.putIfAbsent("nothing", "something"));
+        assertEquals(3, scope.asMap().size());
+        assertNull(scope.remove("nothing"));
+        assertFalse(scope.containsKey("nothing"));
+
+        assertSame(scope, Stash.removeGroup("concurrentWritesTest"));
+        assertNotSame(scope, Stash.group("concurrentWritesTest"));
+        Stash.removeGroup("concurrentWritesTest");
+        expectDataExceptions.expect(StashKeyNotFoundException.class);
+        scope.getValue("nothing");
+    }
+
+    @Test
+    public void functionsReadButDoNotWriteTest() {
+        StashScope scope = Stash.group("functionsReadButDoNotWriteTest");
+        try {
+            scope.put("login", "user");
+            assertEquals("user:token", scope.computeIfAbsent("token", key -> scope.getValue("login") + ":" + key));
+            assertEquals("user:token", scope.computeIfAbsent("copy", key -> scope.computeIfAbsent("token", k -> "other")));
+
+            try {
+                scope.computeIfAbsent("a", key -> {
+                    scope.put("b", 1);
+                    return 1;
+                });
+                fail("Write from function is allowed");
+            } catch (IllegalStateException ex) {
+                assertFalse(scope.containsKey("a"));
+                assertFalse(scope.containsKey("b"));
+            }
+            try {
+                scope.compute("a", (key, value) -> Stash.global().remove("login"));
+                fail("Write to other scope from function is allowed");
+            } catch (IllegalStateException ex) {
+                assertFalse(scope.containsKey("a"));
+            }
+            scope.put("a", 1);
+            assertEquals(1, (int) scope.<Integer>getValue("a"));
+        } finally {
+            Stash.removeGroup("functionsReadButDoNotWriteTest");
+        }
+    }
+
+    @Test
+    public void clearTest() throws Exception {
+        StashScope scope = Stash.group("clearTest");
+        CountDownLatch computing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> computed = pool.submit(() -> scope.computeIfAbsent("slow", key -> {
+                computing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return "value";
+            }));
+            computing.await();
+            Future<?> cleared = pool.submit(scope::clear);
+            try {
+                cleared.get(200, TimeUnit.MILLISECONDS);
+                fail("Clear didn't wait for computation");
+            } catch (TimeoutException ex) {
+                release.countDown();
+            }
+            assertEquals("value", computed.get());
+            cleared.get();
+            assertFalse(scope.containsKey("slow"));
+        } finally {
+            release.countDown();
+            pool.shutdown();
+            Stash.removeGroup("clearTest");
+        }
+    }
+}
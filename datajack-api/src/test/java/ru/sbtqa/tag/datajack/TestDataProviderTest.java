@@ -0,0 +1,138 @@
+package ru.sbtqa.tag.datajack;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import ru.sbtqa.tag.datajack.callback.GeneratorCallback;
+import ru.sbtqa.tag.datajack.exceptions.DataException;
+import ru.sbtqa.tag.datajack.exceptions.DataParseException;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.junit.rules.ExpectedException.none;
+
+public class TestDataProviderTest {
+
+    @Rule
+    public ExpectedException expectDataExceptions = none();
+
+    @Test
+    public void typedDefaultsTest() throws DataException {
+        MapDataProvider provider = new MapDataProvider();
+        provider.values.put("int", " 42 ");
+        provider.values.put("long", "9000000000");
+        provider.values.put("double", "1.5");
+        provider.values.put("boolean", "TRUE");
+
+        assertEquals(42, provider.get("int").getInt());
+        assertEquals(9000000000L, provider.get("long").getLong());
+        assertEquals(1.5, provider.get("double").getDouble(), 0);
+        assertTrue(provider.get("boolean").getBoolean());
+
+        expectDataExceptions.expect(DataParseException.class);
+        provider.get("long").getInt();
+    }
+
+    @Test
+    public void getValuesDefaultTest() throws DataException {
+        MapDataProvider provider = new MapDataProvider();
+        provider.values.put("a", "1");
+        provider.values.put("b", "2");
+
+        Map<String, String> values = provider.getValues(Arrays.asList("b", "a", "b"));
+
+        assertEquals(Arrays.asList("b", "a"), Arrays.asList(values.keySet().toArray()));
+        assertEquals(Arrays.asList("2", "1"), Arrays.asList(values.values().toArray()));
+        assertEquals("1", provider.async(Runnable::run).get("a").thenCompose(AsyncTestDataProvider::getValue).join());
+    }
+
+    @Test
+    public void unsupportedDefaultTest() throws DataException {
+        expectDataExceptions.expect(DataException.class);
+        expectDataExceptions.expectMessage(MapDataProvider.class.getName());
+        new MapDataProvider().query("records");
+    }
+
+    /**
+     * Implements only the methods a provider had to implement before typed
+     * getters, batches, scans, queries, streams and async views were added
+     */
+    private static final class MapDataProvider implements TestDataProvider {
+
+        private final Map<String, String> values = new HashMap<>();
+        private final String value;
+
+        MapDataProvider() {
+            this(null);
+        }
+
+        MapDataProvider(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public TestDataProvider fromCollection(String collectionName) {
+            return this;
+        }
+
+        @Override
+        public TestDataProvider get(String key) throws DataException {
+            if (!values.containsKey(key)) {
+                throw new DataException("No value " + key);
+            }
+            return new MapDataProvider(values.get(key));
+        }
+
+        @Override
+        public TestDataProvider getByPath(String key) throws DataException {
+            return get(key);
+        }
+
+        @Override
+        public String getValue() {
+            return value;
+        }
+
+        @Override
+        public boolean isReference() {
+            return false;
+        }
+
+        @Override
+        public TestDataProvider getReference() throws DataException {
+            throw new DataException("No reference");
+        }
+
+        @Override
+        public void applyGenerator(Class<? extends GeneratorCallback> callback) {
+        }
+
+        @Override
+        public Map toMap() {
+            return new LinkedHashMap<>(values);
+        }
+
+        @Override
+        public Set<String> getKeySet() {
+            return Collections.unmodifiableSet(values.keySet());
+        }
+
+        @Override
+        public Collection<Object> getValues() {
+            return Collections.unmodifiableCollection(values.values());
+        }
+
+        @Override
+        public List<String> getStringValues() {
+            return Arrays.asList(values.values().toArray(new String[0]));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package ru.sbtqa.tag.datajack.providers;
+
+import com.mongodb.BasicDBObject;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.sbtqa.tag.datajack.exceptions.DataException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CollectionCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final CollectionCache cache = CollectionCache.getInstance();
+
+    @After
+    public void tearDown() {
+        cache.clear();
+    }
+
+    @Test
+    public void slowLoadDoesNotBlockOtherCollectionsTest() throws Exception {
+        String folder = temporaryFolder.getRoot().getPath();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            Future<BasicDBObject> slow = pool.submit(() -> cache.get(folder, "Slow", "json", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                awaitRelease(release);
+                return new BasicDBObject("value", "slow");
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<BasicDBObject> waiting = pool.submit(() -> cache.get(folder, "Slow", "json", () -> {
+                loads.incrementAndGet();
+                return new BasicDBObject("value", "second load");
+            }));
+
+            // Every collection name, whichever map bin it falls into, loads while Slow is pending
+            for (int i = 0; i < 64; i++) {
+                String name = "Fast" + i;
+                Future<BasicDBObject> fast = pool.submit(() -> cache.get(folder, name, "json",
+                        () -> new BasicDBObject("value", name)));
+                assertEquals(name, fast.get(5, TimeUnit.SECONDS).getString("value"));
+            }
+            assertFalse(slow.isDone());
+
+            release.countDown();
+            assertEquals("slow", slow.get(5, TimeUnit.SECONDS).getString("value"));
+            assertSame(slow.get(), waiting.get(5, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void failedLoadIsRetriedTest() throws DataException {
+        String folder = temporaryFolder.getRoot().getPath();
+        try {
+            cache.get(folder, "Failing", "json", () -> {
+                throw new DataException("broken");
+            });
+            fail("Load error is not thrown");
+        } catch (DataException e) {
+            assertEquals("broken", e.getMessage());
+        }
+        assertEquals(0, cache.size());
+        assertEquals("fixed", cache.get(folder, "Failing", "json",
+                () -> new BasicDBObject("value", "fixed")).getString("value"));
+    }
+
+    private static void awaitRelease(CountDownLatch release) throws DataException {
+        try {
+            if (!release.await(5, TimeUnit.SECONDS)) {
+                throw new DataException("Slow load is not released");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataException("Slow load is interrupted", e);
+        }
+    }
+}
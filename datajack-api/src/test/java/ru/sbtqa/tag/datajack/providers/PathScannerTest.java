@@ -0,0 +1,48 @@
+package ru.sbtqa.tag.datajack.providers;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PathScannerTest {
+
+    private static List<String> scan(BasicDBObject root, String pattern) {
+        List<String> keys = new ArrayList<>();
+        new PathScanner(root, pattern, object -> object.containsField("$ref")).forEachRemaining(keys::add);
+        return keys;
+    }
+
+    @Test
+    public void scanTest() {
+        BasicDBList array = new BasicDBList();
+        array.add(new BasicDBObject("b", "0"));
+        array.add(new BasicDBObject("b", "1").append("c", new BasicDBObject("$ref", "Tests:b")));
+        BasicDBObject root = new BasicDBObject("array", array).append("value", "v");
+
+        assertEquals(Arrays.asList("array[0].b", "array[1].b"), scan(root, "array[*].b"));
+        assertEquals(Arrays.asList("array[1].b", "array[1].c"), scan(root, "array[1]"));
+        assertEquals(Arrays.asList("array[0].b", "array[1].b", "array[1].c", "value"), scan(root, ""));
+        assertTrue(scan(root, "array[2]").isEmpty());
+    }
+
+    @Test
+    public void patternIsCompiledOnceTest() {
+        CompiledPath.clearCache();
+        BasicDBList b = new BasicDBList();
+        b.add("c");
+        BasicDBList a = new BasicDBList();
+        a.add(new BasicDBObject("b", b));
+        BasicDBObject root = new BasicDBObject("a", a);
+
+        assertEquals(Arrays.asList("a[0].b[0]"), scan(root, "a[0].b[0]"));
+        assertEquals(Arrays.asList("a[0].b[0]"), scan(root, "a[0].b[0]"));
+        // Only the whole pattern is cached, not its fragments
+        assertEquals(1, CompiledPath.cacheSize());
+    }
+}
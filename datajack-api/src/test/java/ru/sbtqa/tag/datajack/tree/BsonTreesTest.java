@@ -0,0 +1,45 @@
+package ru.sbtqa.tag.datajack.tree;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BsonTreesTest {
+
+    @Test
+    public void roundTripTest() {
+        BasicDBList tags = new BasicDBList();
+        tags.add("a");
+        tags.add(new BasicDBObject("nested", true));
+        BasicDBList numbers = new BasicDBList();
+        numbers.add(1);
+        numbers.add(2);
+        BasicDBObject original = new BasicDBObject("string", "value")
+                .append("integer", 42)
+                .append("nothing", null)
+                .append("tags", tags)
+                .append("numbers", numbers)
+                .append("object", new BasicDBObject("key", "value"));
+
+        CompactObject compact = BsonTrees.toCompact(original);
+        assertEquals(original, BsonTrees.toBson(compact));
+        assertEquals(42, compact.get("integer"));
+        assertEquals("value", ((CompactObject) compact.get("object")).get("key"));
+    }
+
+    @Test
+    public void keyTablesAreSharedWithinTreeTest() {
+        BasicDBObject tree = new BasicDBObject("login", new BasicDBObject("value", "user").append("type", "text"))
+                .append("password", new BasicDBObject("value", "secret").append("type", "text"));
+
+        CompactObject compact = BsonTrees.toCompact(tree);
+        KeyTable login = ((CompactObject) compact.get("login")).getKeys();
+        assertSame(login, ((CompactObject) compact.get("password")).getKeys());
+
+        CompactObject other = BsonTrees.toCompact(tree);
+        assertNotSame("Key tables are shared between trees", login, ((CompactObject) other.get("login")).getKeys());
+        assertEquals(login, ((CompactObject) other.get("login")).getKeys());
+    }
+}
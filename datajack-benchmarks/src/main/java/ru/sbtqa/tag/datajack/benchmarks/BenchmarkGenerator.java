@@ -0,0 +1,24 @@
+package ru.sbtqa.tag.datajack.benchmarks;
+
+import ru.sbtqa.tag.datajack.callback.CallbackData;
+import ru.sbtqa.tag.datajack.callback.GeneratorCallback;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generator replacing {@code generate:} values with a counter, so that
+ * benchmarks measure datajack rather than a data generator
+ */
+public class BenchmarkGenerator implements GeneratorCallback {
+
+    private final AtomicLong counter = new AtomicLong();
+
+    @Override
+    public Object call(CallbackData callbackData) {
+        String result = callbackData.getResult();
+        if (result != null && result.startsWith("generate:")) {
+            return String.valueOf(counter.incrementAndGet());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,821 @@
+package ru.sbtqa.tag.datajack.benchmarks;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generator of large synthetic datasets, written equally as json files,
+ * properties files, an xlsx work book or Mongo documents.
+ * <p>
+ * Every collection {@code Data<n>} holds object {@code chains} with a chain of
+ * references {@code c0 -> c1 -> ... -> "end"} and records {@code r<n>}. A record
+ * is a chain of nested {@code child} objects, each level with {@code id},
+ * {@code name}, {@code active} and a {@code tags} array. With the configured
+ * density {@code name} is a reference to the head of a random collection's
+ * chain, so resolving it takes {@code chainLength + 1} hops.
+ * <p>
+ * Output is streamed collection by collection, only Mongo documents are built
+ * in memory one at a time. Excel sheets hold one nesting level, so nested
+ * fields of records are flattened into {@code child_name} like keys and arrays
+ * into comma separated strings. Same seed gives the same dataset
+ */
+public final class DatasetGenerator {
+
+    private static final String CHAINS = "chains";
+    private static final String CHAIN_END = "end";
+    private static final int MAX_EXCEL_ROWS = 1 << 20;
+
+    private final int collections;
+    private final int records;
+    private final int depth;
+    private final int arrayLength;
+    private final double referenceDensity;
+    private final int chainLength;
+    private final long seed;
+
+    private DatasetGenerator(Builder builder, int collections) {
+        this.collections = collections;
+        this.records = builder.records;
+        this.depth = builder.depth;
+        this.arrayLength = builder.arrayLength;
+        this.referenceDensity = builder.referenceDensity;
+        this.chainLength = builder.chainLength;
+        this.seed = builder.seed;
+    }
+
+    /**
+     * @return builder with defaults: 10 collections of 1000 records, depth 3,
+     * arrays of 5, 10% references, chains of 2 references, seed 42
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param index collection index
+     * @return name of collection
+     */
+    public static String collectionName(int index) {
+        return "Data" + index;
+    }
+
+    /**
+     * @return number of collections
+     */
+    public int getCollections() {
+        return collections;
+    }
+
+    /**
+     * @return number of records per collection
+     */
+    public int getRecords() {
+        return records;
+    }
+
+    /**
+     * Write one {@code <collection>.json} file per collection
+     *
+     * @param folder output folder, created if missing
+     * @throws IOException if files could not be written
+     */
+    public void writeJson(File folder) throws IOException {
+        try (JsonSink sink = new JsonSink(folder, "json", false)) {
+            generate(sink);
+        }
+    }
+
+    /**
+     * Write one {@code <collection>.json} file per collection with references
+     * in Mongo provider form, ready for {@code mongoimport --collection <collection>}
+     *
+     * @param folder output folder, created if missing
+     * @throws IOException if files could not be written
+     */
+    public void writeMongoJson(File folder) throws IOException {
+        try (JsonSink sink = new JsonSink(folder, "json", true)) {
+            generate(sink);
+        }
+    }
+
+    /**
+     * Write one {@code <collection>.properties} file per collection
+     *
+     * @param folder output folder, created if missing
+     * @throws IOException if files could not be written
+     */
+    public void writeProperties(File folder) throws IOException {
+        try (PropertiesSink sink = new PropertiesSink(folder)) {
+            generate(sink);
+        }
+    }
+
+    /**
+     * Write work book with one sheet per collection
+     *
+     * @param file xlsx file
+     * @throws IOException if file could not be written
+     */
+    public void writeExcel(File file) throws IOException {
+        try (ExcelSink sink = new ExcelSink()) {
+            generate(sink);
+            sink.write(file);
+        }
+    }
+
+    /**
+     * Insert one document per collection. Real Mongo limits documents to
+     * 16 MB, so keep collections small with {@link Builder#records(int)}
+     *
+     * @param db database
+     */
+    public void writeMongo(DB db) {
+        try {
+            generate(new MongoSink(db));
+        } catch (IOException e) {
+            throw new IllegalStateException("Mongo sink doesn't do I/O", e);
+        }
+    }
+
+    /**
+     * Write dataset from command line, e.g.
+     * {@code --format all --out target/data --size 100MB --depth 4}. Other
+     * options are {@code --records}, {@code --collections},
+     * {@code --array-length}, {@code --reference-density},
+     * {@code --chain-length} and {@code --seed}. Format {@code mongo} writes
+     * files for {@code mongoimport}
+     *
+     * @param args options
+     * @throws IOException if dataset could not be written
+     */
+    public static void main(String[] args) throws IOException {
+        Builder builder = builder();
+        String format = "all";
+        File out = new File("dataset");
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("No value of option " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--format":
+                    format = value;
+                    break;
+                case "--out":
+                    out = new File(value);
+                    break;
+                case "--size":
+                    builder.size(parseSize(value));
+                    break;
+                case "--collections":
+                    builder.collections(Integer.parseInt(value));
+                    break;
+                case "--records":
+                    builder.records(Integer.parseInt(value));
+                    break;
+                case "--depth":
+                    builder.depth(Integer.parseInt(value));
+                    break;
+                case "--array-length":
+                    builder.arrayLength(Integer.parseInt(value));
+                    break;
+                case "--reference-density":
+                    builder.referenceDensity(Double.parseDouble(value));
+                    break;
+                case "--chain-length":
+                    builder.chainLength(Integer.parseInt(value));
+                    break;
+                case "--seed":
+                    builder.seed(Long.parseLong(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+
+        DatasetGenerator generator = builder.build();
+        boolean all = "all".equals(format);
+        if (all || "json".equals(format)) {
+            generator.writeJson(new File(out, "json"));
+        }
+        if (all || "properties".equals(format)) {
+            generator.writeProperties(new File(out, "properties"));
+        }
+        if (all || "xlsx".equals(format)) {
+            Files.createDirectories(out.toPath());
+            generator.writeExcel(new File(out, "dataset.xlsx"));
+        }
+        if (all || "mongo".equals(format)) {
+            generator.writeMongoJson(new File(out, "mongo"));
+        }
+        if (!all && !Arrays.asList("json", "properties", "xlsx", "mongo").contains(format)) {
+            throw new IllegalArgumentException("Unknown format " + format);
+        }
+        System.out.printf("%d collections of %d records written to %s%n",
+                generator.getCollections(), generator.getRecords(), out);
+    }
+
+    /**
+     * @param size size like {@code 1048576}, {@code 512KB}, {@code 100MB} or {@code 1GB}
+     * @return size in bytes
+     */
+    static long parseSize(String size) {
+        String value = size.trim().toUpperCase(Locale.ROOT);
+        long unit = 1;
+        if (value.endsWith("KB")) {
+            unit = 1L << 10;
+        } else if (value.endsWith("MB")) {
+            unit = 1L << 20;
+        } else if (value.endsWith("GB")) {
+            unit = 1L << 30;
+        }
+        if (unit != 1) {
+            value = value.substring(0, value.length() - 2).trim();
+        }
+        return Long.parseLong(value) * unit;
+    }
+
+    private void generate(Sink sink) throws IOException {
+        Random random = new Random(seed);
+        for (int c = 0; c < collections; c++) {
+            String collectionName = collectionName(c);
+            sink.beginCollection(collectionName);
+            sink.beginObject(CHAINS);
+            for (int i = 0; i < chainLength; i++) {
+                sink.reference("c" + i, collectionName, CHAINS + ".c" + (i + 1));
+            }
+            sink.value("c" + chainLength, CHAIN_END);
+            sink.endObject();
+            for (int r = 0; r < records; r++) {
+                sink.beginObject("r" + r);
+                generateLevel(sink, random, r, 1);
+                sink.endObject();
+            }
+            sink.endCollection();
+        }
+    }
+
+    private void generateLevel(Sink sink, Random random, int record, int level) throws IOException {
+        sink.value("id", record);
+        if (random.nextDouble() < referenceDensity) {
+            sink.reference("name", collectionName(random.nextInt(collections)), CHAINS + ".c0");
+        } else {
+            sink.value("name", "name-" + record + "-" + level);
+        }
+        sink.value("active", (record + level) % 2 == 0);
+        if (arrayLength > 0) {
+            List<String> tags = new ArrayList<>(arrayLength);
+            for (int i = 0; i < arrayLength; i++) {
+                tags.add("tag" + random.nextInt(1000));
+            }
+            sink.value("tags", tags);
+        }
+        if (level < depth) {
+            sink.beginObject("child");
+            generateLevel(sink, random, record, level + 1);
+            sink.endObject();
+        }
+    }
+
+    /**
+     * Dataset parameters
+     */
+    public static final class Builder {
+
+        private int collections = 10;
+        private int records = 1000;
+        private int depth = 3;
+        private int arrayLength = 5;
+        private double referenceDensity = 0.1;
+        private int chainLength = 2;
+        private long seed = 42;
+        private long size;
+
+        private Builder() {
+        }
+
+        /**
+         * @param collections number of collections
+         * @return this builder
+         */
+        public Builder collections(int collections) {
+            this.collections = requirePositive(collections, "collections");
+            return this;
+        }
+
+        /**
+         * @param records number of records per collection
+         * @return this builder
+         */
+        public Builder records(int records) {
+            this.records = requirePositive(records, "records");
+            return this;
+        }
+
+        /**
+         * @param depth number of nested levels of a record
+         * @return this builder
+         */
+        public Builder depth(int depth) {
+            this.depth = requirePositive(depth, "depth");
+            return this;
+        }
+
+        /**
+         * @param arrayLength length of array on each level, zero for no arrays
+         * @return this builder
+         */
+        public Builder arrayLength(int arrayLength) {
+            if (arrayLength < 0) {
+                throw new IllegalArgumentException("arrayLength must not be negative: " + arrayLength);
+            }
+            this.arrayLength = arrayLength;
+            return this;
+        }
+
+        /**
+         * @param referenceDensity share of {@code name} fields that are references, from 0 to 1
+         * @return this builder
+         */
+        public Builder referenceDensity(double referenceDensity) {
+            if (referenceDensity < 0 || referenceDensity > 1) {
+                throw new IllegalArgumentException("referenceDensity must be within [0, 1]: " + referenceDensity);
+            }
+            this.referenceDensity = referenceDensity;
+            return this;
+        }
+
+        /**
+         * @param chainLength number of references between a chain head and its value
+         * @return this builder
+         */
+        public Builder chainLength(int chainLength) {
+            if (chainLength < 0) {
+                throw new IllegalArgumentException("chainLength must not be negative: " + chainLength);
+            }
+            this.chainLength = chainLength;
+            return this;
+        }
+
+        /**
+         * @param seed random seed
+         * @return this builder
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Approximate json size of dataset. Overrides number of collections,
+         * which is derived from the size of a sample record
+         *
+         * @param size size in bytes
+         * @return this builder
+         */
+        public Builder size(long size) {
+            if (size <= 0) {
+                throw new IllegalArgumentException("size must be positive: " + size);
+            }
+            this.size = size;
+            return this;
+        }
+
+        /**
+         * @return generator
+         */
+        public DatasetGenerator build() {
+            if (size == 0) {
+                return new DatasetGenerator(this, collections);
+            }
+            long collectionSize = estimateCollectionSize();
+            long count = Math.max(1, (size + collectionSize / 2) / collectionSize);
+            if (count > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("size is too large for " + records + " records per collection");
+            }
+            return new DatasetGenerator(this, (int) count);
+        }
+
+        private long estimateCollectionSize() {
+            int sampleRecords = Math.min(records, 100);
+            int fullRecords = records;
+            records = sampleRecords;
+            try {
+                CountingSink sink = new CountingSink();
+                new DatasetGenerator(this, 1).generate(sink);
+                return Math.max(1, sink.getCount() * fullRecords / sampleRecords);
+            } catch (IOException e) {
+                throw new IllegalStateException("Counting sink doesn't do I/O", e);
+            } finally {
+                records = fullRecords;
+            }
+        }
+
+        private static int requirePositive(int value, String name) {
+            if (value <= 0) {
+                throw new IllegalArgumentException(name + " must be positive: " + value);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Receiver of generated dataset
+     */
+    private interface Sink {
+
+        void beginCollection(String collectionName) throws IOException;
+
+        void beginObject(String key) throws IOException;
+
+        /**
+         * @param value string, integer, boolean or list of strings
+         */
+        void value(String key, Object value) throws IOException;
+
+        void reference(String key, String collectionName, String path) throws IOException;
+
+        void endObject() throws IOException;
+
+        void endCollection() throws IOException;
+    }
+
+    private static class JsonSink implements Sink, AutoCloseable {
+
+        private final File folder;
+        private final String extension;
+        private final boolean mongo;
+        private final Deque<Boolean> first = new ArrayDeque<>();
+        private Writer writer;
+
+        private JsonSink(File folder, String extension, boolean mongo) {
+            this.folder = folder;
+            this.extension = extension;
+            this.mongo = mongo;
+        }
+
+        @Override
+        public void beginCollection(String collectionName) throws IOException {
+            writer = openWriter(collectionName);
+            first.push(true);
+            writer.write('{');
+        }
+
+        protected Writer openWriter(String collectionName) throws IOException {
+            Files.createDirectories(folder.toPath());
+            return Files.newBufferedWriter(new File(folder, collectionName + "." + extension).toPath(),
+                    StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void beginObject(String key) throws IOException {
+            writeKey(key);
+            first.push(true);
+            writer.write('{');
+        }
+
+        @Override
+        public void value(String key, Object value) throws IOException {
+            writeKey(key);
+            writeValue(value);
+        }
+
+        @Override
+        public void reference(String key, String collectionName, String path) throws IOException {
+            writeKey(key);
+            if (mongo) {
+                writer.write("{\"value\": {\"collection\": ");
+                writeString(collectionName);
+                writer.write(", \"path\": ");
+                writeString(path);
+                writer.write("}}");
+            } else {
+                writer.write("{\"$ref\": ");
+                writeString(collectionName + ":" + path);
+                writer.write('}');
+            }
+        }
+
+        @Override
+        public void endObject() throws IOException {
+            first.pop();
+            writer.write('}');
+        }
+
+        @Override
+        public void endCollection() throws IOException {
+            endObject();
+            close();
+        }
+
+        /**
+         * Close file of current collection, if generation stopped inside it
+         */
+        @Override
+        public void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+        }
+
+        private void writeKey(String key) throws IOException {
+            if (!first.pop()) {
+                writer.write(", ");
+            }
+            first.push(false);
+            writeString(key);
+            writer.write(": ");
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (value instanceof String) {
+                writeString((String) value);
+            } else if (value instanceof List) {
+                writer.write('[');
+                boolean firstElement = true;
+                for (Object element : (List<?>) value) {
+                    if (!firstElement) {
+                        writer.write(", ");
+                    }
+                    firstElement = false;
+                    writeValue(element);
+                }
+                writer.write(']');
+            } else {
+                writer.write(String.valueOf(value));
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            writer.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    writer.write('\\');
+                }
+                writer.write(c);
+            }
+            writer.write('"');
+        }
+    }
+
+    private static final class CountingSink extends JsonSink {
+
+        private final CountingWriter counter = new CountingWriter();
+
+        private CountingSink() {
+            super(null, null, false);
+        }
+
+        @Override
+        protected Writer openWriter(String collectionName) {
+            return counter;
+        }
+
+        private long getCount() {
+            return counter.count;
+        }
+    }
+
+    private static final class CountingWriter extends Writer {
+
+        private long count;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void write(int c) {
+            count++;
+        }
+
+        @Override
+        public void write(String value) {
+            count += value.length();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class PropertiesSink implements Sink, AutoCloseable {
+
+        private final File folder;
+        private final Deque<String> prefixes = new ArrayDeque<>();
+        private Writer writer;
+
+        private PropertiesSink(File folder) {
+            this.folder = folder;
+        }
+
+        @Override
+        public void beginCollection(String collectionName) throws IOException {
+            Files.createDirectories(folder.toPath());
+            writer = Files.newBufferedWriter(new File(folder, collectionName + ".properties").toPath(),
+                    StandardCharsets.UTF_8);
+            prefixes.push("");
+        }
+
+        @Override
+        public void beginObject(String key) {
+            prefixes.push(prefixes.peek() + key + ".");
+        }
+
+        @Override
+        public void value(String key, Object value) throws IOException {
+            writer.write(prefixes.peek() + key + " = ");
+            if (value instanceof List) {
+                writer.write(String.join(",", toStrings((List<?>) value)));
+            } else {
+                writer.write(String.valueOf(value));
+            }
+            writer.write('\n');
+        }
+
+        @Override
+        public void reference(String key, String collectionName, String path) throws IOException {
+            writer.write(prefixes.peek() + key + ".$ref = " + collectionName + ":" + path + "\n");
+        }
+
+        @Override
+        public void endObject() {
+            prefixes.pop();
+        }
+
+        @Override
+        public void endCollection() throws IOException {
+            prefixes.pop();
+            close();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+        }
+    }
+
+    private static final class ExcelSink implements Sink, AutoCloseable {
+
+        private final SXSSFWorkbook workbook = new SXSSFWorkbook(1000);
+        private final Deque<String> prefixes = new ArrayDeque<>();
+        private Sheet sheet;
+        private int rows;
+
+        @Override
+        public void beginCollection(String collectionName) {
+            sheet = workbook.createSheet(collectionName);
+            rows = 0;
+        }
+
+        @Override
+        public void beginObject(String key) {
+            if (prefixes.isEmpty()) {
+                nextRow().createCell(0).setCellValue(key);
+                prefixes.push("");
+            } else {
+                prefixes.push(prefixes.peek() + key + "_");
+            }
+        }
+
+        @Override
+        public void value(String key, Object value) {
+            Row row = nextRow();
+            row.createCell(1).setCellValue(prefixes.peek() + key);
+            if (value instanceof List) {
+                row.createCell(2).setCellValue(String.join(",", toStrings((List<?>) value)));
+            } else {
+                row.createCell(2).setCellValue(String.valueOf(value));
+            }
+        }
+
+        @Override
+        public void reference(String key, String collectionName, String path) {
+            Row row = nextRow();
+            row.createCell(1).setCellValue(prefixes.peek() + key);
+            row.createCell(2).setCellValue("$ref:" + collectionName + ":" + path);
+        }
+
+        @Override
+        public void endObject() {
+            prefixes.pop();
+            if (prefixes.isEmpty()) {
+                nextRow();
+            }
+        }
+
+        @Override
+        public void endCollection() {
+            sheet = null;
+        }
+
+        private Row nextRow() {
+            if (rows == MAX_EXCEL_ROWS) {
+                throw new IllegalStateException(String.format(Locale.ROOT,
+                        "Sheet %s exceeds %d rows, use more collections of fewer records",
+                        sheet.getSheetName(), MAX_EXCEL_ROWS));
+            }
+            return sheet.createRow(rows++);
+        }
+
+        private void write(File file) throws IOException {
+            try (OutputStream out = new FileOutputStream(file)) {
+                workbook.write(out);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private static final class MongoSink implements Sink {
+
+        private final DB db;
+        private final Deque<BasicDBObject> objects = new ArrayDeque<>();
+        private String collectionName;
+
+        private MongoSink(DB db) {
+            this.db = db;
+        }
+
+        @Override
+        public void beginCollection(String collectionName) {
+            this.collectionName = collectionName;
+            objects.push(new BasicDBObject());
+        }
+
+        @Override
+        public void beginObject(String key) {
+            BasicDBObject object = new BasicDBObject();
+            objects.peek().put(key, object);
+            objects.push(object);
+        }
+
+        @Override
+        public void value(String key, Object value) {
+            if (value instanceof List) {
+                BasicDBList list = new BasicDBList();
+                list.addAll((List<?>) value);
+                value = list;
+            }
+            objects.peek().put(key, value);
+        }
+
+        @Override
+        public void reference(String key, String collectionName, String path) {
+            objects.peek().put(key, new BasicDBObject("value",
+                    new BasicDBObject("collection", collectionName).append("path", path)));
+        }
+
+        @Override
+        public void endObject() {
+            objects.pop();
+        }
+
+        @Override
+        public void endCollection() {
+            db.getCollection(collectionName).insert(objects.pop());
+        }
+    }
+
+    private static List<String> toStrings(List<?> values) {
+        List<String> strings = new ArrayList<>(values.size());
+        for (Object value : values) {
+            strings.add(String.valueOf(value));
+        }
+        return strings;
+    }
+}
@@ -0,0 +1,28 @@
+package ru.sbtqa.tag.datajack.benchmarks;
+
+import ru.sbtqa.tag.datajack.TestDataProvider;
+import ru.sbtqa.tag.datajack.exceptions.DataException;
+import ru.sbtqa.tag.datajack.providers.excel.ExcelDataProvider;
+
+/**
+ * Work books are opened on every load, sheets are parsed once per work book
+ */
+public class ExcelProviderBenchmark extends ProviderBenchmark {
+
+    private String file;
+
+    @Override
+    protected void write() throws Exception {
+        file = Fixtures.writeExcel();
+    }
+
+    @Override
+    protected TestDataProvider open(String collectionName) throws DataException {
+        return new ExcelDataProvider(file, collectionName);
+    }
+
+    @Override
+    protected String getDeepKey() {
+        return Fixtures.deepKey(1);
+    }
+}
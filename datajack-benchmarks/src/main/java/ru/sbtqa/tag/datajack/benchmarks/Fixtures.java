@@ -0,0 +1,245 @@
+package ru.sbtqa.tag.datajack.benchmarks;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import ru.sbtqa.tag.datajack.exceptions.DataException;
+import ru.sbtqa.tag.datajack.providers.snapshot.SnapshotWriter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Benchmark data written in every provider format. Collection {@value #BENCH}
+ * holds a shallow value, a deep object, a chain of references, a large object
+ * and an object of generated values, collection {@value #OTHER} is a target
+ * for collection switches
+ */
+final class Fixtures {
+
+    static final String BENCH = "Bench";
+    static final String OTHER = "Other";
+    static final String SHALLOW_KEY = "Shallow";
+    static final String CHAIN_KEY = "Refs.c0";
+    static final String LARGE_KEY = "Large";
+    static final String GENERATED_KEY = "Generated";
+    static final String PATH = "$" + OTHER + "{" + SHALLOW_KEY + "}";
+
+    static final int DEPTH = 8;
+    static final int CHAIN_LENGTH = 5;
+    static final int LARGE_SIZE = 500;
+    static final int GENERATED_SIZE = 50;
+
+    private Fixtures() {
+    }
+
+    /**
+     * @param depth number of nested objects
+     * @return key of leaf value under {@code depth} objects
+     */
+    static String deepKey(int depth) {
+        StringBuilder key = new StringBuilder("Deep");
+        for (int i = 1; i < depth; i++) {
+            key.append(".l").append(i);
+        }
+        return key.append(".leaf").toString();
+    }
+
+    /**
+     * @param depth depth of deep object, Excel sheets only hold one level
+     * @return collections by name
+     */
+    static Map<String, Map<String, Object>> collections(int depth) {
+        Map<String, Object> bench = new LinkedHashMap<>();
+        bench.put(SHALLOW_KEY, "value");
+
+        Map<String, Object> deep = new LinkedHashMap<>();
+        bench.put("Deep", deep);
+        for (int i = 1; i < depth; i++) {
+            Map<String, Object> level = new LinkedHashMap<>();
+            deep.put("l" + i, level);
+            deep = level;
+        }
+        deep.put("leaf", "deep");
+
+        Map<String, Object> refs = new LinkedHashMap<>();
+        for (int i = 0; i < CHAIN_LENGTH; i++) {
+            refs.put("c" + i, new Ref(BENCH, "Refs.c" + (i + 1)));
+        }
+        refs.put("c" + CHAIN_LENGTH, "end");
+        bench.put("Refs", refs);
+
+        Map<String, Object> large = new LinkedHashMap<>();
+        for (int i = 0; i < LARGE_SIZE; i++) {
+            large.put("f" + i, "value " + i);
+        }
+        bench.put(LARGE_KEY, large);
+
+        Map<String, Object> generated = new LinkedHashMap<>();
+        for (int i = 0; i < GENERATED_SIZE; i++) {
+            generated.put("g" + i, "generate:Numeric:16");
+        }
+        bench.put(GENERATED_KEY, generated);
+
+        Map<String, Object> other = new LinkedHashMap<>();
+        other.put(SHALLOW_KEY, "other");
+
+        Map<String, Map<String, Object>> collections = new LinkedHashMap<>();
+        collections.put(BENCH, bench);
+        collections.put(OTHER, other);
+        return collections;
+    }
+
+    /**
+     * @return folder with one json file per collection
+     */
+    static File writeJson() throws IOException {
+        File folder = Files.createTempDirectory("datajack-json").toFile();
+        for (Map.Entry<String, Map<String, Object>> collection : collections(DEPTH).entrySet()) {
+            String json = toBson(collection.getValue(), false).toJson();
+            Files.write(new File(folder, collection.getKey() + ".json").toPath(), json.getBytes(StandardCharsets.UTF_8));
+        }
+        return folder;
+    }
+
+    /**
+     * @return folder with one properties file per collection
+     */
+    static File writeProperties() throws IOException {
+        File folder = Files.createTempDirectory("datajack-properties").toFile();
+        for (Map.Entry<String, Map<String, Object>> collection : collections(DEPTH).entrySet()) {
+            StringBuilder properties = new StringBuilder();
+            appendProperties(properties, "", collection.getValue());
+            Files.write(new File(folder, collection.getKey() + ".properties").toPath(),
+                    properties.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return folder;
+    }
+
+    /**
+     * @return path of work book with one sheet per collection, without extension
+     */
+    static String writeExcel() throws IOException {
+        File file = File.createTempFile("datajack-excel", ".xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook(); OutputStream out = new FileOutputStream(file)) {
+            for (Map.Entry<String, Map<String, Object>> collection : collections(1).entrySet()) {
+                XSSFSheet sheet = workbook.createSheet(collection.getKey());
+                int rows = 0;
+                // Values of the root go first, objects are closed by an empty row
+                for (Map.Entry<String, Object> field : collection.getValue().entrySet()) {
+                    if (!(field.getValue() instanceof Map)) {
+                        setRow(sheet.createRow(rows++), null, field.getKey(), field.getValue());
+                    }
+                }
+                for (Map.Entry<String, Object> field : collection.getValue().entrySet()) {
+                    if (field.getValue() instanceof Map) {
+                        setRow(sheet.createRow(rows++), field.getKey(), null, null);
+                        for (Map.Entry<?, ?> child : ((Map<?, ?>) field.getValue()).entrySet()) {
+                            setRow(sheet.createRow(rows++), null, (String) child.getKey(), child.getValue());
+                        }
+                        sheet.createRow(rows++);
+                    }
+                }
+            }
+            workbook.write(out);
+        }
+        String path = file.getPath();
+        return path.substring(0, path.length() - ".xlsx".length());
+    }
+
+    /**
+     * @return snapshot file with all collections
+     */
+    static File writeSnapshot() throws IOException, DataException {
+        File file = File.createTempFile("datajack", ".snapshot");
+        SnapshotWriter writer = new SnapshotWriter();
+        for (Map.Entry<String, Map<String, Object>> collection : collections(DEPTH).entrySet()) {
+            writer.add(collection.getKey(), toBson(collection.getValue(), false));
+        }
+        writer.write(file);
+        return file;
+    }
+
+    /**
+     * @return in-memory database with one document per collection
+     */
+    static DB writeMongo() {
+        DB db = new Fongo("datajack-benchmarks").getDB("datajack");
+        for (Map.Entry<String, Map<String, Object>> collection : collections(DEPTH).entrySet()) {
+            db.getCollection(collection.getKey()).insert(toBson(collection.getValue(), true));
+        }
+        return db;
+    }
+
+    /**
+     * @param tree collection tree
+     * @param mongo write references the way Mongo and Excel providers
+     * keep them instead of json {@code $ref} objects
+     * @return collection object
+     */
+    static BasicDBObject toBson(Map<String, Object> tree, boolean mongo) {
+        BasicDBObject object = new BasicDBObject();
+        for (Map.Entry<String, Object> field : tree.entrySet()) {
+            object.put(field.getKey(), toBsonValue(field.getValue(), mongo));
+        }
+        return object;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object toBsonValue(Object value, boolean mongo) {
+        if (value instanceof Map) {
+            return toBson((Map<String, Object>) value, mongo);
+        } else if (value instanceof Ref) {
+            Ref ref = (Ref) value;
+            return mongo
+                    ? new BasicDBObject("value", new BasicDBObject("collection", ref.collection).append("path", ref.path))
+                    : new BasicDBObject("$ref", ref.collection + ":" + ref.path);
+        }
+        return value;
+    }
+
+    private static void appendProperties(StringBuilder properties, String prefix, Map<?, ?> tree) {
+        for (Map.Entry<?, ?> field : tree.entrySet()) {
+            String key = prefix + field.getKey();
+            if (field.getValue() instanceof Map) {
+                appendProperties(properties, key + ".", (Map<?, ?>) field.getValue());
+            } else if (field.getValue() instanceof Ref) {
+                Ref ref = (Ref) field.getValue();
+                properties.append(key).append(".$ref = ").append(ref.collection).append(':').append(ref.path).append('\n');
+            } else {
+                properties.append(key).append(" = ").append(field.getValue()).append('\n');
+            }
+        }
+    }
+
+    private static void setRow(XSSFRow row, String object, String key, Object value) {
+        if (object != null) {
+            row.createCell(0).setCellValue(object);
+            return;
+        }
+        row.createCell(1).setCellValue(key);
+        row.createCell(2).setCellValue(value instanceof Ref
+                ? "$ref:" + ((Ref) value).collection + ":" + ((Ref) value).path
+                : String.valueOf(value));
+    }
+
+    private static final class Ref {
+
+        private final String collection;
+        private final String path;
+
+        private Ref(String collection, String path) {
+            this.collection = collection;
+            this.path = path;
+        }
+    }
+}
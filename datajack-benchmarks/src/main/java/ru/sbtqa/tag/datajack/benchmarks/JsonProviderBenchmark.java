@@ -0,0 +1,26 @@
+package ru.sbtqa.tag.datajack.benchmarks;
+
+import ru.sbtqa.tag.datajack.TestDataProvider;
+import ru.sbtqa.tag.datajack.exceptions.DataException;
+import ru.sbtqa.tag.datajack.providers.CollectionCache;
+import ru.sbtqa.tag.datajack.providers.json.JsonDataProvider;
+
+public class JsonProviderBenchmark extends ProviderBenchmark {
+
+    private String folder;
+
+    @Override
+    protected void write() throws Exception {
+        folder = Fixtures.writeJson().getPath();
+    }
+
+    @Override
+    protected TestDataProvider open(String collectionName) throws DataException {
+        return new JsonDataProvider(folder, collectionName);
+    }
+
+    @Override
+    protected void dropCaches() {
+        CollectionCache.getInstance().invalidate(folder, Fixtures.BENCH, "json");
+    }
+}
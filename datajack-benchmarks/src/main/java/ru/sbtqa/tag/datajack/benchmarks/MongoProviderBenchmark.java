@@ -0,0 +1,25 @@
+package ru.sbtqa.tag.datajack.benchmarks;
+
+import com.mongodb.DB;
+import ru.sbtqa.tag.datajack.TestDataProvider;
+import ru.sbtqa.tag.datajack.exceptions.DataException;
+import ru.sbtqa.tag.datajack.providers.mongo.MongoDataProvider;
+
+/**
+ * Runs against in-memory Fongo database, so database round-trips cost no
+ * network time
+ */
+public class MongoProviderBenchmark extends ProviderBenchmark {
+
+    private DB db;
+
+    @Override
+    protected void write() {
+        db = Fixtures.writeMongo();
+    }
+
+    @Override
+    protected TestDataProvider open(String collectionName) throws DataException {
+        return new MongoDataProvider(db, collectionName);
+    }
+}
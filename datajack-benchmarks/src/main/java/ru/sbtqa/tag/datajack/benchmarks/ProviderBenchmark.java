@@ -0,0 +1,110 @@
+package ru.sbtqa.tag.datajack.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.sbtqa.tag.datajack.TestDataProvider;
+import ru.sbtqa.tag.datajack.exceptions.DataException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operations measured for every provider over the data of {@link Fixtures}.
+ * Subclasses write the data in their format and open providers over it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class ProviderBenchmark {
+
+    private TestDataProvider provider;
+    private TestDataProvider generating;
+
+    /**
+     * Write benchmark data
+     *
+     * @throws Exception if data could not be written
+     */
+    protected abstract void write() throws Exception;
+
+    /**
+     * Open provider of collection, loading it the way a test would
+     *
+     * @param collectionName collection name
+     * @return provider
+     * @throws DataException if collection could not be loaded
+     */
+    protected abstract TestDataProvider open(String collectionName) throws DataException;
+
+    /**
+     * Drop cached collections, so that {@link #load()} reads and parses files
+     */
+    protected void dropCaches() {
+    }
+
+    /**
+     * @return key of the deepest value the format can hold
+     */
+    protected String getDeepKey() {
+        return Fixtures.deepKey(Fixtures.DEPTH);
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        write();
+        provider = open(Fixtures.BENCH);
+        generating = open(Fixtures.BENCH);
+        generating.applyGeneratorInstance(new BenchmarkGenerator());
+    }
+
+    @Benchmark
+    public TestDataProvider load() throws DataException {
+        dropCaches();
+        return open(Fixtures.BENCH);
+    }
+
+    @Benchmark
+    public TestDataProvider fromCollection() throws DataException {
+        return provider.fromCollection(Fixtures.OTHER);
+    }
+
+    @Benchmark
+    public String getShallow() throws DataException {
+        return provider.get(Fixtures.SHALLOW_KEY).getValue();
+    }
+
+    @Benchmark
+    public String getDeep() throws DataException {
+        return provider.get(getDeepKey()).getValue();
+    }
+
+    @Benchmark
+    public String getByPath() throws DataException {
+        return provider.getByPath(Fixtures.PATH).getValue();
+    }
+
+    @Benchmark
+    public String referenceChain() throws DataException {
+        return provider.get(Fixtures.CHAIN_KEY).getValue();
+    }
+
+    @Benchmark
+    public String getValueLarge() throws DataException {
+        return provider.get(Fixtures.LARGE_KEY).getValue();
+    }
+
+    @Benchmark
+    public String generate() throws DataException {
+        return generating.get(Fixtures.GENERATED_KEY).getValue();
+    }
+}
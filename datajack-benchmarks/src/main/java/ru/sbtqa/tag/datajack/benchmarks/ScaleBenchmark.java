@@ -0,0 +1,107 @@
+package ru.sbtqa.tag.datajack.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.sbtqa.tag.datajack.TestDataProvider;
+import ru.sbtqa.tag.datajack.exceptions.DataException;
+import ru.sbtqa.tag.datajack.providers.CollectionCache;
+import ru.sbtqa.tag.datajack.providers.CollectionPreloader;
+import ru.sbtqa.tag.datajack.providers.json.JsonDataProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Json provider over datasets of {@link DatasetGenerator} of growing size,
+ * e.g. {@code -p size=1GB -jvmArgs -Xmx4g}. The size sets the number of
+ * collections, which is what {@link #preload()} scales with, and
+ * {@code records} sets the size of each collection, which is what
+ * {@link #load()} and lookups scale with. Datasets are written once per trial
+ * and deleted after it
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScaleBenchmark {
+
+    @Param({"10MB", "100MB"})
+    public String size;
+
+    @Param({"1000", "10000"})
+    public int records;
+
+    @Param({"4"})
+    public int depth;
+
+    private File folder;
+    private String collectionName;
+    private String deepKey;
+    private TestDataProvider provider;
+
+    @Setup
+    public void setUp() throws IOException, DataException {
+        DatasetGenerator generator = DatasetGenerator.builder()
+                .size(DatasetGenerator.parseSize(size))
+                .records(records)
+                .depth(depth)
+                .build();
+        folder = Files.createTempDirectory("datajack-scale").toFile();
+        generator.writeJson(folder);
+
+        collectionName = DatasetGenerator.collectionName(generator.getCollections() / 2);
+        StringBuilder key = new StringBuilder("r").append(generator.getRecords() / 2);
+        for (int i = 1; i < depth; i++) {
+            key.append(".child");
+        }
+        deepKey = key.append(".id").toString();
+        provider = new JsonDataProvider(folder.getPath(), collectionName);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        CollectionCache.getInstance().clear();
+        try (Stream<Path> paths = Files.walk(folder.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public TestDataProvider load() throws DataException {
+        CollectionCache.getInstance().invalidate(folder.getPath(), collectionName, "json");
+        return new JsonDataProvider(folder.getPath(), collectionName);
+    }
+
+    @Benchmark
+    public CollectionPreloader.Report preload() throws DataException {
+        CollectionCache.getInstance().clear();
+        return JsonDataProvider.preload(folder.getPath());
+    }
+
+    @Benchmark
+    public String getDeep() throws DataException {
+        return provider.get(deepKey).getValue();
+    }
+
+    @Benchmark
+    public String referenceChain() throws DataException {
+        return provider.get("chains.c0").getValue();
+    }
+}
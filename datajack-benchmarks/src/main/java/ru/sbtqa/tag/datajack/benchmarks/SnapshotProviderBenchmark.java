@@ -0,0 +1,33 @@
+package ru.sbtqa.tag.datajack.benchmarks;
+
+import ru.sbtqa.tag.datajack.TestDataProvider;
+import ru.sbtqa.tag.datajack.exceptions.DataException;
+import ru.sbtqa.tag.datajack.providers.snapshot.SnapshotDataProvider;
+
+import java.io.File;
+
+/**
+ * Compare {@link #load()} with {@link JsonProviderBenchmark}: both build the
+ * whole tree of one collection, the snapshot skips reading and parsing json
+ * text but still decodes every node of the collection
+ */
+public class SnapshotProviderBenchmark extends ProviderBenchmark {
+
+    private File file;
+
+    @Override
+    protected void write() throws Exception {
+        file = Fixtures.writeSnapshot();
+    }
+
+    @Override
+    protected TestDataProvider open(String collectionName) throws DataException {
+        return new SnapshotDataProvider(file.getPath(), collectionName);
+    }
+
+    @Override
+    protected void dropCaches() {
+        // Opened snapshots are shared until the file changes
+        file.setLastModified(file.lastModified() + 1000);
+    }
+}
@@ -0,0 +1,141 @@
+package ru.sbtqa.tag.datajack.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.sbtqa.tag.datajack.Stash;
+import ru.sbtqa.tag.datajack.StashScope;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-thread {@link Stash} against a shared {@link StashScope} and a
+ * synchronized global map, with 4 workers writing and reading their own keys
+ * and updating one shared counter. Run with {@code -t} to change the number of
+ * workers. Scope benchmarks also report writes and contended writes of the
+ * scope per iteration
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class StashBenchmark {
+
+    private static final String COUNTER = "counter";
+
+    private final AtomicInteger workers = new AtomicInteger();
+    private final AtomicBoolean reported = new AtomicBoolean();
+    private final Map<String, Object> synchronizedMap = Collections.synchronizedMap(new HashMap<>());
+    private StashScope scope;
+
+    @Setup
+    public void setUp() {
+        scope = Stash.group("benchmark");
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        scope.resetCounters();
+        reported.set(false);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Stash.removeGroup("benchmark");
+    }
+
+    @Benchmark
+    public Object threadVault(Worker worker) {
+        Stash.put(worker.key, worker.value);
+        return Stash.getValue(worker.key);
+    }
+
+    @Benchmark
+    public Object synchronizedMap(Worker worker) {
+        synchronizedMap.put(worker.key, worker.value);
+        return synchronizedMap.get(worker.key);
+    }
+
+    @Benchmark
+    public Object sharedScope(Worker worker, ScopeCounters counters) {
+        scope.put(worker.key, worker.value);
+        return scope.getValue(worker.key);
+    }
+
+    @Benchmark
+    public Object synchronizedMapCounter() {
+        synchronized (synchronizedMap) {
+            Integer value = (Integer) synchronizedMap.get(COUNTER);
+            Integer computed = value == null ? 1 : value + 1;
+            synchronizedMap.put(COUNTER, computed);
+            return computed;
+        }
+    }
+
+    @Benchmark
+    public Object sharedScopeCounter(ScopeCounters counters) {
+        return scope.<Integer>compute(COUNTER, (key, value) -> value == null ? 1 : value + 1);
+    }
+
+    /**
+     * Key and value of one worker
+     */
+    @State(Scope.Thread)
+    public static class Worker {
+
+        private String key;
+        private Object value;
+
+        @Setup
+        public void setUp(StashBenchmark benchmark) {
+            int index = benchmark.workers.getAndIncrement();
+            key = "key" + index;
+            value = "value" + index;
+        }
+    }
+
+    /**
+     * Writes and contended writes of the scope. Counters are summed over
+     * workers, so one worker reports the scope totals and the others zeros
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ScopeCounters {
+
+        public long writes;
+        public long contentions;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            writes = 0;
+            contentions = 0;
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown(StashBenchmark benchmark) {
+            if (benchmark.reported.compareAndSet(false, true)) {
+                writes = benchmark.scope.getWrites();
+                contentions = benchmark.scope.getContentions();
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package ru.sbtqa.tag.datajack.benchmarks;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.sbtqa.tag.datajack.tree.BsonTrees;
+import ru.sbtqa.tag.datajack.tree.CompactArray;
+import ru.sbtqa.tag.datajack.tree.CompactObject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Footprint and lookup cost of {@link BasicDBObject} trees against compact
+ * trees, over an array of records of the same shape. Compare
+ * {@code gc.alloc.rate.norm} of {@link #buildBson()} and
+ * {@link #buildCompact()}: each allocates one tree of its kind, the compact one
+ * also allocates transient copies while converting, so its retained size is
+ * smaller than reported
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeBenchmark {
+
+    @Param({"1000"})
+    public int records;
+
+    private BasicDBObject bson;
+    private CompactObject compact;
+
+    @Setup
+    public void setUp() {
+        BasicDBList list = new BasicDBList();
+        for (int i = 0; i < records; i++) {
+            list.add(new BasicDBObject("id", i)
+                    .append("login", "user" + i)
+                    .append("active", i % 2 == 0)
+                    .append("address", new BasicDBObject("city", "City " + i % 10).append("zip", 100000 + i)));
+        }
+        bson = new BasicDBObject("users", list);
+        compact = BsonTrees.toCompact(bson);
+    }
+
+    @Benchmark
+    public BasicDBObject buildBson() {
+        return BsonTrees.toBson(compact);
+    }
+
+    @Benchmark
+    public CompactObject buildCompact() {
+        return BsonTrees.toCompact(bson);
+    }
+
+    @Benchmark
+    public Object getBson() {
+        BasicDBObject record = (BasicDBObject) ((BasicDBList) bson.get("users")).get(records / 2);
+        return ((BasicDBObject) record.get("address")).get("city");
+    }
+
+    @Benchmark
+    public Object getCompact() {
+        CompactObject record = (CompactObject) ((CompactArray) compact.get("users")).get(records / 2);
+        return ((CompactObject) record.get("address")).get("city");
+    }
+}
@@ -0,0 +1,114 @@
+package ru.sbtqa.tag.datajack.benchmarks;
+
+import com.github.fakemongo.Fongo;
+import com.mongodb.DB;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ru.sbtqa.tag.datajack.TestDataProvider;
+import ru.sbtqa.tag.datajack.exceptions.DataException;
+import ru.sbtqa.tag.datajack.providers.CollectionCache;
+import ru.sbtqa.tag.datajack.providers.excel.ExcelDataProvider;
+import ru.sbtqa.tag.datajack.providers.json.JsonDataProvider;
+import ru.sbtqa.tag.datajack.providers.mongo.MongoDataProvider;
+import ru.sbtqa.tag.datajack.providers.properties.PropertiesDataProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class DatasetGeneratorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final DatasetGenerator generator = DatasetGenerator.builder()
+            .collections(3)
+            .records(20)
+            .depth(3)
+            .arrayLength(4)
+            .referenceDensity(0.5)
+            .chainLength(3)
+            .build();
+
+    @Test
+    public void jsonTest() throws DataException, IOException {
+        File folder = temporaryFolder.newFolder("json");
+        generator.writeJson(folder);
+        try {
+            assertDataset(new JsonDataProvider(folder.getPath(), DatasetGenerator.collectionName(1)), "r5.child.child");
+        } finally {
+            CollectionCache.getInstance().clear();
+        }
+    }
+
+    @Test
+    public void propertiesTest() throws DataException, IOException {
+        File folder = temporaryFolder.newFolder("properties");
+        generator.writeProperties(folder);
+        try {
+            assertDataset(new PropertiesDataProvider(folder.getPath(), DatasetGenerator.collectionName(1)), "r5.child.child");
+        } finally {
+            CollectionCache.getInstance().clear();
+        }
+    }
+
+    @Test
+    public void excelTest() throws DataException, IOException {
+        File file = new File(temporaryFolder.getRoot(), "dataset.xlsx");
+        generator.writeExcel(file);
+        String path = file.getPath();
+        TestDataProvider provider = new ExcelDataProvider(path.substring(0, path.length() - ".xlsx".length()),
+                DatasetGenerator.collectionName(1));
+        assertEquals("5", provider.get("r5.child_child_id").getValue());
+        assertEquals("end", provider.get("chains").get("c0").getValue());
+    }
+
+    @Test
+    public void mongoTest() throws DataException {
+        DB db = new Fongo("dataset").getDB("dataset");
+        generator.writeMongo(db);
+        assertDataset(new MongoDataProvider(db, DatasetGenerator.collectionName(1)), "r5.child.child");
+    }
+
+    @Test
+    public void sameSeedTest() throws IOException {
+        File first = temporaryFolder.newFolder("first");
+        File second = temporaryFolder.newFolder("second");
+        generator.writeJson(first);
+        generator.writeJson(second);
+        for (int i = 0; i < generator.getCollections(); i++) {
+            String name = DatasetGenerator.collectionName(i) + ".json";
+            assertArrayEquals(Files.readAllBytes(new File(first, name).toPath()),
+                    Files.readAllBytes(new File(second, name).toPath()));
+        }
+    }
+
+    @Test
+    public void sizeTest() throws IOException {
+        long size = 2L << 20;
+        DatasetGenerator sized = DatasetGenerator.builder().records(100).size(size).build();
+        File folder = temporaryFolder.newFolder("sized");
+        sized.writeJson(folder);
+
+        long written = 0;
+        for (File file : folder.listFiles()) {
+            written += file.length();
+        }
+        assertTrue("Dataset of " + written + " bytes", Math.abs(written - size) < size / 5);
+        assertEquals(10L << 20, DatasetGenerator.parseSize("10MB"));
+        assertEquals(1L << 30, DatasetGenerator.parseSize("1gb"));
+    }
+
+    private void assertDataset(TestDataProvider provider, String deepKey) throws DataException {
+        assertEquals("5", provider.get(deepKey + ".id").getValue());
+        assertEquals(Arrays.asList("false", "true"), Arrays.asList(
+                provider.get("r4.active").getValue(), provider.get("r5.active").getValue()));
+        assertTrue(provider.get("r0.tags[3]").getValue().startsWith("tag"));
+        assertEquals("end", provider.get("chains").get("c0").getValue());
+        assertEquals("5", provider.getByPath("$" + DatasetGenerator.collectionName(2) + "{r5.child.id}").getValue());
+    }
+}
@@ -0,0 +1,166 @@
+package ru.sbtqa.tag.datajack.maven;
+
+import com.mongodb.BasicDBObject;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import ru.sbtqa.tag.datajack.exceptions.DataException;
+import ru.sbtqa.tag.datajack.providers.AbstractDataProvider;
+import ru.sbtqa.tag.datajack.providers.excel.ExcelDataProvider;
+import ru.sbtqa.tag.datajack.providers.json.JsonDataProvider;
+import ru.sbtqa.tag.datajack.providers.properties.PropertiesDataProvider;
+import ru.sbtqa.tag.datajack.providers.snapshot.SnapshotWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+
+/**
+ * Compiles test data folder into a binary snapshot readable by
+ * {@code SnapshotDataProvider}. Collections are named by their path relative
+ * to data folder without extension, Excel collections are named by sheet.
+ * Each file is read by the provider of its format, so references may only
+ * point to collections of the same format. References are resolved and
+ * validated at build time, so broken or cyclic references fail the build
+ * instead of the tests
+ */
+@Mojo(name = "compile", defaultPhase = LifecyclePhase.PROCESS_TEST_RESOURCES, threadSafe = true)
+public class CompileDataMojo extends AbstractMojo {
+
+    private static final String JSON_EXTENSION = ".json";
+    private static final String PROPERTIES_EXTENSION = ".properties";
+    private static final String EXCEL_EXTENSION = ".xlsx";
+
+    /**
+     * Folder with json, properties and xlsx data files
+     */
+    @Parameter(property = "datajack.dataFolder", defaultValue = "${project.basedir}/src/test/resources/data")
+    private File dataFolder;
+
+    /**
+     * Snapshot file to write
+     */
+    @Parameter(property = "datajack.output", defaultValue = "${project.build.directory}/datajack/data.snapshot")
+    private File output;
+
+    /**
+     * Inline referenced nodes instead of keeping references. References are
+     * validated either way
+     */
+    @Parameter(property = "datajack.resolveReferences", defaultValue = "true")
+    private boolean resolveReferences;
+
+    @Parameter(property = "datajack.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (skip) {
+            getLog().info("Skipping test data compilation");
+            return;
+        }
+        if (!dataFolder.isDirectory()) {
+            throw new MojoFailureException(format("Test data folder %s does not exist", dataFolder));
+        }
+
+        Map<String, File> sources = new HashMap<>();
+        SnapshotWriter writer = new SnapshotWriter();
+        try {
+            for (Path file : listFiles()) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(EXCEL_EXTENSION)) {
+                    // Sheets of one provider share the parsed work book
+                    ExcelDataProvider workBook = null;
+                    for (String sheet : getSheetNames(file.toFile())) {
+                        workBook = workBook == null
+                                ? new ExcelDataProvider(stripExtension(file.toString(), EXCEL_EXTENSION), sheet)
+                                : workBook.fromCollection(sheet);
+                        add(writer, sources, sheet, file.toFile(), workBook);
+                    }
+                } else if (name.endsWith(JSON_EXTENSION)) {
+                    String collection = getCollectionName(file, JSON_EXTENSION);
+                    add(writer, sources, collection, file.toFile(), new JsonDataProvider(dataFolder.getPath(), collection));
+                } else if (name.endsWith(PROPERTIES_EXTENSION)) {
+                    String collection = getCollectionName(file, PROPERTIES_EXTENSION);
+                    add(writer, sources, collection, file.toFile(), new PropertiesDataProvider(dataFolder.getPath(), collection));
+                }
+            }
+
+            File parent = output.getAbsoluteFile().getParentFile();
+            if (!parent.isDirectory() && !parent.mkdirs()) {
+                throw new MojoExecutionException("Could not create directory " + parent);
+            }
+            writer.write(output);
+        } catch (DataException ex) {
+            throw new MojoFailureException("Could not compile test data: " + ex.getMessage(), ex);
+        }
+        getLog().info(format("Compiled %d collections into %s", sources.size(), output));
+    }
+
+    private void add(SnapshotWriter writer, Map<String, File> sources, String collection, File file,
+                     AbstractDataProvider provider) throws DataException, MojoFailureException {
+        File previous = sources.put(collection, file);
+        if (previous != null) {
+            throw new MojoFailureException(format("Collection \"%s\" is defined both in %s and %s", collection, previous, file));
+        }
+        BasicDBObject resolved = provider.toResolvedObject();
+        writer.add(collection, resolveReferences ? resolved : new BasicDBObject(provider.toMap()));
+        getLog().debug(format("Added collection \"%s\" from %s", collection, file));
+    }
+
+    private List<Path> listFiles() throws MojoExecutionException {
+        try (Stream<Path> files = Files.walk(dataFolder.toPath())) {
+            return files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        } catch (IOException ex) {
+            throw new MojoExecutionException("Could not list test data folder " + dataFolder, ex);
+        }
+    }
+
+    private String getCollectionName(Path file, String extension) {
+        String relative = dataFolder.toPath().relativize(file).toString().replace(File.separatorChar, '/');
+        return stripExtension(relative, extension);
+    }
+
+    private static String stripExtension(String name, String extension) {
+        return name.substring(0, name.length() - extension.length());
+    }
+
+    /**
+     * Read sheet names from the work book part only, without parsing sheets
+     */
+    private static List<String> getSheetNames(File file) throws MojoExecutionException {
+        OPCPackage pkg = null;
+        try {
+            pkg = OPCPackage.open(file, PackageAccess.READ);
+            XSSFReader.SheetIterator iterator = (XSSFReader.SheetIterator) new XSSFReader(pkg).getSheetsData();
+            List<String> sheets = new ArrayList<>();
+            while (iterator.hasNext()) {
+                iterator.next().close();
+                sheets.add(iterator.getSheetName());
+            }
+            return sheets;
+        } catch (IOException | OpenXML4JException ex) {
+            throw new MojoExecutionException("Could not read sheets of " + file, ex);
+        } finally {
+            if (pkg != null) {
+                pkg.revert();
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package ru.sbtqa.tag.datajack.maven;
+
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import ru.sbtqa.tag.datajack.TestDataProvider;
+import ru.sbtqa.tag.datajack.exceptions.CyclicReferencesException;
+import ru.sbtqa.tag.datajack.metrics.InMemoryMetrics;
+import ru.sbtqa.tag.datajack.metrics.Metrics;
+import ru.sbtqa.tag.datajack.metrics.Operation;
+import ru.sbtqa.tag.datajack.providers.snapshot.Snapshot;
+import ru.sbtqa.tag.datajack.providers.snapshot.SnapshotDataProvider;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.rules.ExpectedException.none;
+
+public class CompileDataMojoTest {
+
+    @Rule
+    public ExpectedException expectDataExceptions = none();
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File dataFolder;
+    private File output;
+
+    @Before
+    public void setUp() throws IOException {
+        dataFolder = temporaryFolder.newFolder("data");
+        output = new File(temporaryFolder.getRoot(), "target/datajack/data.snapshot");
+        write("Users.json", "{\"admin\": {\"login\": \"root\", \"password\": {\"$ref\": \"nested/Secrets:admin\"}},"
+                + " \"guest\": {\"$ref\": \"Users:admin\"}}");
+        write("nested/Secrets.json", "{\"admin\": \"123qwe\"}");
+        write("Settings.properties", "timeout = 30\nadmin.login = root\nuser.$ref = Settings:admin.login\n");
+    }
+
+    @Test
+    public void resolvedSnapshotTest() throws Exception {
+        execute(true);
+
+        Snapshot snapshot = Snapshot.open(output);
+        assertTrue(snapshot.getCollectionNames().containsAll(Arrays.asList("Users", "nested/Secrets", "Settings")));
+        assertFalse(snapshot.getCollection("Users").toJson().contains("$ref"));
+        assertFalse(snapshot.getCollection("Settings").toJson().contains("$ref"));
+
+        TestDataProvider users = new SnapshotDataProvider(output.getPath(), "Users");
+        assertEquals("123qwe", users.get("admin.password").getValue());
+        assertEquals("root", users.get("guest.login").getValue());
+        assertEquals("root", users.fromCollection("Settings").get("user").getValue());
+        assertEquals("30", users.fromCollection("Settings").get("timeout").getValue());
+    }
+
+    @Test
+    public void keepReferencesTest() throws Exception {
+        execute(false);
+
+        assertTrue(Snapshot.open(output).getCollection("Users").toJson().contains("$ref"));
+        TestDataProvider users = new SnapshotDataProvider(output.getPath(), "Users");
+        assertEquals("123qwe", users.get("guest.password").getValue());
+    }
+
+    @Test
+    public void excelSheetsTest() throws Exception {
+        try (XSSFWorkbook workbook = new XSSFWorkbook();
+             OutputStream out = new FileOutputStream(new File(dataFolder, "Accounts.xlsx"))) {
+            setRow(workbook.createSheet("Logins").createRow(0), "admin", "root");
+            setRow(workbook.createSheet("Roles").createRow(0), "root", "$ref:Logins:admin");
+            workbook.write(out);
+        }
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        Metrics.install(metrics);
+        try {
+            execute(true);
+        } finally {
+            Metrics.install(null);
+        }
+
+        // The work book is read once, all sheets are taken from it
+        assertEquals(1, metrics.getCount(Operation.READ, "Logins"));
+        assertEquals(0, metrics.getCount(Operation.READ, "Roles"));
+        TestDataProvider roles = new SnapshotDataProvider(output.getPath(), "Roles");
+        assertEquals("root", roles.get("root").getValue());
+        assertEquals("root", roles.fromCollection("Logins").get("admin").getValue());
+    }
+
+    @Test
+    public void cyclicReferenceTest() throws Exception {
+        write("Cyclic.json", "{\"a\": {\"$ref\": \"Cyclic:b\"}, \"b\": {\"$ref\": \"Cyclic:a\"}}");
+        expectDataExceptions.expect(MojoFailureException.class);
+        expectDataExceptions.expectCause(instanceOf(CyclicReferencesException.class));
+        execute(true);
+    }
+
+    @Test
+    public void brokenReferenceTest() throws Exception {
+        write("Broken.json", "{\"a\": {\"$ref\": \"Users:nobody\"}}");
+        expectDataExceptions.expect(MojoFailureException.class);
+        expectDataExceptions.expectMessage("Could not compile test data");
+        execute(false);
+    }
+
+    @Test
+    public void duplicateCollectionTest() throws Exception {
+        write("Users.properties", "admin.login = root\n");
+        expectDataExceptions.expect(MojoFailureException.class);
+        expectDataExceptions.expectMessage("Collection \"Users\" is defined both in");
+        execute(true);
+    }
+
+    private void execute(boolean resolveReferences) throws Exception {
+        CompileDataMojo mojo = new CompileDataMojo();
+        set(mojo, "dataFolder", dataFolder);
+        set(mojo, "output", output);
+        set(mojo, "resolveReferences", resolveReferences);
+        mojo.execute();
+    }
+
+    private static void set(CompileDataMojo mojo, String name, Object value) throws ReflectiveOperationException {
+        Field field = CompileDataMojo.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(mojo, value);
+    }
+
+    private static void setRow(XSSFRow row, String key, String value) {
+        row.createCell(1).setCellValue(key);
+        row.createCell(2).setCellValue(value);
+    }
+
+    private void write(String name, String content) throws IOException {
+        File file = new File(dataFolder, name);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(UTF_8));
+    }
+}
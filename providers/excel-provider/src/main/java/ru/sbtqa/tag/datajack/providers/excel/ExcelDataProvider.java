@@ -15,6 +15,8 @@ import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ru.sbtqa.tag.datajack.exceptions.*;
+import ru.sbtqa.tag.datajack.metrics.Metrics;
+import ru.sbtqa.tag.datajack.metrics.Operation;
 import ru.sbtqa.tag.datajack.providers.AbstractDataProvider;
 
 import java.io.File;
@@ -23,6 +25,8 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static java.lang.String.format;
 
@@ -31,9 +35,11 @@ public class ExcelDataProvider extends AbstractDataProvider {
     private static final Logger LOG = LoggerFactory.getLogger(ExcelDataProvider.class);
     private static final String DEFAULT_EXTENSION = "xlsx";
     private static final String REF_TPL = "$ref:";
+    private static final double MAX_EXACT_DOUBLE = 0x1p53;
     private final XSSFWorkbook workBook;
     private final String dataFileName;
-    private XSSFFormulaEvaluator evaluator;
+    private final XSSFFormulaEvaluator evaluator;
+    private final ConcurrentMap<String, BasicDBObject> collections;
 
     /**
      * Constructs ExcelDataProvider object Collection = an Excel work book
@@ -49,27 +55,34 @@ public class ExcelDataProvider extends AbstractDataProvider {
             throw new FileNotFoundException(format("Could not find data file: '%s'", dataFilePath));
         }
         this.dataFileName = file.getName().replace(DEFAULT_EXTENSION, "");
+        long start = Metrics.start();
         try {
             this.workBook = new XSSFWorkbook(file);
         } catch (IOException | InvalidFormatException ex) {
             throw new DataParseException("Could not parse \"" + file + "\"", ex);
+        } finally {
+            Metrics.stop(Operation.READ, collectionName, start);
         }
-        this.collectionName = collectionName;
-        this.basicObject = parseCollection();
         this.evaluator = workBook.getCreationHelper().createFormulaEvaluator();
+        this.collections = new ConcurrentHashMap<>();
+        this.collectionName = collectionName;
+        this.basicObject = getCollectionObject(collectionName);
     }
 
-    private ExcelDataProvider(String dataFileName, XSSFWorkbook workBook, String collectionName) {
-        this.dataFileName = dataFileName;
-        this.workBook = workBook;
+    private ExcelDataProvider(ExcelDataProvider source, String collectionName) {
+        this.dataFileName = source.dataFileName;
+        this.workBook = source.workBook;
+        this.evaluator = source.evaluator;
+        this.collections = source.collections;
         this.collectionName = collectionName;
-        this.basicObject = parseCollection();
+        this.basicObject = getCollectionObject(collectionName);
     }
 
-    private ExcelDataProvider(String dataFileName, XSSFWorkbook workBook,
-                              BasicDBObject obj, String collectionName, String way) {
-        this.dataFileName = dataFileName;
-        this.workBook = workBook;
+    private ExcelDataProvider(ExcelDataProvider source, BasicDBObject obj, String collectionName, String way) {
+        this.dataFileName = source.dataFileName;
+        this.workBook = source.workBook;
+        this.evaluator = source.evaluator;
+        this.collections = source.collections;
         this.basicObject = obj;
         this.collectionName = collectionName;
         this.way = way;
@@ -80,7 +93,7 @@ public class ExcelDataProvider extends AbstractDataProvider {
      */
     @Override
     protected ExcelDataProvider createInstance(BasicDBObject basicObject, String collectionName, String way) {
-        return new ExcelDataProvider(dataFileName, workBook, basicObject, collectionName, way);
+        return new ExcelDataProvider(this, basicObject, collectionName, way);
     }
 
     /**
@@ -88,7 +101,7 @@ public class ExcelDataProvider extends AbstractDataProvider {
      */
     @Override
     protected ExcelDataProvider createInstance(BasicDBObject basicObject, String collectionName) {
-        return new ExcelDataProvider(dataFileName, workBook, basicObject, collectionName, way);
+        return new ExcelDataProvider(this, basicObject, collectionName, way);
     }
 
     /**
@@ -96,7 +109,27 @@ public class ExcelDataProvider extends AbstractDataProvider {
      */
     @Override
     protected ExcelDataProvider createInstance(String collectionName) {
-        return new ExcelDataProvider(dataFileName, workBook, collectionName);
+        return new ExcelDataProvider(this, collectionName);
+    }
+
+    /**
+     * Sheets are parsed once per work book and shared between providers
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    protected BasicDBObject getCollectionObject(String collectionName) {
+        return collections.computeIfAbsent(collectionName, this::parseCollection);
+    }
+
+    /**
+     * Sheets are never reparsed for a work book
+     *
+     * @return true
+     */
+    @Override
+    protected boolean isReferenceCacheable() {
+        return true;
     }
 
     /**
@@ -105,19 +138,20 @@ public class ExcelDataProvider extends AbstractDataProvider {
     @Override
     public ExcelDataProvider fromCollection(String collectionName) {
         ExcelDataProvider dataProvider = createInstance(collectionName);
-        dataProvider.applyGenerator(this.callback);
+        dataProvider.inheritGenerator(this);
         return dataProvider;
     }
 
     /**
      * Get all rows in current sheet. Skip header it there is one
      *
+     * @param sheetName sheet name
      * @return List of rows
      */
-    private List<XSSFRow> getRows() {
+    private List<XSSFRow> getRows(String sheetName) {
         List<XSSFRow> effectiveRows = new ArrayList<>();
         int firstRowNumber = 0;
-        XSSFSheet sheet = workBook.getSheet(collectionName);
+        XSSFSheet sheet = workBook.getSheet(sheetName);
         if ("Описание"
                 .equals(sheet.getRow(sheet.getFirstRowNum()).cellIterator().next().getStringCellValue())) {
             // Check if there is a header on the current shit. If so, skip it
@@ -129,10 +163,21 @@ public class ExcelDataProvider extends AbstractDataProvider {
         return effectiveRows;
     }
 
-    private BasicDBObject parseCollection() {
+    private BasicDBObject parseCollection(String sheetName) {
+        // Work book is not thread safe, so parse one sheet at a time
+        synchronized (workBook) {
+            long start = Metrics.start();
+            try {
+                return parseRows(getRows(sheetName));
+            } finally {
+                Metrics.stop(Operation.PARSE, sheetName, start);
+            }
+        }
+    }
+
+    private BasicDBObject parseRows(List<XSSFRow> rows) {
         BasicDBObject resultObj = new BasicDBObject();
         String currentObjName = "";
-        List<XSSFRow> rows = getRows();
         for (XSSFRow row : rows) {
             if (!currentObjName.isEmpty()) { // means we are currently parsing an object
                 if (isDelimiter(row)) {
@@ -142,7 +187,7 @@ public class ExcelDataProvider extends AbstractDataProvider {
                     resultObj.append(currentObjName, getObjectDeclaration(row));
                 } else // parse a row and append it to object
                     if (isSimpleKeyValueMap(row)) {
-                        Map<String, String> map = getSimpleKeyValueMap(row);
+                        Map<String, Object> map = getSimpleKeyValueMap(row);
                         ((BasicDBObject) resultObj.get(currentObjName))
                                 .append(map.keySet().iterator().next(), map.get(map.keySet().iterator().next()));
                     } else {
@@ -154,7 +199,7 @@ public class ExcelDataProvider extends AbstractDataProvider {
                 currentObjName = row.cellIterator().next().getStringCellValue().trim();
                 resultObj.append(currentObjName, getObjectDeclaration(row));
             } else if (isSimpleKeyValueMap(row)) {
-                Map<String, String> map = getSimpleKeyValueMap(row);
+                Map<String, Object> map = getSimpleKeyValueMap(row);
                 resultObj.append(map.keySet().iterator().next(), map.get(map.keySet().iterator().next()));
             } else {
                 Map<String, BasicDBObject> map = getObjectMappedToName(row);
@@ -193,9 +238,9 @@ public class ExcelDataProvider extends AbstractDataProvider {
         return !hasComment(row) && !isLink(row);
     }
 
-    private Map<String, String> getSimpleKeyValueMap(XSSFRow row) {
-        Map<String, String> map = new LinkedHashMap<>();
-        map.put(getCellValue(row.getCell(1)).trim(), getCellValue(row.getCell(2)).trim());
+    private Map<String, Object> getSimpleKeyValueMap(XSSFRow row) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put(getCellValue(row.getCell(1)).trim(), getTypedCellValue(row.getCell(2)));
         return map;
     }
 
@@ -257,13 +302,41 @@ public class ExcelDataProvider extends AbstractDataProvider {
         if (isLink(row)) {
             pureObject.append("value", getLink(row));
         } else {
-            Map<String, String> map = getSimpleKeyValueMap(row);
+            Map<String, Object> map = getSimpleKeyValueMap(row);
             pureObject.append(map.keySet().iterator().next(), map.get(map.keySet().iterator().next()));
         }
         objectMappedToName.put(name, pureObject);
         return objectMappedToName;
     }
 
+    /**
+     * Get value from Cell keeping numeric and boolean cells in their native
+     * form. Integral numbers are stored as {@link Integer} or {@link Long},
+     * other cells are read by {@link #getCellValue(Cell)}
+     *
+     * @param cell data cell
+     * @return value of cell
+     */
+    private Object getTypedCellValue(Cell cell) {
+        //noinspection deprecation
+        CellType type = cell.getCellTypeEnum();
+        if (type == CellType.BOOLEAN) {
+            return cell.getBooleanCellValue();
+        }
+        if (type == CellType.NUMERIC && !DateUtil.isCellDateFormatted(cell)) {
+            double value = cell.getNumericCellValue();
+            if (value != Math.rint(value) || Math.abs(value) >= MAX_EXACT_DOUBLE) {
+                return value;
+            }
+            long integral = (long) value;
+            if (integral == (int) integral) {
+                return (int) integral;
+            }
+            return integral;
+        }
+        return getCellValue(cell).trim();
+    }
+
     /**
      * Get value from Cell Read data/formatted date, result of formula/excel
      * function;
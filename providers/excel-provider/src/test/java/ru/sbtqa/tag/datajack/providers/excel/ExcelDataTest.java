@@ -234,6 +234,16 @@ public class ExcelDataTest {
         assertEquals("Objects are not same", origin, self);
     }
 
+    @Test
+    public void typedValuesTest() throws DataException {
+        TestDataProvider testDataProvider = new ExcelDataProvider(this.excelDataPath, collectionName).get("MapTests");
+        assertEquals(42, testDataProvider.toMap().get("integerValue"));
+        assertEquals(42, testDataProvider.get("integerValue").getInt());
+        assertEquals("42", testDataProvider.get("integerValue").getValue());
+        assertEquals(42.21, testDataProvider.get("doubleValue").getDouble(), 0);
+        assertTrue(testDataProvider.get("boolean").getBoolean());
+    }
+
     @Test
     public void getStringValuesTest() throws DataException {
         TestDataProvider testDataProvider = new ExcelDataProvider(this.excelDataPath, collectionName).get("MapTests");
@@ -3,10 +3,16 @@ package ru.sbtqa.tag.datajack.providers.json;
 import com.mongodb.BasicDBObject;
 import ru.sbtqa.tag.datajack.TestDataProvider;
 import ru.sbtqa.tag.datajack.providers.AbstractDataProvider;
+import ru.sbtqa.tag.datajack.providers.CollectionCache;
+import ru.sbtqa.tag.datajack.providers.CollectionPreloader;
 import ru.sbtqa.tag.datajack.exceptions.*;
+import ru.sbtqa.tag.datajack.metrics.Metrics;
+import ru.sbtqa.tag.datajack.metrics.Operation;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.mongodb.BasicDBObject.parse;
 import static java.io.File.separator;
@@ -28,11 +34,8 @@ public class JsonDataProvider extends AbstractDataProvider {
      */
     public JsonDataProvider(String testDataFolder, String collectionName) throws DataException {
         this.extension = DEFAULT_EXTENSION;
-        String json = readFile(testDataFolder, collectionName);
-
-        BasicDBObject parsed = parse(json);
         this.testDataFolder = testDataFolder;
-        this.basicObject = parsed;
+        this.basicObject = getCollectionObject(collectionName);
         this.collectionName = collectionName;
     }
 
@@ -46,15 +49,39 @@ public class JsonDataProvider extends AbstractDataProvider {
      */
     public JsonDataProvider(String testDataFolder, String collectionName, String extension) throws DataException {
         this.extension = extension;
-
-        String json = readFile(testDataFolder, collectionName);
-
-        BasicDBObject parsed = parse(json);
         this.testDataFolder = testDataFolder;
-        this.basicObject = parsed;
+        this.basicObject = getCollectionObject(collectionName);
         this.collectionName = collectionName;
     }
 
+    /**
+     * Read and parse all json files of the folder into {@link CollectionCache}
+     * concurrently on the common fork-join pool
+     *
+     * @param testDataFolder path to data folder
+     * @return per-collection timings and failures
+     * @throws DataException if folder could not be read
+     */
+    public static CollectionPreloader.Report preload(String testDataFolder) throws DataException {
+        return preload(testDataFolder, DEFAULT_EXTENSION, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Read and parse all files of the folder with custom extension into
+     * {@link CollectionCache} concurrently
+     *
+     * @param testDataFolder path to data folder
+     * @param extension custom file extension
+     * @param executor runs one task per file
+     * @return per-collection timings and failures
+     * @throws DataException if folder could not be read
+     */
+    public static CollectionPreloader.Report preload(String testDataFolder, String extension, Executor executor)
+            throws DataException {
+        return CollectionPreloader.preload(testDataFolder, extension, executor,
+                collectionName -> new JsonDataProvider(testDataFolder, collectionName, extension));
+    }
+
     /**
      * Internal use only for provider overriding purposes
      *
@@ -120,50 +147,82 @@ public class JsonDataProvider extends AbstractDataProvider {
         return value instanceof String;
     }
 
-    public TestDataProvider getReference() throws DataException {
-        if (isReference(this.basicObject)) {
-            if (this.rootObject == null) {
-                this.rootObject = this.basicObject;
-            } else {
-                String rootJson = this.rootObject.toJson();
-                String baseJson = this.basicObject.toJson();
-                if (rootJson.equals(baseJson)) {
-                    throw new CyclicReferencesException("Cyclic references in database:\n" + rootJson);
-                }
-            }
-            String refValue = this.basicObject.getString(REF_TPL);
-            String referencedCollection = refValue.contains(":") ? refValue.split(":")[0] : this.collectionName;
-            String collectionPrefix = refValue.startsWith("/") ? "" :this.collectionName.substring(0, this.collectionName.lastIndexOf("/") + 1);
-            this.path = refValue.contains(":") ? refValue.split(":")[1] : refValue;
-            AbstractDataProvider reference = (AbstractDataProvider) this.fromCollection(collectionPrefix + referencedCollection);
-            reference.setRootObject(this.rootObject, collectionPrefix + referencedCollection + "." + this.path);
-            return reference.get(this.path);
-        } else {
-            throw new ReferenceException(String.format("There is no reference in \"%s\". Collection \"%s\"",
-                    this.path, this.collectionName));
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected BasicDBObject getCollectionObject(String collectionName) throws DataException {
+        return CollectionCache.getInstance().get(this.testDataFolder, collectionName, this.extension,
+                () -> parseCollection(readFile(this.testDataFolder, collectionName), collectionName));
+    }
+
+    /**
+     * Collections are shared through {@link CollectionCache}
+     *
+     * @return true
+     */
+    @Override
+    protected boolean isReferenceCacheable() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected String getReferenceCollection(BasicDBObject reference, String collectionName) {
+        String refValue = reference.getString(REF_TPL);
+        int delimiter = refValue.indexOf(':');
+        if (delimiter < 0) {
+            return collectionName;
         }
+        String collectionPrefix = refValue.startsWith("/") ? "" : collectionName.substring(0, collectionName.lastIndexOf("/") + 1);
+        return collectionPrefix + refValue.substring(0, delimiter);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected String getReferencePath(BasicDBObject reference) {
+        String refValue = reference.getString(REF_TPL);
+        int delimiter = refValue.indexOf(':');
+        if (delimiter < 0) {
+            return refValue;
+        }
+        int end = refValue.indexOf(':', delimiter + 1);
+        return refValue.substring(delimiter + 1, end < 0 ? refValue.length() : end);
+    }
 
     /**
      * {@inheritDoc}
      */
     @Override
     public TestDataProvider fromCollection(String collName) throws DataException {
-        String json = readFile(this.testDataFolder, collName);
-        BasicDBObject parsed = parse(json);
-        AbstractDataProvider dataProvider = createInstance(parsed, collName);
-        dataProvider.applyGenerator(this.callback);
+        AbstractDataProvider dataProvider = createInstance(getCollectionObject(collName), collName);
+        dataProvider.inheritGenerator(this);
         return dataProvider;
     }
 
     private String readFile(String testDataFolder, String collectionName) throws CollectionNotFoundException {
+        long start = Metrics.start();
         try {
             File targetFile = new File(testDataFolder + separator + collectionName + "." + this.extension);
             return readFileToString(targetFile, "UTF-8");
         } catch (IOException ex) {
             throw new CollectionNotFoundException(String.format("File %s.json not found in %s",
                     collectionName, testDataFolder), ex);
+        } finally {
+            Metrics.stop(Operation.READ, collectionName, start);
+        }
+    }
+
+    private static BasicDBObject parseCollection(String json, String collectionName) {
+        long start = Metrics.start();
+        try {
+            return parse(json);
+        } finally {
+            Metrics.stop(Operation.PARSE, collectionName, start);
         }
     }
 }
\ No newline at end of file
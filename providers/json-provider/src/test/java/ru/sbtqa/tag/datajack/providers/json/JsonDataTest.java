@@ -6,16 +6,41 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import ru.sbtqa.tag.datajack.TestDataProvider;
 import ru.sbtqa.tag.datajack.callback.SampleDataGensCallback;
 import ru.sbtqa.tag.datajack.exceptions.CyclicReferencesException;
 import ru.sbtqa.tag.datajack.exceptions.DataException;
+import ru.sbtqa.tag.datajack.exceptions.DataParseException;
 import ru.sbtqa.tag.datajack.exceptions.FieldNotFoundException;
 import ru.sbtqa.tag.datajack.exceptions.ReferenceException;
-
+import ru.sbtqa.tag.datajack.exceptions.UncheckedDataException;
+import ru.sbtqa.tag.datajack.metrics.InMemoryMetrics;
+import ru.sbtqa.tag.datajack.metrics.Metrics;
+import ru.sbtqa.tag.datajack.metrics.Operation;
+import ru.sbtqa.tag.datajack.providers.CollectionCache;
+import ru.sbtqa.tag.datajack.providers.CollectionPreloader;
+import ru.sbtqa.tag.datajack.providers.CompiledPath;
+import ru.sbtqa.tag.datajack.providers.PathIndex;
+import ru.sbtqa.tag.datajack.providers.PathIndexCache;
+import ru.sbtqa.tag.datajack.providers.ReferenceCache;
+import ru.sbtqa.tag.datajack.tree.BsonTrees;
+import ru.sbtqa.tag.datajack.tree.CompactObject;
+
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static java.lang.String.format;
+import static org.apache.commons.io.FileUtils.writeStringToFile;
 import static org.junit.Assert.*;
 import static org.junit.rules.ExpectedException.none;
 import static ru.sbtqa.tag.datajack.callback.SampleDataCache.getCache;
@@ -25,6 +50,8 @@ public class JsonDataTest {
     private static final String JSON_DATA_PATH = "src/test/resources/json";
     @Rule
     public ExpectedException expectDataExceptions = none();
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
     @Before
     public void setUp() {
@@ -353,6 +380,36 @@ public class JsonDataTest {
         assertTrue("Set object should be empty", ((Set) supposedToBeSet).isEmpty());
     }
 
+    @Test
+    public void scanPathsTest() throws DataException {
+        TestDataProvider testDataProvider = new JsonDataProvider(JSON_DATA_PATH, "Tests");
+
+        assertEquals(Arrays.asList("array[1].b", "array[2].b[0].b.c", "array[2].b[0].b.d"),
+                toList(testDataProvider.scanPaths("array[*].b")));
+        assertEquals(Arrays.asList("dataBlocks.Common.login.value", "dataBlocks.Common.login.comment"),
+                toList(testDataProvider.scanPaths("dataBlocks.*.login")));
+        assertEquals(Arrays.asList("value", "comment"),
+                toList(testDataProvider.get("dataBlocks.Common.login").scanPaths("")));
+        assertEquals(Arrays.asList("containsArray.array[0]", "containsArray.array[1]"),
+                toList(testDataProvider.scanPaths("*.array")));
+        assertTrue(toList(testDataProvider.scanPaths("nothing.*")).isEmpty());
+
+        List<String> all = toList(testDataProvider.scanPaths(""));
+        assertTrue(all.contains("Common.ref object data"));
+        for (String key : all) {
+            assertNotNull(key, testDataProvider.get(key));
+        }
+
+        expectDataExceptions.expect(UnsupportedOperationException.class);
+        testDataProvider.getKeySet().add("key");
+    }
+
+    private static List<String> toList(Iterable<String> keys) {
+        List<String> list = new ArrayList<>();
+        keys.forEach(list::add);
+        return list;
+    }
+
     @Test
     public void getEmptySelfTest() throws DataException {
         TestDataProvider testDataProvider = new JsonDataProvider(JSON_DATA_PATH, "DataBlocks");
@@ -406,7 +463,7 @@ public class JsonDataTest {
     public void getJsonTest() throws DataException {
         TestDataProvider testDataProvider = new JsonDataProvider(JSON_DATA_PATH, "DataBlocks");
         String stringJson = testDataProvider.get("Params Group 1").getValue();
-        String expectedJson = "{ \"login\" : 123 , \"password\" : 123}";
+        String expectedJson = "{ \"login\" : \"123qwe\" , \"password\" : \"123qwe\"}";
         Assert.assertEquals(expectedJson, stringJson);
     }
 
@@ -444,4 +501,436 @@ public class JsonDataTest {
         assertEquals("1",
                 tdo.get("containsArray.array[1]").getValue());
     }
+
+    @Test
+    public void compiledPathTest() throws DataException {
+        CompiledPath compiledPath = CompiledPath.compileExpression("$Tests{array[2].b[0].b.c}");
+
+        assertEquals("Tests", compiledPath.getCollection());
+        assertEquals(4, compiledPath.size());
+        assertEquals("array", compiledPath.getName(0));
+        assertEquals(2, compiledPath.getIndex(0));
+        assertFalse(compiledPath.isArray(2));
+        assertEquals("array[2].b[0]", compiledPath.getPrefix(1));
+        assertSame(compiledPath, CompiledPath.compileExpression("$Tests{array[2].b[0].b.c}"));
+        assertNull(CompiledPath.compileExpression("Tests{array}"));
+
+        TestDataProvider testDataProvider = new JsonDataProvider(JSON_DATA_PATH, "DataBlocks");
+        assertEquals("1", testDataProvider.getByPath("$Tests{array[2].b[0].b.c}").getValue());
+    }
+
+    @Test
+    public void repeatableReferenceValueTest() throws DataException {
+        TestDataProvider reference = new JsonDataProvider(JSON_DATA_PATH, "DataBlocks").get("Common.password2");
+
+        assertEquals("123qwe", reference.getValue());
+        assertEquals("123qwe", reference.getValue());
+        assertEquals("1", new JsonDataProvider(JSON_DATA_PATH, "DataBlocks").get("ref array[2].b[0]").get("b.c").getValue());
+    }
+
+    @Test
+    public void collectionCacheTest() throws DataException, IOException {
+        File folder = temporaryFolder.newFolder("json");
+        File collection = new File(folder, "Cached.json");
+        writeStringToFile(collection, "{\"value\": \"first\"}", "UTF-8");
+
+        TestDataProvider first = new JsonDataProvider(folder.getPath(), "Cached");
+        TestDataProvider second = new JsonDataProvider(folder.getPath(), "Cached");
+        assertSame(first.toMap().get("value"), second.toMap().get("value"));
+        assertEquals("first", second.getValue());
+
+        writeStringToFile(collection, "{\"value\": \"second value\"}", "UTF-8");
+        assertEquals("second value", new JsonDataProvider(folder.getPath(), "Cached").getValue());
+
+        CollectionCache.getInstance().invalidate(folder.getPath(), "Cached", "json");
+    }
+
+    @Test
+    public void preloadTest() throws DataException, IOException {
+        File folder = temporaryFolder.newFolder("preload");
+        writeStringToFile(new File(folder, "First.json"), "{\"value\": \"first\"}", "UTF-8");
+        writeStringToFile(new File(folder, "nested/Second.json"), "{\"value\": \"second\"}", "UTF-8");
+        writeStringToFile(new File(folder, "Broken.json"), "{\"value\": ", "UTF-8");
+        writeStringToFile(new File(folder, "Ignored.txt"), "{}", "UTF-8");
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CollectionPreloader.Report report;
+        try {
+            report = JsonDataProvider.preload(folder.getPath(), "json", executor);
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(Arrays.asList("Broken", "First", "nested/Second"), new ArrayList<>(report.getTimings().keySet()));
+        assertEquals(Collections.singleton("Broken"), report.getFailures().keySet());
+        assertFalse(report.isSuccessful());
+        assertTrue(report.getTimings().values().stream().allMatch(time -> time >= 0));
+
+        CollectionCache cache = CollectionCache.getInstance();
+        long misses = cache.getMisses();
+        assertEquals("first", new JsonDataProvider(folder.getPath(), "First").getValue());
+        assertEquals("second", new JsonDataProvider(folder.getPath(), "nested/Second").getValue());
+        assertEquals("Preloaded collections are read again", misses, cache.getMisses());
+
+        cache.invalidate(folder.getPath(), "First", "json");
+        cache.invalidate(folder.getPath(), "nested/Second", "json");
+    }
+
+    @Test
+    public void metricsTest() throws DataException, IOException {
+        File folder = temporaryFolder.newFolder("metrics");
+        writeStringToFile(new File(folder, "Metrics.json"), "{\"block\": {\"login\": \"user\", "
+                + "\"password\": \"generate:Numeric:4\"}, \"refs\": {\"block\": {\"$ref\": \"Metrics:block\"}}}", "UTF-8");
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        Metrics.install(metrics);
+        try {
+            TestDataProvider provider = new JsonDataProvider(folder.getPath(), "Metrics");
+            provider.applyGenerator(SampleDataGensCallback.class);
+            assertEquals("user", provider.get("refs.block").getReference().get("login").getValue());
+            assertTrue(provider.get("block").getValue().contains("user"));
+        } finally {
+            Metrics.install(null);
+            CollectionCache.getInstance().invalidate(folder.getPath(), "Metrics", "json");
+        }
+
+        assertEquals(1, metrics.getCount(Operation.READ, "Metrics"));
+        assertEquals(1, metrics.getCount(Operation.PARSE, "Metrics"));
+        assertEquals(3, metrics.getCount(Operation.GET, "Metrics"));
+        assertEquals(1, metrics.getCount(Operation.GET_REFERENCE, "Metrics"));
+        assertEquals(1, metrics.getCount(Operation.RESOLVE, "Metrics"));
+        assertTrue(metrics.getCount(Operation.GENERATE) >= 3);
+        assertTrue(metrics.getPercentile(Operation.PARSE, "Metrics", 99) > 0);
+        assertTrue(metrics.report().contains("GET_REFERENCE"));
+
+        new JsonDataProvider(JSON_DATA_PATH, "Tests").get("Common");
+        assertEquals("Operations are recorded after uninstall", 0, metrics.getCount(Operation.GET, "Tests"));
+    }
+
+    @Test
+    public void referenceCacheTest() throws DataException {
+        ReferenceCache cache = ReferenceCache.getInstance();
+        TestDataProvider provider = new JsonDataProvider(JSON_DATA_PATH, "Tests");
+        String expected = provider.get("Common.ref object data").getReference().toString();
+        long hits = cache.getHits();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(expected, provider.get("Common.ref object data").getReference().toString());
+        }
+        assertTrue("References are not served from cache", cache.getHits() - hits >= 10);
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(expected, provider.get("Common.ref object data").getReference().toString());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void referenceChainReloadTest() throws DataException, IOException {
+        File folder = temporaryFolder.newFolder("chain");
+        String path = folder.getPath();
+        writeStringToFile(new File(folder, "Start.json"), "{\"ref\": {\"$ref\": \"Middle:link\"}}", "UTF-8");
+        writeStringToFile(new File(folder, "Middle.json"), "{\"link\": {\"$ref\": \"End:value\"}}", "UTF-8");
+        writeStringToFile(new File(folder, "End.json"), "{\"value\": {\"text\": \"old\"}}", "UTF-8");
+        try {
+            assertEquals("old", new JsonDataProvider(path, "Start").get("ref").get("text").getValue());
+            assertEquals("old", new JsonDataProvider(path, "Start").get("ref").get("text").getValue());
+
+            writeStringToFile(new File(folder, "End.json"), "{\"value\": {\"text\": \"reloaded\"}}", "UTF-8");
+            assertEquals("Reference chain serves object of a reloaded collection",
+                    "reloaded", new JsonDataProvider(path, "Start").get("ref").get("text").getValue());
+        } finally {
+            CollectionCache cache = CollectionCache.getInstance();
+            for (String collection : Arrays.asList("Start", "Middle", "End")) {
+                cache.invalidate(path, collection, "json");
+            }
+        }
+    }
+
+    @Test
+    public void pathIndexTest() throws DataException {
+        PathIndexCache indexes = PathIndexCache.getInstance();
+        List<String> keys = Arrays.asList(
+                "dataBlocks.Common.login.value",
+                "dataBlocks.Common.password",
+                "array[2].b[0].b.c",
+                "array[2].b[0].b.d",
+                "array[3].ref",
+                "containsArray.array[1]",
+                "Common.ref object data.login.value");
+        JsonDataProvider provider = new JsonDataProvider(JSON_DATA_PATH, "Tests");
+        Map<String, String> expected = new LinkedHashMap<>();
+        for (String key : keys) {
+            expected.put(key, provider.get(key).getValue());
+        }
+
+        try {
+            PathIndex index = provider.indexPaths(true);
+            assertSame(index, provider.indexPaths(false));
+            assertTrue(index.size() > keys.size());
+            assertTrue(index.getMemoryEstimate() > 0);
+
+            long hits = indexes.getHits();
+            for (String key : keys) {
+                assertEquals(expected.get(key), provider.get(key).getValue());
+                assertEquals(expected.get(key), provider.getByPath("$Tests{" + key + "}").getValue());
+            }
+            // The last key passes through a reference, so it is navigated
+            assertEquals(2 * (keys.size() - 1), indexes.getHits() - hits);
+
+            indexes.clear();
+            indexes.enable("Tests");
+            assertEquals("2login", provider.getByPath("$Tests{dataBlocks.Common.login.value}").getValue());
+            assertEquals(1, indexes.size());
+            assertEquals(1, indexes.getHits());
+
+            expectDataExceptions.expect(FieldNotFoundException.class);
+            expectDataExceptions.expectMessage("Collection \"Tests\" doesn't contain \"nothing\" field on path \"dataBlocks.Common.nothing\"");
+            provider.get("dataBlocks.Common.nothing.value");
+        } finally {
+            indexes.disable("*");
+            indexes.disable("Tests");
+            indexes.clear();
+        }
+    }
+
+    @Test
+    public void queryTest() throws DataException, IOException {
+        File folder = temporaryFolder.newFolder("json");
+        writeStringToFile(new File(folder, "Users.json"), "{\"users\": ["
+                + "{\"id\": 1, \"name\": \"a\", \"status\": \"ACTIVE\", \"age\": 30, \"address\": {\"city\": \"Moscow\"}},"
+                + "{\"id\": 2, \"name\": \"b\", \"status\": \"BLOCKED\", \"age\": 25.0},"
+                + "{\"id\": 3, \"name\": \"c\", \"status\": \"ACTIVE\", \"age\": 41,"
+                + " \"address\": {\"$ref\": \"Users:users[0].address\"}},"
+                + "\"not a record\"]}", "UTF-8");
+        TestDataProvider provider = new JsonDataProvider(folder.getPath(), "Users");
+
+        assertEquals(2, provider.query("users").where("status", "ACTIVE").count());
+        assertEquals("c", provider.query("users").where("status", "ACTIVE").where("age", 41).find().get(0).get("name").getValue());
+        assertEquals(1, provider.query("users").where("age", 25).count());
+        assertEquals(2, provider.query("users").where("address.city", "Moscow").count());
+        assertEquals(0, provider.query("users").where("age", "30").count());
+
+        List<Map<String, String>> expected = Arrays.asList(
+                Collections.singletonMap("name", "a"),
+                Collections.singletonMap("name", "c"));
+        assertEquals(expected, provider.query("users").between("age", 26, null).select("name"));
+        for (int i = 0; i < 2; i++) {
+            assertEquals(expected, provider.query("users").sortedIndex("age").between("age", 26, 50).select("name"));
+            assertEquals(expected, provider.query("users").index("status").where("status", "ACTIVE").select("name"));
+        }
+        assertEquals(Collections.singletonList("b"),
+                toValues(provider.query("users").sortedIndex("age").where("age", 25.0).find(), "name"));
+        assertEquals(1, provider.query("users").index("status").where("status", "ACTIVE").limit(1).count());
+
+        expectDataExceptions.expect(DataException.class);
+        expectDataExceptions.expectMessage("Users.users[0] is not an array!");
+        provider.query("users[0]");
+    }
+
+    @Test
+    public void streamedElementPathTest() throws DataException, IOException {
+        File folder = temporaryFolder.newFolder("json");
+        writeStringToFile(new File(folder, "Users.json"), "{\"users\": [{\"id\": \"generate:Numeric:16\"}],"
+                + " \"holder\": {\"users\": [{\"id\": \"generate:Numeric:16\"}]}}", "UTF-8");
+        TestDataProvider provider = new JsonDataProvider(folder.getPath(), "Users");
+        provider.applyGenerator(SampleDataGensCallback.class);
+
+        for (String array : Arrays.asList("users", "holder.users")) {
+            String direct = provider.get(array + "[0].id").getValue();
+            // Generated values are cached by path, so equal values mean equal paths
+            assertEquals(direct, provider.stream(array).findFirst().get().get("id").getValue());
+            assertEquals(direct, provider.query(array).find().get(0).get("id").getValue());
+        }
+    }
+
+    @Test
+    public void queryReferencedValueTest() throws DataException, IOException {
+        File folder = temporaryFolder.newFolder("json");
+        writeStringToFile(new File(folder, "Users.json"), "{\"ages\": {\"thirty\": 30},"
+                + " \"users\": [{\"name\": \"a\", \"age\": {\"$ref\": \"Users:ages.thirty\"}},"
+                + " {\"name\": \"b\", \"age\": 25}]}", "UTF-8");
+        TestDataProvider provider = new JsonDataProvider(folder.getPath(), "Users");
+        provider.applyGenerator(SampleDataGensCallback.class);
+
+        assertEquals(Collections.singletonList("a"), toValues(provider.query("users").where("age", 30).find(), "name"));
+        assertEquals(0, provider.query("users").where("age", "30").count());
+        assertEquals(1, provider.query("users").sortedIndex("age").between("age", 26, 31).count());
+    }
+
+    @Test
+    public void queryReloadedReferenceTest() throws DataException, IOException {
+        File folder = temporaryFolder.newFolder("json");
+        File ages = new File(folder, "Ages.json");
+        writeStringToFile(ages, "{\"thirty\": 30}", "UTF-8");
+        writeStringToFile(new File(folder, "Users.json"), "{\"users\": [{\"name\": \"a\", \"age\": {\"$ref\": \"Ages:thirty\"}},"
+                + " {\"name\": \"b\", \"age\": 25}]}", "UTF-8");
+        TestDataProvider provider = new JsonDataProvider(folder.getPath(), "Users");
+        assertEquals(1, provider.query("users").index("age").where("age", 30).count());
+        assertEquals(1, provider.query("users").sortedIndex("age").between("age", 26, 35).count());
+
+        long lastModified = ages.lastModified();
+        writeStringToFile(ages, "{\"thirty\": 40}", "UTF-8");
+        assertTrue(ages.setLastModified(lastModified + 2000));
+
+        assertEquals(0, provider.query("users").index("age").where("age", 30).count());
+        assertEquals(Collections.singletonList("a"), toValues(provider.query("users").index("age").where("age", 40).find(), "name"));
+        assertEquals(0, provider.query("users").sortedIndex("age").between("age", 26, 35).count());
+    }
+
+    @Test
+    public void streamTest() throws DataException, IOException {
+        TestDataProvider testDataProvider = new JsonDataProvider(JSON_DATA_PATH, "DataBlocks");
+        List<String> elements = testDataProvider.stream("ref array").map(TestDataProvider::toString).collect(Collectors.toList());
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            expected.add(testDataProvider.get("ref array").get("array[" + i + "]").toString());
+        }
+        assertEquals(expected, elements);
+
+        StringBuilder users = new StringBuilder("{\"users\": [");
+        for (int i = 0; i < 10000; i++) {
+            users.append(i == 0 ? "" : ",").append("{\"id\": ").append(i).append('}');
+        }
+        File folder = temporaryFolder.newFolder("json");
+        writeStringToFile(new File(folder, "Users.json"), users.append("]}").toString(), "UTF-8");
+        TestDataProvider provider = new JsonDataProvider(folder.getPath(), "Users");
+
+        assertEquals(49995000L, provider.stream("users").parallel().mapToLong(user -> {
+            try {
+                return user.get("id").getLong();
+            } catch (DataException ex) {
+                throw new UncheckedDataException(ex);
+            }
+        }).sum());
+        assertEquals(5, provider.stream("users").skip(5).limit(5).findFirst().get().get("id").getInt());
+
+        expectDataExceptions.expect(DataException.class);
+        expectDataExceptions.expectMessage("Users.users[0].id is not an array!");
+        provider.stream("users[0].id");
+    }
+
+    private static List<String> toValues(List<TestDataProvider> records, String key) throws DataException {
+        List<String> values = new ArrayList<>();
+        for (TestDataProvider record : records) {
+            values.add(record.get(key).getValue());
+        }
+        return values;
+    }
+
+    @Test
+    public void generatorInstanceTest() throws DataException {
+        AtomicInteger created = new AtomicInteger();
+        TestDataProvider provider = new JsonDataProvider(JSON_DATA_PATH, "Tests");
+        provider.applyGeneratorSupplier(() -> {
+            created.incrementAndGet();
+            return new SampleDataGensCallback();
+        });
+
+        String generated = provider.get("Common.gen gen.gendata").getValue();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(generated, provider.get("Common").get("gen gen").get("gendata").getValue());
+            assertEquals(generated, provider.getByPath("$Tests{Common.gen gen.gendata}").getValue());
+        }
+        assertEquals(1, created.get());
+
+        provider.applyGeneratorInstance(callbackData -> "constant");
+        assertEquals("constant", provider.get("Common.gen gen.gendata").getValue());
+
+        provider.applyGenerator(null);
+        assertNotEquals("Generator is not removed", "constant", provider.get("Common.gen gen.gendata").getValue());
+    }
+
+    @Test
+    public void batchValuesTest() throws DataException {
+        TestDataProvider testDataProvider = new JsonDataProvider(JSON_DATA_PATH, "Tests");
+        testDataProvider.applyGenerator(SampleDataGensCallback.class);
+        List<String> paths = Arrays.asList(
+                "${Common.gen gen.gendata}",
+                "$Tests{Common.ref object data.gendata reference}",
+                "$DataBlocks{Common.gendata reference}",
+                "$DataBlocks{Common.password2}",
+                "$DataBlocks{Params Group 1.login}",
+                "$DataBlocks{Common.price}",
+                "${array[2].b[0].b.c}",
+                "${array[3].ref}",
+                "${Common.gen gen.gendata}");
+
+        Map<String, String> values = testDataProvider.getValues(paths);
+
+        assertEquals(new ArrayList<>(new LinkedHashSet<>(paths)), new ArrayList<>(values.keySet()));
+        for (String path : paths) {
+            assertEquals(path, testDataProvider.getByPath(path).getValue(), values.get(path));
+        }
+    }
+
+    @Test
+    public void batchValuesFailTest() throws DataException {
+        TestDataProvider testDataProvider = new JsonDataProvider(JSON_DATA_PATH, "DataBlocks");
+        expectDataExceptions.expect(FieldNotFoundException.class);
+        expectDataExceptions.expectMessage("Collection \"DataBlocks\" doesn't contain \"nope\" field on path \"Common.nope\"");
+        testDataProvider.getValues(Arrays.asList("${Common.password}", "${Common.nope.value}"));
+    }
+
+    @Test
+    public void typedValuesTest() throws DataException {
+        TestDataProvider testDataProvider = new JsonDataProvider(JSON_DATA_PATH, "DataBlocks");
+        TestDataProvider mapTests = testDataProvider.get("MapTests");
+
+        assertEquals(42, mapTests.get("integerValue").getInt());
+        assertEquals(42L, mapTests.get("integerValue").getLong());
+        assertEquals(42.01, mapTests.get("doubleValue").getDouble(), 0);
+        assertTrue(mapTests.get("booleanValue").getBoolean());
+        assertEquals(20.91, testDataProvider.get("Common.price").getDouble(), 0);
+        assertEquals(123, new JsonDataProvider(JSON_DATA_PATH, "relative/relative1").get("relates to relative2").getInt());
+        assertEquals("a", new JsonDataProvider(JSON_DATA_PATH, "Tests").get("array").getList().get(0));
+    }
+
+    @Test
+    public void typedValueFailTest() throws DataException {
+        TestDataProvider testDataProvider = new JsonDataProvider(JSON_DATA_PATH, "DataBlocks");
+        expectDataExceptions.expect(DataParseException.class);
+        expectDataExceptions.expectMessage("Value \"42.01\" on path \"DataBlocks.MapTests.doubleValue\" is not a long");
+        testDataProvider.get("MapTests.doubleValue").getLong();
+    }
+
+    @Test
+    public void compactTreeTest() throws DataException {
+        for (String collectionName : Arrays.asList("Tests", "DataBlocks", "issue")) {
+            BasicDBObject original = new BasicDBObject(new JsonDataProvider(JSON_DATA_PATH, collectionName).toMap());
+            CompactObject compact = BsonTrees.toCompact(original);
+            assertEquals(original, BsonTrees.toBson(compact));
+        }
+    }
+
+    @Test
+    public void sharedProviderStressTest() throws Exception {
+        int workers = 64;
+        TestDataProvider shared = new JsonDataProvider(JSON_DATA_PATH, "Tests");
+        shared.applyGenerator(SampleDataGensCallback.class);
+        String generated = shared.get("Common.gen gen.gendata").getValue();
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> results = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            results.add(executor.submit((Callable<Void>) () -> {
+                start.await();
+                for (int j = 0; j < 200; j++) {
+                    assertEquals("1", shared.get("array[2].b[0].b.c").getValue());
+                    assertEquals("123qwe", shared.get("array[3].ref").getValue());
+                    assertEquals("123", shared.get("dataBlocks").get("Common").get("password").getValue());
+                    assertEquals(generated, shared.getByPath("$Tests{Common.gen gen.gendata}").getValue());
+                    assertEquals("20.91", shared.getByPath("$DataBlocks{Common.price}").getValue());
+                    assertFalse(shared.get("Common.ref object data").getKeySet().isEmpty());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue("Workers didn't finish in time", executor.awaitTermination(1, TimeUnit.MINUTES));
+        for (Future<Void> result : results) {
+            result.get();
+        }
+        assertEquals(generated, shared.get("Common.gen gen.gendata").getValue());
+    }
 }
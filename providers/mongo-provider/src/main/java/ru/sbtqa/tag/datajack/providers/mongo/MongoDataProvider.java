@@ -4,13 +4,15 @@ import com.mongodb.*;
 import org.bson.BSONObject;
 import org.bson.types.ObjectId;
 import ru.sbtqa.tag.datajack.exceptions.*;
+import ru.sbtqa.tag.datajack.metrics.Metrics;
+import ru.sbtqa.tag.datajack.metrics.Operation;
 import ru.sbtqa.tag.datajack.providers.AbstractDataProvider;
 
 public class MongoDataProvider extends AbstractDataProvider {
 
     private static final String MONGO_ID = "_id";
     private final DB db;
-    private DBCollection collection;
+    private final DBCollection collection;
 
 
     /**
@@ -22,10 +24,15 @@ public class MongoDataProvider extends AbstractDataProvider {
     public MongoDataProvider(DB db, String collectionName) throws DataException {
         this.db = db;
         this.collection = this.db.getCollection(collectionName);
-        if (this.collection.count() == 0) {
-            throw new CollectionNotFoundException(String.format("There is no \"%s\" collection or it's empty", collectionName));
+        long start = Metrics.start();
+        try {
+            if (this.collection.count() == 0) {
+                throw new CollectionNotFoundException(String.format("There is no \"%s\" collection or it's empty", collectionName));
+            }
+            this.basicObject = (BasicDBObject) collection.find().sort(new BasicDBObject(MONGO_ID, -1)).limit(1).next();
+        } finally {
+            Metrics.stop(Operation.READ, collectionName, start);
         }
-        this.basicObject = (BasicDBObject) collection.find().sort(new BasicDBObject(MONGO_ID, -1)).limit(1).next();
         this.way = collectionName;
         this.path = collectionName;
         this.collectionName = collectionName;
@@ -41,10 +48,15 @@ public class MongoDataProvider extends AbstractDataProvider {
     public MongoDataProvider(DB db, String collectionName, String refId) throws DataException {
         this.db = db;
         this.collection = this.db.getCollection(collectionName);
-        if (this.collection.count() == 0) {
-            throw new CollectionNotFoundException(String.format("There is no \"%s\" collection or it's empty", collectionName));
+        long start = Metrics.start();
+        try {
+            if (this.collection.count() == 0) {
+                throw new CollectionNotFoundException(String.format("There is no \"%s\" collection or it's empty", collectionName));
+            }
+            this.basicObject = (BasicDBObject) this.collection.findOne(new BasicDBObject(MONGO_ID, new ObjectId(refId)));
+        } finally {
+            Metrics.stop(Operation.READ, collectionName, start);
         }
-        this.basicObject = (BasicDBObject) this.collection.findOne(new BasicDBObject(MONGO_ID, new ObjectId(refId)));
         this.way = collectionName;
         this.collectionName = collectionName;
         this.path = "";
@@ -60,6 +72,7 @@ public class MongoDataProvider extends AbstractDataProvider {
      */
     private MongoDataProvider(DB db, BasicDBObject obj, String collectionName, String way) {
         this.db = db;
+        this.collection = null;
         this.basicObject = obj;
         this.way = way;
         this.collectionName = collectionName;
@@ -95,7 +108,7 @@ public class MongoDataProvider extends AbstractDataProvider {
     @Override
     public MongoDataProvider fromCollection(String collName) throws DataException {
         MongoDataProvider dataProvider = createInstance(collName);
-        dataProvider.applyGenerator(this.callback);
+        dataProvider.inheritGenerator(this);
         return dataProvider;
     }
 
@@ -106,19 +119,25 @@ public class MongoDataProvider extends AbstractDataProvider {
      * @throws DataException if no collection or its empty
      */
     public MongoDataProvider fromCollection(String collectionName, String refId) throws DataException {
-        this.collection = db.getCollection(collectionName);
+        DBCollection dbCollection = db.getCollection(collectionName);
 
         ObjectId id = new ObjectId(refId);
         BasicDBObject obj = new BasicDBObject();
         obj.append(MONGO_ID, id);
         BasicDBObject query = new BasicDBObject();
         query.putAll((BSONObject) query);
-        DBObject referenceDocument = collection.findOne(query);
+        long start = Metrics.start();
+        DBObject referenceDocument;
+        try {
+            referenceDocument = dbCollection.findOne(query);
+        } finally {
+            Metrics.stop(Operation.READ, collectionName, start);
+        }
 
         MongoDataProvider dataProvider = new MongoDataProvider(this.db, collectionName, refId);
         dataProvider.basicObject = (BasicDBObject) referenceDocument;
         dataProvider.path = refId + "." + collectionName;
-        dataProvider.applyGenerator(this.callback);
+        dataProvider.inheritGenerator(this);
         return dataProvider;
 
     }
@@ -9,6 +9,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.rules.RuleChain;
 import org.junit.rules.TestRule;
+import ru.sbtqa.tag.datajack.AsyncTestDataProvider;
 import ru.sbtqa.tag.datajack.TestDataProvider;
 import ru.sbtqa.tag.datajack.callback.SampleDataGensCallback;
 import ru.sbtqa.tag.datajack.exceptions.CollectionNotFoundException;
@@ -16,16 +17,25 @@ import ru.sbtqa.tag.datajack.exceptions.CyclicReferencesException;
 import ru.sbtqa.tag.datajack.exceptions.DataException;
 import ru.sbtqa.tag.datajack.exceptions.FieldNotFoundException;
 import ru.sbtqa.tag.datajack.exceptions.ReferenceException;
+import ru.sbtqa.tag.datajack.providers.AsyncDataProvider;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static java.lang.String.format;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.junit.rules.ExpectedException.none;
 import static ru.sbtqa.tag.datajack.callback.SampleDataCache.getCache;
 
@@ -322,7 +332,7 @@ public class MongoDataTest {
     public void getJsonTest() throws DataException {
         TestDataProvider testDataProvider = new MongoDataProvider(mongoDb, "DataBlocks");
         String stringJson = testDataProvider.get("Params Group 1").getValue();
-        String expectedJson = "{ \"login\" : 123 , \"password\" : 123}";
+        String expectedJson = "{ \"login\" : \"123qwe\" , \"password\" : \"123qwe\"}";
         assertEquals(expectedJson, stringJson);
     }
 
@@ -336,4 +346,38 @@ public class MongoDataTest {
         assertEquals("1",
                 tdo.get("containsArray.array[1]").getValue());
     }
+
+    @Test
+    public void asyncTest() throws DataException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            AsyncTestDataProvider dataBlocks = AsyncDataProvider.open(() -> new MongoDataProvider(mongoDb, "DataBlocks"), executor).join();
+            List<String> keys = Arrays.asList("Common.password2", "Common.price", "Common.password2.comment");
+            List<CompletableFuture<String>> values = new ArrayList<>();
+            for (String key : keys) {
+                values.add(dataBlocks.get(key).thenCompose(AsyncTestDataProvider::getValue));
+            }
+            TestDataProvider blocking = new MongoDataProvider(mongoDb, "DataBlocks");
+            for (int i = 0; i < keys.size(); i++) {
+                assertEquals(blocking.get(keys.get(i)).getValue(), values.get(i).join());
+            }
+
+            String reference = dataBlocks.fromCollection("Tests")
+                    .thenCompose(tests -> tests.get("Common.ref object data"))
+                    .thenCompose(AsyncTestDataProvider::getReference)
+                    .thenCompose(referenced -> referenced.get("gen gen.gendata"))
+                    .thenCompose(AsyncTestDataProvider::getValue)
+                    .join();
+            assertEquals(blocking.get("Common.gen gen.gendata").getValue(), reference);
+
+            try {
+                dataBlocks.get("Common.password.paww").join();
+                fail("Missing field is found");
+            } catch (CompletionException e) {
+                assertTrue(e.getCause() instanceof FieldNotFoundException);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
@@ -10,16 +10,20 @@ import pl.jalokim.propertiestojson.resolvers.primitives.StringJsonTypeResolver;
 import pl.jalokim.propertiestojson.util.PropertiesToJsonConverter;
 import ru.sbtqa.tag.datajack.TestDataProvider;
 import ru.sbtqa.tag.datajack.exceptions.CollectionNotFoundException;
-import ru.sbtqa.tag.datajack.exceptions.CyclicReferencesException;
 import ru.sbtqa.tag.datajack.exceptions.DataException;
-import ru.sbtqa.tag.datajack.exceptions.ReferenceException;
+import ru.sbtqa.tag.datajack.metrics.Metrics;
+import ru.sbtqa.tag.datajack.metrics.Operation;
 import ru.sbtqa.tag.datajack.providers.AbstractDataProvider;
+import ru.sbtqa.tag.datajack.providers.CollectionCache;
+import ru.sbtqa.tag.datajack.providers.CollectionPreloader;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.mongodb.BasicDBObject.parse;
 import static java.io.File.separator;
@@ -28,9 +32,10 @@ public class PropertiesDataProvider extends AbstractDataProvider {
 
     private static final Logger LOG = LoggerFactory.getLogger(PropertiesDataProvider.class);
     private static final String DEFAULT_EXTENSION = "properties";
+    private static final String DEFAULT_ARRAY_DELIMITER = ",";
     private static final String REF_TPL = "$ref";
     private final String extension;
-    private String arrayDelimiter = ",";
+    private String arrayDelimiter = DEFAULT_ARRAY_DELIMITER;
     private String testDataFolder;
 
     /**
@@ -42,11 +47,8 @@ public class PropertiesDataProvider extends AbstractDataProvider {
      */
     public PropertiesDataProvider(String testDataFolder, String collectionName) throws DataException {
         this.extension = DEFAULT_EXTENSION;
-        String json = readFile(testDataFolder, collectionName);
-
-        BasicDBObject parsed = parse(json);
         this.testDataFolder = testDataFolder;
-        this.basicObject = parsed;
+        this.basicObject = getCollectionObject(collectionName);
         this.collectionName = collectionName;
     }
 
@@ -62,14 +64,40 @@ public class PropertiesDataProvider extends AbstractDataProvider {
     public PropertiesDataProvider(String testDataFolder, String collectionName, String extension, String arrayDelimiter) throws DataException {
         this.extension = extension;
         this.arrayDelimiter = arrayDelimiter;
-        String json = readFile(testDataFolder, collectionName);
-
-        BasicDBObject parsed = parse(json);
         this.testDataFolder = testDataFolder;
-        this.basicObject = parsed;
+        this.basicObject = getCollectionObject(collectionName);
         this.collectionName = collectionName;
     }
 
+    /**
+     * Read and parse all properties files of the folder into
+     * {@link CollectionCache} concurrently on the common fork-join pool
+     *
+     * @param testDataFolder path to data folder
+     * @return per-collection timings and failures
+     * @throws DataException if folder could not be read
+     */
+    public static CollectionPreloader.Report preload(String testDataFolder) throws DataException {
+        return preload(testDataFolder, DEFAULT_EXTENSION, DEFAULT_ARRAY_DELIMITER, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Read and parse all files of the folder with custom extension into
+     * {@link CollectionCache} concurrently
+     *
+     * @param testDataFolder path to data folder
+     * @param extension      custom file extension
+     * @param arrayDelimiter custom value array delimiter
+     * @param executor       runs one task per file
+     * @return per-collection timings and failures
+     * @throws DataException if folder could not be read
+     */
+    public static CollectionPreloader.Report preload(String testDataFolder, String extension, String arrayDelimiter,
+                                                     Executor executor) throws DataException {
+        return CollectionPreloader.preload(testDataFolder, extension, executor,
+                collectionName -> new PropertiesDataProvider(testDataFolder, collectionName, extension, arrayDelimiter));
+    }
+
     private PropertiesDataProvider(String testDataFolder, BasicDBObject obj, String collectionName, String extension, String arrayDelimiter) {
         this.extension = extension;
         this.testDataFolder = testDataFolder;
@@ -121,60 +149,87 @@ public class PropertiesDataProvider extends AbstractDataProvider {
     }
 
     /**
-     * {@inheritDoc}*
+     * {@inheritDoc}
+     */
+    @Override
+    protected BasicDBObject getCollectionObject(String collectionName) throws DataException {
+        return CollectionCache.getInstance().get(this.testDataFolder, collectionName, this.extension,
+                arrayDelimiter, () -> readFile(this.testDataFolder, collectionName));
+    }
+
+    /**
+     * Collections are shared through {@link CollectionCache}
+     *
+     * @return true
+     */
+    @Override
+    protected boolean isReferenceCacheable() {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
      */
     @Override
-    public TestDataProvider getReference() throws DataException {
-        if (isReference(this.basicObject)) {
-            if (this.rootObject == null) {
-                this.rootObject = this.basicObject;
-            } else {
-                String rootJson = this.rootObject.toJson();
-                String baseJson = this.basicObject.toJson();
-                if (rootJson.equals(baseJson)) {
-                    throw new CyclicReferencesException("Cyclic references in database:\n" + rootJson);
-                }
-            }
-            String refValue = this.basicObject.getString(REF_TPL);
-            String referencedCollection = refValue.contains(":") ? refValue.split(":")[0] : this.collectionName;
-            String collectionPrefix = refValue.startsWith("/") ? "" : this.collectionName.substring(0, this.collectionName.lastIndexOf("/") + 1);
-            this.path = refValue.contains(":") ? refValue.split(":")[1] : refValue;
-            AbstractDataProvider reference = (AbstractDataProvider) this.fromCollection(collectionPrefix + referencedCollection);
-            reference.setRootObject(this.rootObject, collectionPrefix + referencedCollection + "." + this.path);
-            return reference.get(this.path);
-        } else {
-            throw new ReferenceException(String.format("There is no reference in \"%s\". Collection \"%s\"",
-                    this.path, this.collectionName));
+    protected String getReferenceCollection(BasicDBObject reference, String collectionName) {
+        String refValue = reference.getString(REF_TPL);
+        int delimiter = refValue.indexOf(':');
+        if (delimiter < 0) {
+            return collectionName;
         }
+        String collectionPrefix = refValue.startsWith("/") ? "" : collectionName.substring(0, collectionName.lastIndexOf("/") + 1);
+        return collectionPrefix + refValue.substring(0, delimiter);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected String getReferencePath(BasicDBObject reference) {
+        String refValue = reference.getString(REF_TPL);
+        int delimiter = refValue.indexOf(':');
+        if (delimiter < 0) {
+            return refValue;
+        }
+        int end = refValue.indexOf(':', delimiter + 1);
+        return refValue.substring(delimiter + 1, end < 0 ? refValue.length() : end);
+    }
 
+    /**
+     * {@inheritDoc}
+     */
     @Override
     public TestDataProvider fromCollection(String collName) throws DataException {
-        String json = readFile(this.testDataFolder, collName);
-        BasicDBObject parsed = parse(json);
-        AbstractDataProvider dataProvider = createInstance(parsed, collName);
-        dataProvider.applyGenerator(this.callback);
+        AbstractDataProvider dataProvider = createInstance(getCollectionObject(collName), collName);
+        dataProvider.inheritGenerator(this);
         return dataProvider;
     }
 
-    private String readFile(String testDataFolder, String collectionName) throws CollectionNotFoundException {
-        String json;
+    private BasicDBObject readFile(String testDataFolder, String collectionName) throws CollectionNotFoundException {
+        Properties properties;
+        long start = Metrics.start();
         try {
             File targetFile = new File(testDataFolder + separator + collectionName + "." + this.extension);
-            Properties properties = getProperties(targetFile);
-            json = new PropertiesToJsonConverter(
+            properties = getProperties(targetFile);
+        } catch (DataException ex) {
+            throw new CollectionNotFoundException(String.format("File %s.%s not found in %s",
+                    collectionName, extension, testDataFolder), ex);
+        } finally {
+            Metrics.stop(Operation.READ, collectionName, start);
+        }
+
+        start = Metrics.start();
+        try {
+            String json = new PropertiesToJsonConverter(
                     new PrimitiveArrayJsonTypeResolver(arrayDelimiter),
                     new ObjectFromTextJsonTypeResolver(),
                     new BooleanJsonTypeResolver(),
                     new StringJsonTypeResolver()
             ).parseToJson(properties);
-
-        } catch (DataException ex) {
-            throw new CollectionNotFoundException(String.format("File %s.%s not found in %s",
-                    collectionName, extension, testDataFolder), ex);
+            return parse(json);
+        } finally {
+            Metrics.stop(Operation.PARSE, collectionName, start);
         }
-        return json;
     }
 
     private Properties getProperties(File file) throws DataException {
@@ -14,6 +14,8 @@ import ru.sbtqa.tag.datajack.exceptions.CyclicReferencesException;
 import ru.sbtqa.tag.datajack.exceptions.DataException;
 import ru.sbtqa.tag.datajack.exceptions.FieldNotFoundException;
 import ru.sbtqa.tag.datajack.exceptions.ReferenceException;
+import ru.sbtqa.tag.datajack.providers.CollectionCache;
+import ru.sbtqa.tag.datajack.providers.CollectionPreloader;
 
 import java.util.*;
 
@@ -403,7 +405,7 @@ public class PropertiesDataTest {
     public void getJsonTest() throws DataException {
         TestDataProvider testDataProvider = new PropertiesDataProvider(propertiesDataPath, "DataBlocks");
         String stringJson = testDataProvider.get("Params Group 1").getValue();
-        String expectedJson = "{ \"password\" : 123 , \"login\" : 123}";
+        String expectedJson = "{ \"password\" : \"123qwe\" , \"login\" : \"123qwe\"}";
         Assert.assertEquals(expectedJson, stringJson);
     }
 
@@ -453,4 +455,22 @@ public class PropertiesDataTest {
         assertEquals("1",
                 dataProvider.get("containsArray.array[1]").getValue());
     }
+
+    @Test
+    public void preloadTest() throws DataException {
+        CollectionPreloader.Report report = PropertiesDataProvider.preload(propertiesDataPath);
+        assertTrue(report.getFailures().toString(), report.isSuccessful());
+        assertEquals(Arrays.asList("DataBlocks", "Tests", "issue-290", "relative/relative1", "relative/relative2"),
+                new ArrayList<>(report.getTimings().keySet()));
+
+        CollectionCache cache = CollectionCache.getInstance();
+        long misses = cache.getMisses();
+        assertEquals("123qwe", new PropertiesDataProvider(propertiesDataPath, "DataBlocks").get("Common.password2").getValue());
+        assertEquals("123", new PropertiesDataProvider(propertiesDataPath, "relative/relative1").get("relates to relative2").getValue());
+        assertEquals("Preloaded collections are read again", misses, cache.getMisses());
+
+        List<String> hosts = new PropertiesDataProvider(propertiesDataPath, "issue-290", "properties", ";")
+                .get("afd.db.save.hosts").getStringValues();
+        assertEquals("Collections parsed with other delimiter are shared", 3, hosts.size());
+    }
 }
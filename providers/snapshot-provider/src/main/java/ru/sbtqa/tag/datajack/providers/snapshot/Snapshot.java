@@ -0,0 +1,325 @@
+package ru.sbtqa.tag.datajack.providers.snapshot;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import ru.sbtqa.tag.datajack.exceptions.CollectionNotFoundException;
+import ru.sbtqa.tag.datajack.exceptions.DataException;
+import ru.sbtqa.tag.datajack.exceptions.DataParseException;
+import ru.sbtqa.tag.datajack.exceptions.FileNotFoundException;
+import ru.sbtqa.tag.datajack.metrics.Metrics;
+import ru.sbtqa.tag.datajack.metrics.Operation;
+import ru.sbtqa.tag.datajack.providers.PathIndexCache;
+import ru.sbtqa.tag.datajack.providers.ReferenceCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static ru.sbtqa.tag.datajack.providers.snapshot.SnapshotFormat.*;
+
+/**
+ * Opened binary snapshot. The file is memory-mapped and only its string table
+ * and directory are read on open. Collections are decoded on first access and
+ * softly kept for the lifetime of the snapshot, so the garbage collector may
+ * drop them under memory pressure and they are decoded again on next access.
+ * Decoded objects must be treated as read-only.
+ * <p>
+ * Opened snapshots are shared per file, see {@link #open(File)}. A closed
+ * snapshot is unmapped, and collections requested from it afterwards are
+ * read from the file opened again
+ */
+public final class Snapshot {
+
+    /**
+     * System property to override maximum number of shared opened snapshots.
+     * Zero disables sharing
+     */
+    public static final String CACHE_SIZE_PROPERTY = "datajack.snapshot.cache.size";
+
+    private static final int DEFAULT_CACHE_SIZE = 16;
+    private static final int MAX_OPENED = Integer.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE);
+    private static final Map<String, Snapshot> OPENED = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final File file;
+    private final long lastModified;
+    private final long length;
+    private final ByteBuffer buffer;
+    private final String[] strings;
+    private final Map<String, Integer> directory;
+    private final ConcurrentMap<String, SoftReference<BasicDBObject>> collections = new ConcurrentHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private boolean closed;
+
+    private Snapshot(File file, long lastModified, long length, ByteBuffer buffer) throws DataException {
+        this.file = file;
+        this.lastModified = lastModified;
+        this.length = length;
+        this.buffer = buffer;
+        try {
+            if (buffer.getInt(0) != MAGIC) {
+                throw new DataParseException(format("%s is not a datajack snapshot", file));
+            }
+            short version = buffer.getShort(4);
+            if (version != VERSION) {
+                throw new DataParseException(format("Unsupported snapshot version %d in %s", version, file));
+            }
+
+            int position = buffer.getInt(STRINGS_OFFSET_POSITION);
+            strings = new String[buffer.getInt(position)];
+            position += 4;
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = readString(position);
+                position += 4 + buffer.getInt(position);
+            }
+
+            position = buffer.getInt(DIRECTORY_OFFSET_POSITION);
+            int count = buffer.getInt(position);
+            position += 4;
+            Map<String, Integer> roots = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                String name = readString(position);
+                position += 4 + buffer.getInt(position);
+                roots.put(name, buffer.getInt(position));
+                position += 4;
+            }
+            directory = Collections.unmodifiableMap(roots);
+        } catch (IndexOutOfBoundsException ex) {
+            throw new DataParseException(format("Snapshot %s is truncated", file), ex);
+        }
+    }
+
+    /**
+     * Open snapshot. Snapshots are shared per file until last modified time or
+     * size of the file changes. Replaced snapshots and least recently opened
+     * ones over {@link #CACHE_SIZE_PROPERTY} are closed
+     *
+     * @param file snapshot file
+     * @return opened snapshot
+     * @throws DataException if file could not be read or is not a snapshot
+     */
+    public static Snapshot open(File file) throws DataException {
+        String key = file.getAbsolutePath();
+        long lastModified = file.lastModified();
+        long length = file.length();
+        synchronized (OPENED) {
+            Snapshot snapshot = OPENED.get(key);
+            if (snapshot != null && snapshot.lastModified == lastModified && snapshot.length == length) {
+                return snapshot;
+            }
+        }
+
+        Snapshot snapshot = map(file, lastModified, length);
+        if (MAX_OPENED <= 0) {
+            return snapshot;
+        }
+        List<Snapshot> dropped = new ArrayList<>();
+        synchronized (OPENED) {
+            Snapshot replaced = OPENED.put(key, snapshot);
+            if (replaced != null) {
+                dropped.add(replaced);
+            }
+            Iterator<Snapshot> eldest = OPENED.values().iterator();
+            while (OPENED.size() > MAX_OPENED) {
+                dropped.add(eldest.next());
+                eldest.remove();
+            }
+        }
+        dropped.forEach(Snapshot::release);
+        return snapshot;
+    }
+
+    /**
+     * Close all shared snapshots
+     */
+    public static void closeAll() {
+        List<Snapshot> dropped;
+        synchronized (OPENED) {
+            dropped = new ArrayList<>(OPENED.values());
+            OPENED.clear();
+        }
+        dropped.forEach(Snapshot::release);
+    }
+
+    private static Snapshot map(File file, long lastModified, long length) throws DataException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new DataParseException(format("Snapshot %s exceeds 2 GB", file));
+            }
+            return new Snapshot(file, lastModified, length, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (java.nio.file.NoSuchFileException ex) {
+            throw new FileNotFoundException(format("Could not find snapshot file: '%s'", file), ex);
+        } catch (IOException ex) {
+            throw new DataException(format("Could not read snapshot %s", file), ex);
+        }
+    }
+
+    /**
+     * @return names of collections in snapshot
+     */
+    public Set<String> getCollectionNames() {
+        return directory.keySet();
+    }
+
+    /**
+     * Get root object of collection, decoding it on first access
+     *
+     * @param collectionName name of collection
+     * @return root object of collection
+     * @throws CollectionNotFoundException if there is no such collection
+     * @throws DataException if snapshot is closed and its file could not be opened again
+     */
+    public BasicDBObject getCollection(String collectionName) throws DataException {
+        Integer root = directory.get(collectionName);
+        if (root == null) {
+            throw new CollectionNotFoundException(format("There is no collection \"%s\" in snapshot %s", collectionName, file));
+        }
+        SoftReference<BasicDBObject> cached = collections.get(collectionName);
+        BasicDBObject collection = cached == null ? null : cached.get();
+        if (collection != null) {
+            return collection;
+        }
+
+        lock.readLock().lock();
+        try {
+            if (!closed) {
+                BasicDBObject[] decoded = new BasicDBObject[1];
+                collections.compute(collectionName, (name, reference) -> {
+                    decoded[0] = reference == null ? null : reference.get();
+                    if (decoded[0] != null) {
+                        return reference;
+                    }
+                    decoded[0] = decode(name, root);
+                    return new SoftReference<>(decoded[0]);
+                });
+                return decoded[0];
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return open(file).getCollection(collectionName);
+    }
+
+    /**
+     * Close snapshot and unmap its file. Providers created from the snapshot
+     * keep working, collections they have not decoded yet are read from the
+     * file opened again
+     */
+    public void close() {
+        synchronized (OPENED) {
+            OPENED.remove(file.getAbsolutePath(), this);
+        }
+        release();
+    }
+
+    private void release() {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (SoftReference<BasicDBObject> reference : collections.values()) {
+                BasicDBObject collection = reference.get();
+                if (collection != null) {
+                    ReferenceCache.getInstance().invalidate(collection);
+                    PathIndexCache.getInstance().invalidate(collection);
+                }
+            }
+            collections.clear();
+            unmap(buffer);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Release the mapping without waiting for garbage collection where the
+     * runtime allows it, otherwise it is released when the buffer is collected
+     */
+    private static void unmap(ByteBuffer buffer) {
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            // Mapping is released with the buffer
+        }
+    }
+
+    private BasicDBObject decode(String collectionName, int root) {
+        long start = Metrics.start();
+        try {
+            return (BasicDBObject) readNode(root);
+        } finally {
+            Metrics.stop(Operation.PARSE, collectionName, start);
+        }
+    }
+
+    private Object readNode(int offset) {
+        byte tag = buffer.get(offset);
+        int body = offset + 1;
+        switch (tag) {
+            case NULL:
+                return null;
+            case TRUE:
+                return true;
+            case FALSE:
+                return false;
+            case INT:
+                return buffer.getInt(body);
+            case LONG:
+                return buffer.getLong(body);
+            case DOUBLE:
+                return buffer.getDouble(body);
+            case STRING:
+                return readString(body);
+            case OBJECT: {
+                int count = buffer.getInt(body);
+                BasicDBObject object = new BasicDBObject(count * 2);
+                for (int i = 0, entry = body + 4; i < count; i++, entry += 8) {
+                    object.put(strings[buffer.getInt(entry)], readNode(buffer.getInt(entry + 4)));
+                }
+                return object;
+            }
+            case ARRAY: {
+                int count = buffer.getInt(body);
+                BasicDBList list = new BasicDBList();
+                for (int i = 0, entry = body + 4; i < count; i++, entry += 4) {
+                    list.add(readNode(buffer.getInt(entry)));
+                }
+                return list;
+            }
+            default:
+                throw new IllegalStateException(format("Unknown node type %d at %d in snapshot %s", tag, offset, file));
+        }
+    }
+
+    private String readString(int position) {
+        int length = buffer.getInt(position);
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(position + 4);
+        view.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
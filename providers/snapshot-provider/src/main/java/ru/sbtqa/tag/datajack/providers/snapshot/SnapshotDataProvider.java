@@ -0,0 +1,167 @@
+package ru.sbtqa.tag.datajack.providers.snapshot;
+
+import com.mongodb.BasicDBObject;
+import ru.sbtqa.tag.datajack.exceptions.DataException;
+import ru.sbtqa.tag.datajack.providers.AbstractDataProvider;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+public class SnapshotDataProvider extends AbstractDataProvider {
+
+    private static final String REF_TPL = "$ref";
+    private final Snapshot snapshot;
+
+    /**
+     * Create SnapshotDataProvider instance
+     *
+     * @param snapshotFile path to snapshot file
+     * @param collectionName collection name
+     * @throws DataException if snapshot could not be opened or there is no such collection
+     */
+    public SnapshotDataProvider(String snapshotFile, String collectionName) throws DataException {
+        this(Snapshot.open(new File(snapshotFile)), collectionName);
+    }
+
+    /**
+     * Create SnapshotDataProvider instance
+     *
+     * @param snapshot opened snapshot
+     * @param collectionName collection name
+     * @throws DataException if there is no such collection
+     */
+    public SnapshotDataProvider(Snapshot snapshot, String collectionName) throws DataException {
+        this.snapshot = snapshot;
+        this.basicObject = snapshot.getCollection(collectionName);
+        this.collectionName = collectionName;
+    }
+
+    private SnapshotDataProvider(Snapshot snapshot, BasicDBObject obj, String collectionName, String way) {
+        this.snapshot = snapshot;
+        this.basicObject = obj;
+        this.collectionName = collectionName;
+        this.way = way;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected SnapshotDataProvider createInstance(BasicDBObject obj, String collectionName, String way) {
+        return new SnapshotDataProvider(snapshot, obj, collectionName, way);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected SnapshotDataProvider createInstance(BasicDBObject obj, String collectionName) {
+        return new SnapshotDataProvider(snapshot, obj, collectionName, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected SnapshotDataProvider createInstance(String collectionName) throws DataException {
+        return new SnapshotDataProvider(snapshot, collectionName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SnapshotDataProvider fromCollection(String collectionName) throws DataException {
+        SnapshotDataProvider dataProvider = createInstance(collectionName);
+        dataProvider.inheritGenerator(this);
+        return dataProvider;
+    }
+
+    /**
+     * Collections are decoded once per snapshot, unless memory pressure drops
+     * them
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    protected BasicDBObject getCollectionObject(String collectionName) throws DataException {
+        return snapshot.getCollection(collectionName);
+    }
+
+    /**
+     * Snapshot content never changes, a collection decoded again is a new
+     * root object that does not match references cached for the old one
+     *
+     * @return true
+     */
+    @Override
+    protected boolean isReferenceCacheable() {
+        return true;
+    }
+
+    /**
+     * Snapshots keep references of the provider they were exported from:
+     * either {@code "$ref": "Collection:path"} or
+     * {@code "value": {"collection": ..., "path": ...}}
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isReference(BasicDBObject basicDBObject) {
+        return basicDBObject.get(REF_TPL) instanceof String || super.isReference(basicDBObject);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected String getReferenceCollection(BasicDBObject reference, String collectionName) {
+        if (!(reference.get(REF_TPL) instanceof String)) {
+            return super.getReferenceCollection(reference, collectionName);
+        }
+        String refValue = reference.getString(REF_TPL);
+        int delimiter = refValue.indexOf(':');
+        if (delimiter < 0) {
+            return collectionName;
+        }
+        String collectionPrefix = refValue.startsWith("/") ? "" : collectionName.substring(0, collectionName.lastIndexOf("/") + 1);
+        return normalize(collectionPrefix + refValue.substring(0, delimiter));
+    }
+
+    /**
+     * Collections are stored by names relative to data folder, so resolve
+     * {@code .} and {@code ..} segments and drop leading slash
+     *
+     * @param collectionName collection name with relative segments
+     * @return normalized collection name
+     */
+    private static String normalize(String collectionName) {
+        Deque<String> segments = new ArrayDeque<>();
+        for (String segment : collectionName.split("/")) {
+            if ("..".equals(segment)) {
+                segments.pollLast();
+            } else if (!segment.isEmpty() && !".".equals(segment)) {
+                segments.addLast(segment);
+            }
+        }
+        return String.join("/", segments);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected String getReferencePath(BasicDBObject reference) {
+        if (!(reference.get(REF_TPL) instanceof String)) {
+            return super.getReferencePath(reference);
+        }
+        String refValue = reference.getString(REF_TPL);
+        int delimiter = refValue.indexOf(':');
+        if (delimiter < 0) {
+            return refValue;
+        }
+        int end = refValue.indexOf(':', delimiter + 1);
+        return refValue.substring(delimiter + 1, end < 0 ? refValue.length() : end);
+    }
+}
@@ -0,0 +1,43 @@
+package ru.sbtqa.tag.datajack.providers.snapshot;
+
+/**
+ * Layout of datajack binary snapshot. All numbers are big-endian.
+ * <pre>
+ * header     magic:int version:short reserved:short strings:int directory:int
+ * nodes      tag:byte followed by tag specific body
+ * strings    count:int then count x (length:int utf8:byte[length])
+ * directory  count:int then count x (length:int utf8:byte[length] root:int)
+ * </pre>
+ * Node bodies:
+ * <pre>
+ * NULL, TRUE, FALSE  empty
+ * STRING             length:int utf8:byte[length]
+ * INT, LONG, DOUBLE  value:int, value:long, value:double
+ * OBJECT             count:int then count x (key:int value:int)
+ * ARRAY              count:int then count x (value:int)
+ * </pre>
+ * Object keys are indices in the string table and nested values are absolute
+ * offsets of their nodes, so any node can be read without reading its
+ * siblings. Children are written before parents
+ */
+final class SnapshotFormat {
+
+    static final int MAGIC = 0x444A534E;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int STRINGS_OFFSET_POSITION = 8;
+    static final int DIRECTORY_OFFSET_POSITION = 12;
+
+    static final byte NULL = 0;
+    static final byte STRING = 1;
+    static final byte INT = 2;
+    static final byte LONG = 3;
+    static final byte DOUBLE = 4;
+    static final byte TRUE = 5;
+    static final byte FALSE = 6;
+    static final byte OBJECT = 7;
+    static final byte ARRAY = 8;
+
+    private SnapshotFormat() {
+    }
+}
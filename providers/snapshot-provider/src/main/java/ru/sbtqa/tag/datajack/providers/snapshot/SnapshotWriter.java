@@ -0,0 +1,252 @@
+package ru.sbtqa.tag.datajack.providers.snapshot;
+
+import com.mongodb.BasicDBObject;
+import org.bson.BSONObject;
+import ru.sbtqa.tag.datajack.TestDataProvider;
+import ru.sbtqa.tag.datajack.exceptions.DataException;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static ru.sbtqa.tag.datajack.providers.snapshot.SnapshotFormat.*;
+
+/**
+ * Builds binary snapshot of data collections. Collections of any provider can
+ * be added, references are stored as is and resolved by
+ * {@link SnapshotDataProvider}. Values other than strings, numbers, booleans,
+ * objects and arrays are stored as strings
+ */
+public class SnapshotWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Map<String, BasicDBObject> collections = new LinkedHashMap<>();
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final List<String> stringTable = new ArrayList<>();
+
+    /**
+     * Add collection
+     *
+     * @param collectionName name to store collection by
+     * @param collection root object of collection
+     * @return this writer
+     */
+    public SnapshotWriter add(String collectionName, BasicDBObject collection) {
+        collections.put(collectionName, collection);
+        return this;
+    }
+
+    /**
+     * Add collection loaded by provider
+     *
+     * @param collectionName name to store collection by
+     * @param provider provider positioned at collection root
+     * @return this writer
+     * @throws DataException if provider is not initialized
+     */
+    public SnapshotWriter add(String collectionName, TestDataProvider provider) throws DataException {
+        return add(collectionName, new BasicDBObject(provider.toMap()));
+    }
+
+    /**
+     * Write snapshot of added collections. Nodes are streamed to the file and
+     * the header is written last, so the snapshot is never held in memory
+     *
+     * @param file file to write to
+     * @throws DataException if file could not be written or snapshot exceeds 2 GB
+     */
+    public void write(File file) throws DataException {
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            output.setLength(0);
+            output.seek(HEADER_SIZE);
+            byte[] header = writeBody(new BufferedOutputStream(Channels.newOutputStream(output.getChannel()), BUFFER_SIZE));
+            output.seek(0);
+            output.write(header);
+        } catch (IOException ex) {
+            throw new DataException("Could not write snapshot " + file, ex);
+        }
+    }
+
+    /**
+     * Build snapshot of added collections in memory. Meant for small snapshots,
+     * use {@link #write(File)} for large ones
+     *
+     * @return snapshot of added collections
+     * @throws DataException if snapshot could not be built
+     */
+    public byte[] toByteArray() throws DataException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            bytes.write(new byte[HEADER_SIZE]);
+            byte[] header = writeBody(bytes);
+            byte[] result = bytes.toByteArray();
+            System.arraycopy(header, 0, result, 0, HEADER_SIZE);
+            return result;
+        } catch (IOException ex) {
+            throw new DataException("Could not build snapshot", ex);
+        }
+    }
+
+    /**
+     * Write nodes, string table and directory after the header
+     *
+     * @param stream stream positioned right after the header
+     * @return header to write at the start of snapshot
+     */
+    private byte[] writeBody(OutputStream stream) throws IOException, DataException {
+        strings.clear();
+        stringTable.clear();
+        NodeOutput out = new NodeOutput(stream, HEADER_SIZE);
+        Map<String, Integer> roots = new LinkedHashMap<>();
+        for (Map.Entry<String, BasicDBObject> collection : collections.entrySet()) {
+            roots.put(collection.getKey(), writeNode(out, collection.getValue()));
+        }
+
+        int stringsOffset = out.offset();
+        out.writeInt(stringTable.size());
+        for (String string : stringTable) {
+            writeString(out, string);
+        }
+
+        int directoryOffset = out.offset();
+        out.writeInt(roots.size());
+        for (Map.Entry<String, Integer> root : roots.entrySet()) {
+            writeString(out, root.getKey());
+            out.writeInt(root.getValue());
+        }
+        out.flush();
+
+        return ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .putShort(VERSION)
+                .putShort((short) 0)
+                .putInt(stringsOffset)
+                .putInt(directoryOffset)
+                .array();
+    }
+
+    private int writeNode(NodeOutput out, Object value) throws IOException, DataException {
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            int[] offsets = new int[list.size()];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = writeNode(out, list.get(i));
+            }
+            int offset = out.offset();
+            out.writeByte(ARRAY);
+            out.writeInt(offsets.length);
+            for (int child : offsets) {
+                out.writeInt(child);
+            }
+            return offset;
+        } else if (value instanceof BSONObject) {
+            Map<?, ?> map = ((BSONObject) value).toMap();
+            int[] keys = new int[map.size()];
+            int[] offsets = new int[map.size()];
+            int i = 0;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                keys[i] = stringId(String.valueOf(entry.getKey()));
+                offsets[i] = writeNode(out, entry.getValue());
+                i++;
+            }
+            int offset = out.offset();
+            out.writeByte(OBJECT);
+            out.writeInt(keys.length);
+            for (int j = 0; j < keys.length; j++) {
+                out.writeInt(keys[j]);
+                out.writeInt(offsets[j]);
+            }
+            return offset;
+        }
+
+        int offset = out.offset();
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(INT);
+            out.writeInt(((Number) value).intValue());
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else {
+            out.writeByte(STRING);
+            writeString(out, value.toString());
+        }
+        return offset;
+    }
+
+    private int stringId(String string) {
+        Integer id = strings.get(string);
+        if (id == null) {
+            id = stringTable.size();
+            strings.put(string, id);
+            stringTable.add(string);
+        }
+        return id;
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Data output that tracks absolute offset of written nodes
+     */
+    private static final class NodeOutput extends DataOutputStream {
+
+        private NodeOutput(OutputStream out, long position) {
+            super(new PositionOutputStream(out, position));
+        }
+
+        private int offset() throws DataException {
+            long position = ((PositionOutputStream) out).position;
+            if (position > Integer.MAX_VALUE) {
+                throw new DataException("Snapshot exceeds 2 GB");
+            }
+            return (int) position;
+        }
+    }
+
+    private static final class PositionOutputStream extends FilterOutputStream {
+
+        private long position;
+
+        private PositionOutputStream(OutputStream out, long position) {
+            super(out);
+            this.position = position;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            position++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            position += len;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package ru.sbtqa.tag.datajack.providers.snapshot;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import ru.sbtqa.tag.datajack.TestDataProvider;
+import ru.sbtqa.tag.datajack.callback.SampleDataGensCallback;
+import ru.sbtqa.tag.datajack.exceptions.CollectionNotFoundException;
+import ru.sbtqa.tag.datajack.exceptions.CyclicReferencesException;
+import ru.sbtqa.tag.datajack.exceptions.DataException;
+import ru.sbtqa.tag.datajack.exceptions.DataParseException;
+import ru.sbtqa.tag.datajack.metrics.InMemoryMetrics;
+import ru.sbtqa.tag.datajack.metrics.Metrics;
+import ru.sbtqa.tag.datajack.metrics.Operation;
+import ru.sbtqa.tag.datajack.providers.CollectionCache;
+import ru.sbtqa.tag.datajack.providers.json.JsonDataProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.rules.ExpectedException.none;
+import static ru.sbtqa.tag.datajack.callback.SampleDataCache.getCache;
+
+public class SnapshotDataTest {
+
+    private static final String JSON_DATA_PATH = "../json-provider/src/test/resources/json";
+    private static final List<String> COLLECTIONS = Arrays.asList("Tests", "DataBlocks", "relative/relative1", "relative/relative2");
+
+    @Rule
+    public ExpectedException expectDataExceptions = none();
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File snapshotFile;
+
+    @Before
+    public void setUp() throws DataException, IOException {
+        getCache().clear();
+        SnapshotWriter writer = new SnapshotWriter();
+        for (String collection : COLLECTIONS) {
+            writer.add(collection, new JsonDataProvider(JSON_DATA_PATH, collection));
+        }
+        snapshotFile = temporaryFolder.newFile("data.snapshot");
+        writer.write(snapshotFile);
+    }
+
+    @Test
+    public void sameValuesTest() throws DataException {
+        TestDataProvider json = new JsonDataProvider(JSON_DATA_PATH, "Tests");
+        TestDataProvider snapshot = new SnapshotDataProvider(snapshotFile.getPath(), "Tests");
+        List<String> paths = Arrays.asList(
+                "${array[0]}",
+                "${array[2].b[0].b.c}",
+                "${array[3].ref}",
+                "$DataBlocks{Common.password2}",
+                "$DataBlocks{Params Group 1}",
+                "$DataBlocks{ref array[2].b[0].b.d}",
+                "$DataBlocks{MapTests.doubleValue}",
+                "$relative/relative1{relates to relative2}",
+                "$relative/relative1{relates to root}",
+                "$relative/relative1{relates to parent}");
+
+        assertEquals(json.getValues(paths), snapshot.getValues(paths));
+        assertEquals(json.get("Common").toMap().keySet(), snapshot.get("Common").getKeySet());
+        assertEquals(42, snapshot.fromCollection("DataBlocks").get("MapTests.integerValue").getInt());
+    }
+
+    @Test
+    public void generatorTest() throws DataException {
+        TestDataProvider snapshot = new SnapshotDataProvider(snapshotFile.getPath(), "Tests");
+        snapshot.applyGenerator(SampleDataGensCallback.class);
+
+        String generated = snapshot.get("Common.gen gen.gendata").getValue();
+        assertEquals(generated, snapshot.get("array[3].genRef").getValue());
+    }
+
+    @Test
+    public void sharedSnapshotTest() throws DataException {
+        Snapshot snapshot = Snapshot.open(snapshotFile);
+        assertSame(snapshot, Snapshot.open(snapshotFile));
+        assertTrue(snapshot.getCollectionNames().containsAll(COLLECTIONS));
+        assertSame(snapshot.getCollection("Tests"), snapshot.getCollection("Tests"));
+    }
+
+    @Test
+    public void changedSizeTest() throws DataException, IOException {
+        Snapshot snapshot = Snapshot.open(snapshotFile);
+        long lastModified = snapshotFile.lastModified();
+        SnapshotWriter writer = new SnapshotWriter();
+        writer.add("Tests", new JsonDataProvider(JSON_DATA_PATH, "Tests"));
+        writer.write(snapshotFile);
+        assertTrue(snapshotFile.setLastModified(lastModified));
+
+        Snapshot changed = Snapshot.open(snapshotFile);
+        assertNotSame(snapshot, changed);
+        assertEquals(Collections.singleton("Tests"), changed.getCollectionNames());
+    }
+
+    @Test
+    public void streamedWriteTest() throws DataException, IOException {
+        SnapshotWriter writer = new SnapshotWriter();
+        for (String collection : COLLECTIONS) {
+            writer.add(collection, new JsonDataProvider(JSON_DATA_PATH, collection));
+        }
+        File file = temporaryFolder.newFile("streamed.snapshot");
+        Files.write(file.toPath(), new byte[1 << 20]);
+        writer.write(file);
+
+        assertArrayEquals(writer.toByteArray(), Files.readAllBytes(file.toPath()));
+        assertArrayEquals(Files.readAllBytes(snapshotFile.toPath()), Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void closeTest() throws DataException {
+        Snapshot snapshot = Snapshot.open(snapshotFile);
+        TestDataProvider provider = new SnapshotDataProvider(snapshot, "Tests");
+        snapshot.close();
+
+        assertNotSame(snapshot, Snapshot.open(snapshotFile));
+        assertEquals("this is string", provider.fromCollection("DataBlocks").get("MapTests.stringValue").getValue());
+    }
+
+    @Test
+    public void decodedOnAccessTest() throws DataException {
+        CollectionCache.getInstance().clear();
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        Metrics.install(metrics);
+        try {
+            new JsonDataProvider(JSON_DATA_PATH, "Tests");
+            assertEquals(1, metrics.getCount(Operation.PARSE, "Tests"));
+            Snapshot snapshot = Snapshot.open(snapshotFile);
+            assertEquals(1, metrics.getCount(Operation.PARSE, "Tests"));
+
+            new SnapshotDataProvider(snapshot, "Tests").get("array[0]");
+            new SnapshotDataProvider(snapshot, "Tests").get("Common");
+            // Json file and snapshot collection are both parsed once and whole, other collections not at all
+            assertEquals(2, metrics.getCount(Operation.PARSE, "Tests"));
+            assertEquals(1, metrics.getCount(Operation.READ, "Tests"));
+            assertEquals(0, metrics.getCount(Operation.PARSE, "DataBlocks"));
+        } finally {
+            Metrics.install(null);
+        }
+    }
+
+    @Test
+    public void cyclicReferenceTest() throws DataException {
+        TestDataProvider snapshot = new SnapshotDataProvider(snapshotFile.getPath(), "DataBlocks");
+        expectDataExceptions.expect(CyclicReferencesException.class);
+        snapshot.get("Common.cyclic").getValue();
+    }
+
+    @Test
+    public void collectionNotFoundTest() throws DataException {
+        expectDataExceptions.expect(CollectionNotFoundException.class);
+        expectDataExceptions.expectMessage("There is no collection \"Unknown\" in snapshot");
+        new SnapshotDataProvider(snapshotFile.getPath(), "Unknown");
+    }
+
+    @Test
+    public void notSnapshotTest() throws DataException, IOException {
+        File file = temporaryFolder.newFile("not.snapshot");
+        Files.write(file.toPath(), "{\"json\": true, \"padding\": 0}".getBytes());
+        expectDataExceptions.expect(DataParseException.class);
+        expectDataExceptions.expectMessage("is not a datajack snapshot");
+        Snapshot.open(file);
+    }
+}